@@ -0,0 +1,347 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package benchmark;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates a corpus of pathological emails for the {@link MacroBenchmark}. The corpus only depends on the seed and
+ * the scale, so every build is measured with byte-identical emails.
+ *
+ * The emails are written to a directory per {@link Category}, the large contents are streamed, so the generator needs
+ * little memory.
+ *
+ * @author Nick Russler
+ */
+public final class CorpusGenerator {
+    private static final String CRLF = "\r\n";
+
+    // 57 bytes are one 76 character line of base64
+    private static final int BASE64_LINE_BYTES = 57;
+
+    private static final ZonedDateTime FIRST_DATE = ZonedDateTime.of(2020, 1, 1, 8, 0, 0, 0, ZoneOffset.UTC);
+
+    private static final String[] WORDS = {
+            "invoice", "meeting", "report", "quarter", "delivery", "update", "schedule", "budget", "review", "project",
+            "Grüße", "naïve", "résumé", "straße", "price", "customer", "order", "shipment", "account", "the", "and",
+            "of", "to", "in", "for", "with", "on", "at", "by", "from"
+    };
+
+    /**
+     * Kind of pathological email. The sizes are the sizes at scale 1.
+     */
+    public enum Category {
+        /** multipart/mixed with 500 parts, mostly small attachments */
+        MANY_PARTS("many-parts", 500),
+        /** To header with 10000 recipients */
+        MANY_RECIPIENTS("many-recipients", 10000),
+        /** html referencing an inline image of 50 MB */
+        LARGE_INLINE_IMAGE("large-inline-image", 50 * 1024 * 1024),
+        /** parts with malformed and unknown content types and charsets */
+        BROKEN_CONTENT_TYPES("broken-content-types", 1),
+        /** text/plain body of 20 MB */
+        LARGE_PLAIN_TEXT("large-plain-text", 20 * 1024 * 1024);
+
+        private final String directoryName;
+        private final int size;
+
+        Category(String directoryName, int size) {
+            this.directoryName = directoryName;
+            this.size = size;
+        }
+
+        public String getDirectoryName() {
+            return directoryName;
+        }
+    }
+
+    private final long seed;
+    private final double scale;
+
+    /**
+     * @param seed  seed of the random contents
+     * @param scale factor of the part counts, recipient counts and sizes, e.g. 0.01 for a quick run
+     */
+    public CorpusGenerator(long seed, double scale) {
+        this.seed = seed;
+        this.scale = scale;
+    }
+
+    /**
+     * Usage: CorpusGenerator &lt;directory&gt; [emails per category] [seed] [scale]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: CorpusGenerator <directory> [emails per category] [seed] [scale]");
+            System.exit(1);
+        }
+
+        int emails = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        double scale = args.length > 3 ? Double.parseDouble(args[3]) : 1;
+
+        File dir = new File(args[0]);
+        new CorpusGenerator(seed, scale).generate(dir, emails);
+        System.out.println(String.format("Generated %d emails per category in %s (seed %d, scale %s)", emails, dir, seed, scale));
+    }
+
+    /**
+     * Write the emails of every category, existing emails are overwritten.
+     *
+     * @param dir                corpus directory
+     * @param emailsPerCategory number of emails of each category
+     * @throws IOException
+     */
+    public void generate(File dir, int emailsPerCategory) throws IOException {
+        for (Category category : Category.values()) {
+            File categoryDir = new File(dir, category.getDirectoryName());
+            if (!categoryDir.isDirectory() && !categoryDir.mkdirs()) {
+                throw new IOException("Could not create " + categoryDir);
+            }
+
+            for (int i = 0; i < emailsPerCategory; i++) {
+                File eml = new File(categoryDir, String.format("%s-%03d.eml", category.getDirectoryName(), i));
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(eml), 64 * 1024)) {
+                    write(category, i, out);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write a single email.
+     *
+     * @param category kind of the email
+     * @param index    number of the email within its category
+     * @param out      stream the email is written to
+     * @throws IOException
+     */
+    public void write(Category category, int index, OutputStream out) throws IOException {
+        Random random = new Random(seed * 1000003L + category.ordinal() * 10007L + index);
+        int size = Math.max(1, (int) Math.round(category.size * scale));
+
+        switch (category) {
+        case MANY_PARTS:
+            writeManyParts(random, index, size, out);
+            break;
+        case MANY_RECIPIENTS:
+            writeManyRecipients(random, index, size, out);
+            break;
+        case LARGE_INLINE_IMAGE:
+            writeLargeInlineImage(random, index, size, out);
+            break;
+        case BROKEN_CONTENT_TYPES:
+            writeBrokenContentTypes(random, index, out);
+            break;
+        case LARGE_PLAIN_TEXT:
+            writeLargePlainText(random, index, size, out);
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown category " + category);
+        }
+    }
+
+    private static void writeManyParts(Random random, int index, int parts, OutputStream out) throws IOException {
+        String boundary = "----=_Part_" + index;
+
+        writeHeaders(random, index, "Many parts", true, out);
+        write(out, "Content-Type: multipart/mixed; boundary=\"" + boundary + "\"" + CRLF + CRLF);
+
+        write(out, "--" + boundary + CRLF);
+        write(out, "Content-Type: text/html; charset=utf-8" + CRLF + CRLF);
+        write(out, "<html><body><p>" + sentence(random, 50) + "</p></body></html>" + CRLF);
+
+        for (int i = 1; i < parts; i++) {
+            write(out, "--" + boundary + CRLF);
+            if (i % 5 == 0) {
+                write(out, "Content-Type: text/plain; charset=utf-8" + CRLF);
+                write(out, "Content-Transfer-Encoding: 8bit" + CRLF + CRLF);
+                write(out, sentence(random, 20) + CRLF);
+            } else {
+                write(out, "Content-Type: application/octet-stream; name=\"attachment-" + i + ".bin\"" + CRLF);
+                write(out, "Content-Disposition: attachment; filename=\"attachment-" + i + ".bin\"" + CRLF);
+                write(out, "Content-Transfer-Encoding: base64" + CRLF + CRLF);
+                writeBase64(random, 512 + random.nextInt(4096), out);
+            }
+        }
+
+        write(out, "--" + boundary + "--" + CRLF);
+    }
+
+    private static void writeManyRecipients(Random random, int index, int recipients, OutputStream out) throws IOException {
+        writeHeaders(random, index, "Many recipients", false, out);
+
+        write(out, "To: ");
+        for (int i = 0; i < recipients; i++) {
+            if (i > 0) {
+                write(out, "," + CRLF + " ");
+            }
+
+            // every tenth display name is an encoded word, like real mailing lists
+            String name = word(random) + " " + i;
+            if (i % 10 == 0) {
+                name = "=?utf-8?B?" + Base64.getEncoder().encodeToString(name.getBytes(StandardCharsets.UTF_8)) + "?=";
+            }
+            write(out, name + " <user" + i + "@example" + (i % 97) + ".com>");
+        }
+        write(out, CRLF);
+
+        write(out, "Content-Type: text/html; charset=utf-8" + CRLF + CRLF);
+        write(out, "<html><body><p>" + sentence(random, 100) + "</p></body></html>" + CRLF);
+    }
+
+    private static void writeLargeInlineImage(Random random, int index, int imageBytes, OutputStream out) throws IOException {
+        String boundary = "----=_Related_" + index;
+        String cid = "image-" + index + "@benchmark";
+
+        writeHeaders(random, index, "Large inline image", true, out);
+        write(out, "Content-Type: multipart/related; boundary=\"" + boundary + "\"" + CRLF + CRLF);
+
+        write(out, "--" + boundary + CRLF);
+        write(out, "Content-Type: text/html; charset=utf-8" + CRLF + CRLF);
+        write(out, "<html><body><p>" + sentence(random, 20) + "</p><img src=\"cid:" + cid + "\"></body></html>" + CRLF);
+
+        // only the size matters for the conversion, so the image is random bytes
+        write(out, "--" + boundary + CRLF);
+        write(out, "Content-Type: image/png" + CRLF);
+        write(out, "Content-ID: <" + cid + ">" + CRLF);
+        write(out, "Content-Disposition: inline" + CRLF);
+        write(out, "Content-Transfer-Encoding: base64" + CRLF + CRLF);
+        writeBase64(random, imageBytes, out);
+
+        write(out, "--" + boundary + "--" + CRLF);
+    }
+
+    private static void writeBrokenContentTypes(Random random, int index, OutputStream out) throws IOException {
+        String boundary = "broken" + index;
+
+        List<String> parts = new ArrayList<>();
+        parts.add("Content-Type: text/html; charset=\"x-unknown-charset\"" + CRLF + CRLF + "<p>" + sentence(random, 20) + "</p>");
+        parts.add("Content-Type: text/plain; charset=" + CRLF + CRLF + sentence(random, 20));
+        parts.add("Content-Type: text/html;; charset=utf-8;" + CRLF + CRLF + "<p>" + sentence(random, 20) + "</p>");
+        parts.add("Content-Type: text/html charset=utf-8" + CRLF + CRLF + "<p>" + sentence(random, 20) + "</p>");
+        parts.add("Content-Type: TEXT/HTML; CHARSET=\"UTF-8\"" + CRLF + CRLF + "<p>" + sentence(random, 20) + "</p>");
+        parts.add("Content-Type: multipart/alternative" + CRLF + CRLF + sentence(random, 20));
+        parts.add("Content-Type: application/octet-stream; name=\"unterminated.pdf" + CRLF + "Content-Transfer-Encoding: base64" + CRLF + CRLF + "not base64 at all!");
+        parts.add("Content-Type: image/png; name=logo.png" + CRLF + "Content-Transfer-Encoding: quoted-printable" + CRLF + CRLF + "=89PNG=0D=0A=1A=0A=ZZ");
+        parts.add("Content-Type: " + CRLF + CRLF + sentence(random, 20));
+        parts.add("Content-Type: text/plain; charset=utf-8" + CRLF + "Content-Transfer-Encoding: x-unknown" + CRLF + CRLF + sentence(random, 20));
+        Collections.shuffle(parts, random);
+
+        writeHeaders(random, index, "Broken content types", true, out);
+        // unquoted boundary and a duplicate charset on the top level
+        write(out, "Content-Type: multipart/mixed; boundary=" + boundary + "; charset=utf-8; charset=latin1" + CRLF + CRLF);
+
+        for (String part : parts) {
+            write(out, "--" + boundary + CRLF + part + CRLF);
+        }
+
+        // the closing delimiter is missing on purpose
+    }
+
+    private static void writeLargePlainText(Random random, int index, int textBytes, OutputStream out) throws IOException {
+        writeHeaders(random, index, "Large plain text", true, out);
+        write(out, "Content-Type: text/plain; charset=utf-8" + CRLF);
+        write(out, "Content-Transfer-Encoding: 8bit" + CRLF + CRLF);
+
+        long written = 0;
+        int line = 0;
+        while (written < textBytes) {
+            StringBuilder sb = new StringBuilder();
+            if (line % 100 == 99) {
+                // a line without spaces that the html has to wrap
+                for (int i = 0; i < 1000; i++) {
+                    sb.append(word(random));
+                }
+            } else if (line % 10 == 9) {
+                sb.append("See https://example.com/").append(word(random)).append("?id=").append(random.nextInt(100000)).append("&ref=<mail> for details");
+            } else {
+                sb.append(sentence(random, 5 + random.nextInt(10)));
+            }
+            sb.append(CRLF);
+
+            byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+            out.write(bytes);
+            written += bytes.length;
+            line++;
+        }
+    }
+
+    /**
+     * Write the common headers, the To header only if the email does not write its own.
+     */
+    private static void writeHeaders(Random random, int index, String subject, boolean to, OutputStream out) throws IOException {
+        write(out, "Message-ID: <" + subject.toLowerCase(Locale.ROOT).replace(' ', '-') + "-" + index + "@benchmark>" + CRLF);
+        write(out, "Date: " + DateTimeFormatter.RFC_1123_DATE_TIME.format(FIRST_DATE.plusHours(index)) + CRLF);
+        write(out, "From: " + word(random) + " <sender" + index + "@example.com>" + CRLF);
+        if (to) {
+            write(out, "To: recipient" + index + "@example.com" + CRLF);
+        }
+        write(out, "Subject: " + subject + " " + index + ": " + sentence(random, 5) + CRLF);
+        write(out, "MIME-Version: 1.0" + CRLF);
+    }
+
+    /**
+     * Write random bytes as base64 with lines of 76 characters.
+     */
+    private static void writeBase64(Random random, int bytes, OutputStream out) throws IOException {
+        Base64.Encoder encoder = Base64.getEncoder();
+        byte[] chunk = new byte[BASE64_LINE_BYTES];
+
+        for (int remaining = bytes; remaining > 0; remaining -= BASE64_LINE_BYTES) {
+            random.nextBytes(chunk);
+            byte[] line = encoder.encode(remaining >= BASE64_LINE_BYTES ? chunk : Arrays.copyOf(chunk, remaining));
+            out.write(line);
+            write(out, CRLF);
+        }
+    }
+
+    private static String sentence(Random random, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(word(random));
+        }
+
+        return sb.append('.').toString();
+    }
+
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private static void write(OutputStream out, String s) throws IOException {
+        out.write(s.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package benchmark;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Throwables;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import mimeparser.ConversionOptions;
+import mimeparser.ConversionRequest;
+import mimeparser.Converter;
+import mimeparser.PdfRenderer;
+import mimeparser.WkHtmlToPdfRenderer;
+import util.LogLevel;
+import util.Logger;
+
+/**
+ * Converts the emails of a corpus written by the {@link CorpusGenerator} and reports the latency percentiles and the
+ * peak heap of every category. The results are written as csv, so the runs of two builds can be compared.
+ *
+ * @author Nick Russler
+ */
+public final class MacroBenchmark {
+    static final String CSV_HEADER = "category,conversions,failures,p50_ms,p90_ms,p99_ms,max_ms,peak_heap_mib";
+
+    private final Converter converter;
+    private final int warmupRuns;
+    private final int runs;
+
+    /**
+     * @param renderer   renderer of the conversions
+     * @param warmupRuns unmeasured conversions of every email before the measured ones
+     * @param runs       measured conversions of every email
+     */
+    public MacroBenchmark(PdfRenderer renderer, int warmupRuns, int runs) throws IOException {
+        // the options of MimeMessageConverter.convertToPdf, with the attachment names that the many-parts emails stress
+        ConversionOptions options = ConversionOptions.builder()
+                .addAttachmentNames(true)
+                .build();
+
+        this.converter = new Converter(options, renderer);
+        this.warmupRuns = warmupRuns;
+        this.runs = runs;
+    }
+
+    /**
+     * Usage: MacroBenchmark &lt;corpus directory&gt; [--renderer stub|wkhtmltopdf] [--warmup N] [--runs N]
+     * [--output results.csv] [--baseline results.csv]
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: MacroBenchmark <corpus directory> [--renderer stub|wkhtmltopdf] [--warmup N] [--runs N] [--output results.csv] [--baseline results.csv]");
+            System.exit(1);
+        }
+
+        String renderer = "stub";
+        int warmupRuns = 1;
+        int runs = 3;
+        File output = null;
+        File baseline = null;
+
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+            case "--renderer":
+                renderer = args[i + 1];
+                break;
+            case "--warmup":
+                warmupRuns = Integer.parseInt(args[i + 1]);
+                break;
+            case "--runs":
+                runs = Integer.parseInt(args[i + 1]);
+                break;
+            case "--output":
+                output = new File(args[i + 1]);
+                break;
+            case "--baseline":
+                baseline = new File(args[i + 1]);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        // the converter logs the mime structure of every email at info level
+        Logger.level = LogLevel.Error;
+
+        PdfRenderer pdfRenderer;
+        if ("stub".equals(renderer)) {
+            pdfRenderer = new StubPdfRenderer();
+        } else if ("wkhtmltopdf".equals(renderer)) {
+            pdfRenderer = new WkHtmlToPdfRenderer(ConversionOptions.builder().build());
+        } else {
+            throw new IllegalArgumentException("Unknown renderer " + renderer);
+        }
+
+        System.out.println(String.format("Java %s, max heap %d MiB, renderer %s, %d warmup and %d measured runs",
+                System.getProperty("java.version"), Runtime.getRuntime().maxMemory() / 1024 / 1024, renderer, warmupRuns, runs));
+
+        List<Result> results = new MacroBenchmark(pdfRenderer, warmupRuns, runs).run(new File(args[0]));
+
+        Map<String, Result> baselineResults = baseline != null ? readCsv(baseline) : null;
+        printTable(results, baselineResults, System.out);
+
+        if (output != null) {
+            writeCsv(results, output);
+            System.out.println("Wrote the results to " + output);
+        }
+    }
+
+    /**
+     * Convert the emails of every category directory of the corpus.
+     *
+     * @param corpusDir directory with a sub directory of emails per category
+     * @return the result of every category, ordered by name
+     * @throws IOException
+     */
+    public List<Result> run(File corpusDir) throws IOException {
+        File[] categoryDirs = corpusDir.listFiles();
+        if (categoryDirs == null || categoryDirs.length == 0) {
+            throw new IOException("The corpus " + corpusDir + " is empty, generate it with the CorpusGenerator first");
+        }
+        Arrays.sort(categoryDirs);
+
+        File pdfDir = Files.createTempDir();
+        try {
+            List<Result> results = new ArrayList<>();
+            for (File categoryDir : categoryDirs) {
+                File[] emls = categoryDir.listFiles();
+                if (!categoryDir.isDirectory() || emls == null || emls.length == 0) {
+                    continue;
+                }
+                Arrays.sort(emls);
+
+                results.add(run(categoryDir.getName(), emls, new File(pdfDir, "benchmark.pdf")));
+            }
+
+            return results;
+        } finally {
+            File[] pdfs = pdfDir.listFiles();
+            if (pdfs != null) {
+                for (File pdf : pdfs) {
+                    if (!pdf.delete()) {
+                        Logger.debug("Could not delete %s", pdf);
+                    }
+                }
+            }
+
+            if (!pdfDir.delete()) {
+                Logger.debug("Could not delete %s", pdfDir);
+            }
+        }
+    }
+
+    private Result run(String category, File[] emls, File pdf) {
+        for (int i = 0; i < warmupRuns; i++) {
+            for (File eml : emls) {
+                convert(eml, pdf);
+            }
+        }
+
+        // the peak of one category must not include the garbage of the previous one
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+
+        long[] nanos = new long[runs * emls.length];
+        int failures = 0;
+        int n = 0;
+        for (int i = 0; i < runs; i++) {
+            for (File eml : emls) {
+                long start = System.nanoTime();
+                if (!convert(eml, pdf)) {
+                    failures++;
+                }
+                nanos[n++] = System.nanoTime() - start;
+            }
+        }
+
+        // the pools peak at different times, so the sum is an upper bound of the peak heap
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peakHeap += pool.getPeakUsage().getUsed();
+        }
+
+        Arrays.sort(nanos);
+        return new Result(category, nanos.length, failures, percentile(nanos, 50), percentile(nanos, 90),
+                percentile(nanos, 99), nanos.length > 0 ? toMillis(nanos[nanos.length - 1]) : 0, peakHeap / 1024.0 / 1024.0);
+    }
+
+    /**
+     * @return true if the email was converted
+     */
+    private boolean convert(File eml, File pdf) {
+        try {
+            converter.convert(new ConversionRequest(eml.getPath(), pdf.getPath()));
+            return true;
+        } catch (Exception e) {
+            // broken emails are part of the corpus, their failures are counted and not fatal
+            Logger.debug("Could not convert %s: %s", eml, Throwables.getStackTraceAsString(e));
+            return false;
+        }
+    }
+
+    /**
+     * Nearest rank percentile.
+     *
+     * @param sortedNanos ascending latencies in nanoseconds
+     * @param percentile  percentile between 0 and 100
+     * @return the latency in milliseconds, 0 if there are no latencies
+     */
+    static double percentile(long[] sortedNanos, int percentile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+
+        int rank = (int) Math.ceil(percentile / 100.0 * sortedNanos.length);
+        return toMillis(sortedNanos[Math.max(rank, 1) - 1]);
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1000000.0;
+    }
+
+    static void printTable(List<Result> results, Map<String, Result> baseline, PrintStream out) {
+        out.println(String.format("%-22s %6s %6s %10s %10s %10s %10s %10s", "category", "runs", "failed", "p50 ms", "p90 ms", "p99 ms", "max ms", "heap MiB"));
+
+        for (Result result : results) {
+            out.println(String.format(Locale.ROOT, "%-22s %6d %6d %10.1f %10.1f %10.1f %10.1f %10.1f", result.category, result.conversions,
+                    result.failures, result.p50, result.p90, result.p99, result.max, result.peakHeapMiB));
+
+            Result previous = baseline != null ? baseline.get(result.category) : null;
+            if (previous != null) {
+                out.println(String.format("%-22s %6s %6s %10s %10s %10s %10s %10s", "  vs. baseline", "", "",
+                        change(result.p50, previous.p50), change(result.p90, previous.p90), change(result.p99, previous.p99),
+                        change(result.max, previous.max), change(result.peakHeapMiB, previous.peakHeapMiB)));
+            }
+        }
+    }
+
+    private static String change(double value, double baseline) {
+        if (baseline == 0) {
+            return "";
+        }
+
+        return String.format(Locale.ROOT, "%+.1f%%", (value - baseline) / baseline * 100);
+    }
+
+    static void writeCsv(List<Result> results, File file) throws IOException {
+        StringBuilder sb = new StringBuilder(CSV_HEADER).append('\n');
+        for (Result result : results) {
+            sb.append(result.toCsv()).append('\n');
+        }
+
+        Files.asCharSink(file, StandardCharsets.UTF_8).write(sb);
+    }
+
+    static Map<String, Result> readCsv(File file) throws IOException {
+        Map<String, Result> results = new HashMap<>();
+
+        List<String> lines = Files.asCharSource(file, StandardCharsets.UTF_8).readLines();
+        for (String line : lines.subList(Math.min(1, lines.size()), lines.size())) {
+            if (!line.isEmpty()) {
+                Result result = Result.fromCsv(line);
+                results.put(result.category, result);
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Measurements of one category.
+     */
+    static final class Result {
+        private final String category;
+        private final int conversions;
+        private final int failures;
+        private final double p50;
+        private final double p90;
+        private final double p99;
+        private final double max;
+        private final double peakHeapMiB;
+
+        Result(String category, int conversions, int failures, double p50, double p90, double p99, double max, double peakHeapMiB) {
+            this.category = category;
+            this.conversions = conversions;
+            this.failures = failures;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.max = max;
+            this.peakHeapMiB = peakHeapMiB;
+        }
+
+        int getFailures() {
+            return failures;
+        }
+
+        double getP50() {
+            return p50;
+        }
+
+        String toCsv() {
+            return category + "," + conversions + "," + failures + "," + Joiner.on(',').join(
+                    format(p50), format(p90), format(p99), format(max), format(peakHeapMiB));
+        }
+
+        static Result fromCsv(String line) {
+            String[] fields = line.split(",");
+            if (fields.length != 8) {
+                throw new IllegalArgumentException("Invalid benchmark result: " + line);
+            }
+
+            return new Result(fields[0], Integer.parseInt(fields[1]), Integer.parseInt(fields[2]), Double.parseDouble(fields[3]),
+                    Double.parseDouble(fields[4]), Double.parseDouble(fields[5]), Double.parseDouble(fields[6]), Double.parseDouble(fields[7]));
+        }
+
+        private static String format(double value) {
+            return String.format(Locale.ROOT, "%.3f", value);
+        }
+    }
+}
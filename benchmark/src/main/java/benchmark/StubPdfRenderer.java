@@ -0,0 +1,39 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package benchmark;
+
+import com.google.common.io.ByteStreams;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import mimeparser.HtmlSource;
+import mimeparser.PdfRenderer;
+
+/**
+ * Renderer that only consumes the html and writes an empty pdf. It takes wkhtmltopdf out of the measurements, which
+ * would otherwise dominate them and hide regressions of the parsing and the html generation.
+ *
+ * @author Nick Russler
+ */
+public class StubPdfRenderer implements PdfRenderer {
+    private static final byte[] EMPTY_PDF = "%PDF-1.4\n%%EOF\n".getBytes(StandardCharsets.US_ASCII);
+
+    @Override
+    public void render(HtmlSource html, OutputStream pdf) throws Exception {
+        html.writeTo(ByteStreams.nullOutputStream());
+        pdf.write(EMPTY_PDF);
+    }
+}
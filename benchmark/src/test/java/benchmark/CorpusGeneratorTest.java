@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package benchmark;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+/**
+ * TestClass.
+ *
+ * @author Nick Russler
+ */
+public class CorpusGeneratorTest {
+    private static String write(CorpusGenerator generator, CorpusGenerator.Category category, int index) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        generator.write(category, index, out);
+
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void write_sameEmailsForTheSameSeed() throws Exception {
+        for (CorpusGenerator.Category category : CorpusGenerator.Category.values()) {
+            String email = write(new CorpusGenerator(7, 0.001), category, 3);
+
+            assertThat(write(new CorpusGenerator(7, 0.001), category, 3), equalTo(email));
+            assertThat(write(new CorpusGenerator(8, 0.001), category, 3), not(equalTo(email)));
+            assertThat(write(new CorpusGenerator(7, 0.001), category, 4), not(equalTo(email)));
+        }
+    }
+
+    @Test
+    public void write_scalesTheCategories() throws Exception {
+        CorpusGenerator generator = new CorpusGenerator(1, 0.01);
+
+        String manyParts = write(generator, CorpusGenerator.Category.MANY_PARTS, 0);
+        assertThat(manyParts.split("\r\n------=_Part_0\r\n", -1).length - 1, equalTo(5));
+
+        String manyRecipients = write(generator, CorpusGenerator.Category.MANY_RECIPIENTS, 0);
+        assertThat(manyRecipients, containsString("<user99@example2.com>\r\n"));
+        assertThat(manyRecipients, not(containsString("<user100@")));
+
+        int imageSize = write(generator, CorpusGenerator.Category.LARGE_INLINE_IMAGE, 0).getBytes(StandardCharsets.UTF_8).length;
+        int textSize = write(generator, CorpusGenerator.Category.LARGE_PLAIN_TEXT, 0).getBytes(StandardCharsets.UTF_8).length;
+        assertThat(imageSize / (512 * 1024), equalTo(1));
+        assertThat(textSize / (200 * 1024), equalTo(1));
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package benchmark;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import com.google.common.io.Files;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+/**
+ * TestClass.
+ *
+ * @author Nick Russler
+ */
+public class MacroBenchmarkTest {
+    @Test
+    public void percentile_nearestRank() {
+        long[] nanos = new long[100];
+        for (int i = 0; i < nanos.length; i++) {
+            nanos[i] = (i + 1) * 1000000L;
+        }
+
+        assertThat(MacroBenchmark.percentile(nanos, 50), equalTo(50.0));
+        assertThat(MacroBenchmark.percentile(nanos, 99), equalTo(99.0));
+        assertThat(MacroBenchmark.percentile(new long[] {3000000}, 90), equalTo(3.0));
+        assertThat(MacroBenchmark.percentile(new long[0], 50), equalTo(0.0));
+    }
+
+    @Test
+    public void writeCsv_readableAsBaseline() throws Exception {
+        File csv = new File(Files.createTempDir(), "results.csv");
+        List<MacroBenchmark.Result> results = Arrays.asList(
+                new MacroBenchmark.Result("many-parts", 15, 1, 12.5, 20, 31.25, 40, 256.5),
+                new MacroBenchmark.Result("large-plain-text", 15, 0, 100, 120, 130, 140, 900));
+
+        MacroBenchmark.writeCsv(results, csv);
+        Map<String, MacroBenchmark.Result> baseline = MacroBenchmark.readCsv(csv);
+
+        assertThat(Files.asCharSource(csv, StandardCharsets.UTF_8).readFirstLine(), equalTo(MacroBenchmark.CSV_HEADER));
+        assertThat(baseline.size(), equalTo(2));
+        assertThat(baseline.get("many-parts").toCsv(), equalTo(results.get(0).toCsv()));
+        assertThat(baseline.get("many-parts").getFailures(), equalTo(1));
+        assertThat(baseline.get("large-plain-text").getP50(), equalTo(100.0));
+    }
+}
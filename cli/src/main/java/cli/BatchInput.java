@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cli;
+
+import static com.google.common.io.Files.getNameWithoutExtension;
+
+import com.google.common.io.Files;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import mimeparser.ConversionRequest;
+import mimeparser.MessageFormats;
+
+/**
+ * An email of a batch conversion together with its path relative to the input it was found in.
+ *
+ * @author Nick Russler
+ */
+public final class BatchInput {
+    private final File emailFile;
+    private final String relativePath;
+
+    BatchInput(File emailFile, String relativePath) {
+        this.emailFile = emailFile;
+        this.relativePath = relativePath;
+    }
+
+    /**
+     * Collect the emails of the given inputs. Directories are searched recursively for eml and msg files, the relative
+     * path of those emails starts at the directory. The relative path of a file input is its path as given.
+     *
+     * The relative path identifies an email in the output directory, the shards, the journal and the duplicate index,
+     * so it must be unique.
+     *
+     * @param paths email files or directories
+     * @return the emails sorted by their relative path
+     * @throws IllegalArgumentException if two emails have the same relative path
+     */
+    public static List<BatchInput> collect(List<String> paths) {
+        return collect(paths, null);
+    }
+
+    /**
+     * Collect the emails of the given inputs, relative inputs are opened in the given directory. The relative paths
+     * do not depend on the directory, so a daemon call finds the same relative paths as a call in its own process.
+     *
+     * @param paths   email files or directories
+     * @param baseDir directory the relative inputs are resolved against, or null for the working directory
+     * @return the emails sorted by their relative path
+     * @throws IllegalArgumentException if two emails have the same relative path
+     */
+    public static List<BatchInput> collect(List<String> paths, File baseDir) {
+        List<BatchInput> result = new ArrayList<>();
+
+        for (String path : paths) {
+            File input = new File(path);
+            if (baseDir != null && !input.isAbsolute()) {
+                input = new File(baseDir, path);
+            }
+
+            if (!input.isDirectory()) {
+                result.add(new BatchInput(input, normalize(path)));
+                continue;
+            }
+
+            String root = input.getAbsoluteFile().toURI().getPath();
+            for (File f : Files.fileTraverser().depthFirstPreOrder(input.getAbsoluteFile())) {
+                if (f.isFile() && isEmailFile(f)) {
+                    result.add(new BatchInput(f, f.toURI().getPath().substring(root.length())));
+                }
+            }
+        }
+
+        Collections.sort(result, new Comparator<BatchInput>() {
+            @Override
+            public int compare(BatchInput a, BatchInput b) {
+                return a.relativePath.compareTo(b.relativePath);
+            }
+        });
+
+        for (int i = 1; i < result.size(); i++) {
+            if (result.get(i).relativePath.equals(result.get(i - 1).relativePath)) {
+                throw new IllegalArgumentException(String.format("%s and %s have the same relative path %s, convert them separately",
+                        result.get(i - 1).emailFile, result.get(i).emailFile, result.get(i).relativePath));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Normalize the path of a file input into a relative path. It is resolved against the output directory, so the
+     * root and leading ".." are removed.
+     */
+    static String normalize(String path) {
+        String normalized = Files.simplifyPath(path.replace(File.separatorChar, '/')).replaceFirst("^[A-Za-z]:", "");
+
+        while (normalized.startsWith("/") || normalized.startsWith("../")) {
+            normalized = normalized.substring(normalized.indexOf('/') + 1);
+        }
+
+        return normalized;
+    }
+
+    private static boolean isEmailFile(File f) {
+        return MessageFormats.isSupported(f.getName());
+    }
+
+    public File getEmailFile() {
+        return emailFile;
+    }
+
+    /**
+     * @return the relative path with '/' as separator on every platform
+     */
+    public String getRelativePath() {
+        return relativePath;
+    }
+
+    /**
+     * @param outputDir directory the relative path is resolved against, or null to place the pdf alongside the email
+     * @return path of the pdf
+     */
+    public String getPdfOutputPath(String outputDir) {
+        if (outputDir == null) {
+            return ConversionRequest.getDefaultPdfOutputPath(emailFile.getPath());
+        }
+
+        int nameStart = relativePath.lastIndexOf('/') + 1;
+        String pdfName = getNameWithoutExtension(relativePath.substring(nameStart)) + ".pdf";
+
+        return new File(new File(outputDir, relativePath.substring(0, nameStart)), pdfName).getPath();
+    }
+
+    @Override
+    public String toString() {
+        return relativePath;
+    }
+}
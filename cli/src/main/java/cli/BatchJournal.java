@@ -0,0 +1,332 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cli;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import util.Logger;
+
+/**
+ * Append-only journal of a batch conversion, used to resume the batch after a crash.
+ *
+ * Every state change of an input is appended as a line "crc32 TAB state TAB key". Records are group-committed: a
+ * single commit thread writes all records that were appended since its last commit and syncs them to disk with one
+ * fsync, so many records share the cost of one fsync. A torn or corrupted tail, as left by a crash, fails the
+ * checksum and is cut off when the journal is opened again.
+ *
+ * @author Nick Russler
+ */
+public final class BatchJournal implements Closeable {
+    /**
+     * State of an input in the journal.
+     */
+    public enum State {
+        ENQUEUED, STARTED, DONE, FAILED
+    }
+
+    private final FileChannel channel;
+    private final Map<String, State> states;
+
+    private final Object lock = new Object();
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long appendedRecords = 0;
+    private long durableRecords = 0;
+    private long commits = 0;
+    private boolean closed = false;
+    private IOException failure;
+
+    private final Thread committer;
+
+    private BatchJournal(FileChannel channel, Map<String, State> states) {
+        this.channel = channel;
+        this.states = Collections.unmodifiableMap(states);
+
+        this.committer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                commitLoop();
+            }
+        }, "batch-journal-commit");
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+
+    /**
+     * Open the journal, an existing journal is replayed and appended to.
+     *
+     * @param file journal file
+     * @return the journal
+     * @throws IOException
+     */
+    public static BatchJournal open(File file) throws IOException {
+        Map<String, State> states = new HashMap<>();
+        long validLength = 0;
+
+        if (file.isFile()) {
+            validLength = replay(file, states);
+        }
+
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() > validLength) {
+                Logger.error("Journal %s has a corrupted tail of %d bytes, it is cut off", file, channel.size() - validLength);
+                channel.truncate(validLength);
+            }
+            channel.position(validLength);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        return new BatchJournal(channel, states);
+    }
+
+    /**
+     * @return the last state of every input as found in the journal when it was opened
+     */
+    public Map<String, State> getReplayedStates() {
+        return states;
+    }
+
+    /**
+     * Record that the inputs are about to be converted, returns when the records are on disk.
+     */
+    public void enqueued(Collection<String> keys) throws IOException {
+        long record = 0;
+        for (String key : keys) {
+            record = append(State.ENQUEUED, key);
+        }
+
+        awaitDurable(record);
+    }
+
+    /**
+     * Record that the conversion of an input started. This does not wait for the record to be on disk, an input whose
+     * start got lost is still enqueued and is converted again on resume.
+     */
+    public void started(String key) throws IOException {
+        append(State.STARTED, key);
+    }
+
+    /**
+     * Record that an input was converted, returns when the record is on disk.
+     */
+    public void done(String key) throws IOException {
+        awaitDurable(append(State.DONE, key));
+    }
+
+    /**
+     * Record that the conversion of an input failed, returns when the record is on disk.
+     */
+    public void failed(String key) throws IOException {
+        awaitDurable(append(State.FAILED, key));
+    }
+
+    /**
+     * Commit the pending records and close the journal.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing the journal");
+        } finally {
+            channel.close();
+        }
+
+        Logger.debug("Journal wrote %d records with %d commits", durableRecords, commits);
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private long append(State state, String key) throws IOException {
+        byte[] line = toLine(state, key);
+
+        synchronized (lock) {
+            if (failure != null) {
+                throw failure;
+            }
+            if (closed) {
+                throw new IOException("Journal is closed");
+            }
+
+            pending.write(line, 0, line.length);
+            appendedRecords++;
+            lock.notifyAll();
+
+            return appendedRecords;
+        }
+    }
+
+    private void awaitDurable(long record) throws IOException {
+        synchronized (lock) {
+            while (durableRecords < record && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the journal");
+                }
+            }
+
+            if (durableRecords < record) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Write and sync everything that was appended while the previous commit was running.
+     */
+    private void commitLoop() {
+        while (true) {
+            byte[] batch;
+            long batchRecords;
+
+            synchronized (lock) {
+                while (pending.size() == 0 && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        // closing the journal is the only way to stop the commit thread
+                    }
+                }
+
+                if (pending.size() == 0) {
+                    return;
+                }
+
+                batch = pending.toByteArray();
+                batchRecords = appendedRecords;
+                pending.reset();
+            }
+
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(batch);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            }
+
+            synchronized (lock) {
+                durableRecords = batchRecords;
+                commits++;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private static byte[] toLine(State state, String key) {
+        String record = state.name() + "\t" + ShardManifest.escape(key);
+        return (checksum(record) + "\t" + record + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String checksum(String record) {
+        CRC32 crc = new CRC32();
+        crc.update(record.getBytes(StandardCharsets.UTF_8));
+        return String.format("%08x", crc.getValue());
+    }
+
+    /**
+     * Read the valid records of the journal.
+     *
+     * @return length of the valid part of the journal
+     */
+    private static long replay(File file, Map<String, State> states) throws IOException {
+        long validLength = 0;
+        long offset = 0;
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            int b;
+            while ((b = in.read()) != -1) {
+                offset++;
+
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+
+                if (!applyRecord(new String(line.toByteArray(), StandardCharsets.UTF_8), states)) {
+                    // nothing after a corrupted record can be trusted
+                    break;
+                }
+
+                validLength = offset;
+                line.reset();
+            }
+        }
+
+        return validLength;
+    }
+
+    private static boolean applyRecord(String line, Map<String, State> states) {
+        int tab = line.indexOf('\t');
+        if (tab < 0) {
+            return false;
+        }
+
+        String record = line.substring(tab + 1);
+        if (!line.substring(0, tab).equals(checksum(record))) {
+            return false;
+        }
+
+        int stateEnd = record.indexOf('\t');
+        if (stateEnd < 0) {
+            return false;
+        }
+
+        try {
+            states.put(ShardManifest.unescape(record.substring(stateEnd + 1)), State.valueOf(record.substring(0, stateEnd)));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+
+        return true;
+    }
+}
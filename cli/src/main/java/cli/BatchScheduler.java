@@ -0,0 +1,238 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cli;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import util.Logger;
+import util.VirtualThreads;
+
+/**
+ * Runs the conversions of a batch on multiple workers, largest first (LPT scheduling). Starting the expensive emails
+ * first keeps a few huge emails from starting late and dominating the total runtime (the makespan).
+ *
+ * The cost of an email is estimated from its file size, the inputs are only stat'ed before the first conversion starts.
+ *
+ * With virtual threads every conversion gets its own thread right away and the converter limits how many parse and
+ * render at the same time, the largest emails still arrive first at those limits.
+ *
+ * @author Nick Russler
+ */
+public final class BatchScheduler {
+    // every conversion starts a renderer process, which costs about as much as converting this many bytes
+    static final long FIXED_COST = 256 * 1024;
+
+    private final int workers;
+    private final boolean virtualThreads;
+
+    /**
+     * Conversion of a single input of the batch.
+     */
+    public interface BatchTask {
+        void run(BatchInput input) throws Exception;
+    }
+
+    /**
+     * @param workers number of concurrent conversions
+     */
+    public BatchScheduler(int workers) {
+        this(workers, false);
+    }
+
+    /**
+     * @param workers        number of concurrent conversions, with virtual threads the number of concurrent renders
+     * @param virtualThreads start every conversion on its own virtual thread
+     */
+    public BatchScheduler(int workers, boolean virtualThreads) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("At least one worker is needed");
+        }
+
+        this.workers = workers;
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Run the task for every input and wait until all are finished.
+     *
+     * @param inputs inputs of the batch
+     * @param task   conversion of one input, it is executed concurrently by the workers
+     * @throws Exception the first exception thrown by a task, after all other tasks finished
+     */
+    public void run(List<BatchInput> inputs, final BatchTask task) throws Exception {
+        // a single worker processes the inputs in order, there is nothing to balance
+        if (workers == 1 && !virtualThreads) {
+            for (BatchInput input : inputs) {
+                task.run(input);
+            }
+            return;
+        }
+
+        final List<Job> jobs = new ArrayList<>();
+        for (BatchInput input : inputs) {
+            jobs.add(new Job(input, estimateCost(input.getEmailFile())));
+        }
+
+        Collections.sort(jobs, new Comparator<Job>() {
+            @Override
+            public int compare(Job a, Job b) {
+                return Long.compare(b.cost, a.cost);
+            }
+        });
+
+        long[] costs = new long[jobs.size()];
+        for (int i = 0; i < costs.length; i++) {
+            costs[i] = jobs.get(i).cost;
+        }
+
+        final double predictedImbalance = predictImbalance(costs, workers);
+        Logger.info("Predicted makespan of %d emails with %d workers: %.2f times the average load", jobs.size(), workers, predictedImbalance);
+
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final AtomicLong busyNanos = new AtomicLong();
+        final AtomicLong longestNanos = new AtomicLong();
+
+        ExecutorService pool = virtualThreads ? VirtualThreads.newVirtualThreadPerTaskExecutor(workers) : Executors.newFixedThreadPool(workers);
+        long start = System.nanoTime();
+
+        try {
+            // the queue of the pool hands out the jobs in order, so every free worker takes the largest remaining job
+            for (final Job job : jobs) {
+                pool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        long jobStart = System.nanoTime();
+                        try {
+                            task.run(job.input);
+                        } catch (Exception e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            long nanos = System.nanoTime() - jobStart;
+                            busyNanos.addAndGet(nanos);
+                            updateMax(longestNanos, nanos);
+                        }
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+            while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                Logger.debug("Waiting for the conversions to finish");
+            }
+        }
+
+        long actualNanos = System.nanoTime() - start;
+        reportMakespan(predictedImbalance, busyNanos.get(), longestNanos.get(), actualNanos);
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    /**
+     * Compare the actual makespan with the prediction made before the dispatch. Both are relative to the average load
+     * of a worker, so the prediction needs no calibration of the cost units.
+     */
+    private void reportMakespan(double predictedImbalance, long busyNanos, long longestNanos, long actualNanos) {
+        if (busyNanos == 0) {
+            return;
+        }
+
+        double averageLoad = (double) busyNanos / workers;
+        double lowerBound = Math.max(averageLoad, longestNanos);
+
+        Logger.info("Makespan with %d workers: actual %.1fs, %.2f times the average load (predicted %.2f), lower bound %.1fs",
+                workers, actualNanos / 1e9, actualNanos / averageLoad, predictedImbalance, lowerBound / 1e9);
+    }
+
+    /**
+     * Predict the makespan of the LPT schedule relative to the average load of a worker, 1 is a perfect balance.
+     *
+     * @param costs   costs of the jobs in the order they are dispatched
+     * @param workers number of workers
+     * @return makespan divided by the average load, 1 if there are no costs
+     */
+    static double predictImbalance(long[] costs, int workers) {
+        long totalCost = 0;
+        for (long cost : costs) {
+            totalCost += cost;
+        }
+
+        if (totalCost == 0) {
+            return 1;
+        }
+
+        return predictMakespan(costs, workers) / ((double) totalCost / workers);
+    }
+
+    /**
+     * Simulate the LPT schedule: every job is assigned to the worker that becomes free first.
+     *
+     * @param costs   costs of the jobs in the order they are dispatched
+     * @param workers number of workers
+     * @return the makespan in cost units
+     */
+    static long predictMakespan(long[] costs, int workers) {
+        PriorityQueue<Long> loads = new PriorityQueue<>();
+        for (int i = 0; i < workers; i++) {
+            loads.add(0L);
+        }
+
+        long makespan = 0;
+        for (long cost : costs) {
+            long load = loads.poll() + cost;
+            loads.add(load);
+            makespan = Math.max(makespan, load);
+        }
+
+        return makespan;
+    }
+
+    /**
+     * Estimate the cost of converting the email from its size. The size already contains the attachments and is known
+     * without reading the email.
+     */
+    static long estimateCost(File emailFile) {
+        return FIXED_COST + emailFile.length();
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // retry
+        }
+    }
+
+    private static final class Job {
+        private final BatchInput input;
+        private final long cost;
+
+        Job(BatchInput input, long cost) {
+            this.input = input;
+            this.cost = cost;
+        }
+    }
+}
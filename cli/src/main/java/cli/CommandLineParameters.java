@@ -0,0 +1,536 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cli;
+
+import com.beust.jcommander.Parameter;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JavaBean which holds the CLI params.
+ *
+ * @author Nick Russler
+ */
+public class CommandLineParameters {
+    @Parameter(description = "<email-file or directory>...", variableArity = true)
+    private List<String> files = new ArrayList<>();
+
+    @Parameter(
+            names = {"-o", "--output-filepath"}, description = "Filepath of the produced PDF document. If this option is ommited the PDF will be placed alongside the email File.")
+    private String output;
+
+    @Parameter(
+            names = {"-p", "--proxy"}, description = "Proxy (e.g. \"http://10.64.1.74:81\"). If \"auto\" is supplied the default system proxy will be used.")
+    private String proxy;
+
+    @Parameter(
+            names = {"-d", "--debug"}, description = "Debug mode")
+    private boolean debug = false;
+
+    @Parameter(
+            names = {"-e", "--error"}, description = "Display only Error messages.")
+    private boolean error = false;
+
+    @Parameter(
+            names = {"-q", "--quiet"}, description = "Do not display any messages at all.")
+    private boolean quiet = false;
+
+    @Parameter(
+            names = {"-?", "--help"}, description = "Print this help.", help = true)
+    private boolean help;
+
+    @Parameter(
+            names = {"-v", "--version"}, description = "Print the version number.")
+    private boolean version;
+
+    @Parameter(
+            names = {"-hh", "--hide-headers"}, description = "Do not add email headers (subject, from, etc.) at the beginning of the PDF document.")
+    private boolean hideHeaders = false;
+
+    @Parameter(
+            names = {"-aa", "--add-attachment-names"}, description = "Add the list of attachment names under the body text")
+    private boolean addAttachmentNames = false;
+
+    @Parameter(
+            names = {"-a", "--extract-attachments"}, description = "Extract Attachments.")
+    private boolean extractAttachments = false;
+
+    @Parameter(
+            names = {"-ad", "--extract-attachments-directory"}, description = "Extract Attachments to this Directory, if this option is not present the directory is besides the pdf as \"<pdf-name>-attachments\".")
+    private String extractAttachmentsDir;
+
+    @Parameter(
+            names = {"-gui", "--show-graphical-user-interface"}, description = "Show graphical user interface (other parameters are ignored when using this switch).")
+    private boolean gui;
+
+    @Parameter(
+            names = {"-s", "--page-size"}, description = "Set wkhtmltopdf paper size to: A4, Letter, etc. (default A4)")
+    private String pageSize = "A4";
+
+    @Parameter(
+            names = {"-r", "--dpi"}, description = "Set wkhtmltopdf DPI. (default 300)")
+    private String dpi = "300";
+
+    @Parameter(
+            names = {"-od", "--output-directory"}, description = "Directory the PDF documents of multiple emails are written to, mirroring the paths of the emails relative to their input. If this option is ommited the PDFs are placed alongside the email Files.")
+    private String outputDirectory;
+
+    @Parameter(
+            names = {"--shard"}, description = "Only convert the share i/N (e.g. 2/8) of the given emails and write a completion manifest, so N workers can convert the same inputs in parallel.")
+    private String shard;
+
+    @Parameter(
+            names = {"--manifest-directory"}, description = "Directory of the shard manifests, shared by all workers. (default output directory or working directory)")
+    private String manifestDirectory;
+
+    @Parameter(
+            names = {"--merge-shards"}, description = "Do not convert, verify with the shard manifests that every given email was converted exactly once and write a merged manifest.")
+    private boolean mergeShards = false;
+
+    @Parameter(
+            names = {"--metadata"}, description = "Do not convert, write the Message-ID, From, To, Cc, Subject, Date, size and attachment names of the emails to this file. The bodies are not decoded. Files ending with .ndjson or .jsonl get a json object per line, other files csv.")
+    private String metadata;
+
+    @Parameter(
+            names = {"-t", "--threads"}, description = "Number of emails that are converted in parallel when converting multiple emails, the largest emails are started first. (default 1)")
+    private int threads = 1;
+
+    @Parameter(
+            names = {"--virtual-threads"}, description = "Start every email of multiple emails on its own virtual thread (Java 21 or newer), the renderer processes and the parsing are limited separately.")
+    private boolean virtualThreads = false;
+
+    @Parameter(
+            names = {"--max-renderers"}, description = "Maximum number of renderer processes that run at the same time. (default number of processors when using virtual threads, otherwise unlimited)")
+    private int maxRenderers = 0;
+
+    @Parameter(
+            names = {"--max-parsers"}, description = "Maximum number of emails that are parsed at the same time. (default number of processors when using virtual threads, otherwise unlimited)")
+    private int maxParsers = 0;
+
+    @Parameter(
+            names = {"--memory-budget"}, description = "Memory in MiB that parallel conversions may use together, conversions wait while it is exhausted. (default 75% of the heap or container limit when converting in parallel)")
+    private int memoryBudget = 0;
+
+    @Parameter(
+            names = {"--journal"}, description = "Journal file of a conversion of multiple emails. If the journal exists the conversion resumes where it stopped, emails that were interrupted are converted again.")
+    private String journal;
+
+    @Parameter(
+            names = {"--dedup"}, description = "Directory of a duplicate index shared by successive runs. Emails with the Message-ID, headers and body of an email that was already converted are skipped and listed in duplicates.tsv of the directory.")
+    private String dedup;
+
+    @Parameter(
+            names = {"--render-cache"}, description = "Directory of a cache of rendered pdfs shared by successive runs. Emails with the same html and renderer settings, e.g. notifications with hidden headers, are rendered only once.")
+    private String renderCache;
+
+    @Parameter(
+            names = {"--render-cache-size"}, description = "Size limit of the render cache in MiB, the least recently used pdfs are removed first. (default 1024)")
+    private int renderCacheSize = 1024;
+
+    @Parameter(
+            names = {"--render-cache-links"}, description = "Hard link pdfs from the render cache instead of copying them. The pdfs then share their content with the cache and must not be modified in place.")
+    private boolean renderCacheLinks = false;
+
+    @Parameter(
+            names = {"--progress"}, description = "Show a progress line with the throughput and the estimated remaining time on stderr.")
+    private boolean progress = false;
+
+    @Parameter(
+            names = {"--progress-json"}, description = "Write every conversion event and the progress as a json object per line (NDJSON) to stderr, where it is mixed with the error messages.")
+    private boolean progressJson = false;
+
+    @Parameter(
+            names = {"--progress-json-file"}, description = "Write the NDJSON events to this file instead of stderr, e.g. a named pipe or /dev/fd/3.")
+    private String progressJsonFile;
+
+    @Parameter(
+            names = {"-b", "--bundle"}, description = "Convert all given emails and the emails of the given directories into a single PDF document, every email starts on a new page. If no output filepath is given the PDF is placed alongside the first email File.")
+    private boolean bundle = false;
+
+    @Parameter(
+            names = {"-bg", "--bundle-grouping"}, description = "Group the emails of a bundle in the PDF outline by: none, folder or thread (default none)")
+    private String bundleGrouping = "none";
+
+    @Parameter(
+            names = {"--daemon"}, description = "Keep a converter running in the background. Later calls are forwarded to it automatically and save the startup time of the JVM.")
+    private boolean daemon = false;
+
+    @Parameter(
+            names = {"--no-daemon"}, description = "Convert in this process, even if a daemon is running.")
+    private boolean noDaemon = false;
+
+    @Parameter(
+            names = {"--daemon-file"}, description = "File the daemon writes its port and access token to. (default ~/.emailconverter/daemon)")
+    private String daemonFile;
+
+    // working directory of a daemon client, the files are resolved against it only when they are opened
+    private File workingDir;
+
+    /**
+     * @return the files as given on the command line, their paths identify the emails of a batch
+     */
+    public List<String> getFiles() {
+        return files;
+    }
+
+    /**
+     * @return the files resolved against the working directory of the client, the files as given if the command line
+     * runs in its own process
+     */
+    public List<String> getResolvedFiles() {
+        List<String> resolvedFiles = new ArrayList<>();
+        for (String file : files) {
+            resolvedFiles.add(resolve(workingDir, file));
+        }
+
+        return resolvedFiles;
+    }
+
+    /**
+     * @return working directory of the daemon client, or null if the command line runs in its own process
+     */
+    public File getWorkingDir() {
+        return workingDir;
+    }
+
+    public void setFiles(List<String> files) {
+        this.files = files;
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    public void setOutput(String output) {
+        this.output = output;
+    }
+
+    public boolean isDebug() {
+        return debug;
+    }
+
+    public void setDebug(boolean debug) {
+        this.debug = debug;
+    }
+
+    public boolean isQuiet() {
+        return quiet;
+    }
+
+    public void setQuiet(boolean quiet) {
+        this.quiet = quiet;
+    }
+
+    public boolean isHelp() {
+        return help;
+    }
+
+    public void setHelp(boolean help) {
+        this.help = help;
+    }
+
+    public boolean isError() {
+        return error;
+    }
+
+    public void setError(boolean error) {
+        this.error = error;
+    }
+
+    public String getProxy() {
+        return proxy;
+    }
+
+    public void setProxy(String proxy) {
+        this.proxy = proxy;
+    }
+
+    public boolean isHideHeaders() {
+        return hideHeaders;
+    }
+
+    public void setHideHeaders(boolean hideHeaders) {
+        this.hideHeaders = hideHeaders;
+    }
+
+    protected boolean isAddAttachmentNames() {
+        return addAttachmentNames;
+    }
+
+    protected void setAddAttachmentNames(boolean addAttachmentNames) {
+        this.addAttachmentNames = addAttachmentNames;
+    }
+
+    public boolean isVersion() {
+        return version;
+    }
+
+    public void setVersion(boolean version) {
+        this.version = version;
+    }
+
+    public boolean isExtractAttachments() {
+        return extractAttachments;
+    }
+
+    public void setExtractAttachments(boolean extractAttachments) {
+        this.extractAttachments = extractAttachments;
+    }
+
+    public String getExtractAttachmentsDir() {
+        return extractAttachmentsDir;
+    }
+
+    public void setExtractAttachmentsDir(String extractAttachmentsDir) {
+        this.extractAttachmentsDir = extractAttachmentsDir;
+    }
+
+    public boolean isGui() {
+        return gui;
+    }
+
+    public void setGui(boolean gui) {
+        this.gui = gui;
+    }
+
+    public String getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(String pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public String getDPI() {
+        return dpi;
+    }
+
+    public void setDPI(String dpi) {
+        this.dpi = dpi;
+    }
+
+    public boolean isBundle() {
+        return bundle;
+    }
+
+    public void setBundle(boolean bundle) {
+        this.bundle = bundle;
+    }
+
+    public String getBundleGrouping() {
+        return bundleGrouping;
+    }
+
+    public void setBundleGrouping(String bundleGrouping) {
+        this.bundleGrouping = bundleGrouping;
+    }
+
+    public String getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    public void setOutputDirectory(String outputDirectory) {
+        this.outputDirectory = outputDirectory;
+    }
+
+    public String getShard() {
+        return shard;
+    }
+
+    public void setShard(String shard) {
+        this.shard = shard;
+    }
+
+    public String getManifestDirectory() {
+        return manifestDirectory;
+    }
+
+    public void setManifestDirectory(String manifestDirectory) {
+        this.manifestDirectory = manifestDirectory;
+    }
+
+    public boolean isMergeShards() {
+        return mergeShards;
+    }
+
+    public void setMergeShards(boolean mergeShards) {
+        this.mergeShards = mergeShards;
+    }
+
+    public String getDedup() {
+        return dedup;
+    }
+
+    public void setDedup(String dedup) {
+        this.dedup = dedup;
+    }
+
+    public String getRenderCache() {
+        return renderCache;
+    }
+
+    public void setRenderCache(String renderCache) {
+        this.renderCache = renderCache;
+    }
+
+    public int getRenderCacheSize() {
+        return renderCacheSize;
+    }
+
+    public void setRenderCacheSize(int renderCacheSize) {
+        this.renderCacheSize = renderCacheSize;
+    }
+
+    public boolean isRenderCacheLinks() {
+        return renderCacheLinks;
+    }
+
+    public void setRenderCacheLinks(boolean renderCacheLinks) {
+        this.renderCacheLinks = renderCacheLinks;
+    }
+
+    public String getMetadata() {
+        return metadata;
+    }
+
+    public void setMetadata(String metadata) {
+        this.metadata = metadata;
+    }
+
+    public String getJournal() {
+        return journal;
+    }
+
+    public void setJournal(String journal) {
+        this.journal = journal;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public boolean isDaemon() {
+        return daemon;
+    }
+
+    public void setDaemon(boolean daemon) {
+        this.daemon = daemon;
+    }
+
+    public boolean isNoDaemon() {
+        return noDaemon;
+    }
+
+    public void setNoDaemon(boolean noDaemon) {
+        this.noDaemon = noDaemon;
+    }
+
+    public String getDaemonFile() {
+        return daemonFile;
+    }
+
+    public void setDaemonFile(String daemonFile) {
+        this.daemonFile = daemonFile;
+    }
+
+    /**
+     * Resolve the relative paths of the parameters against the given directory, used by the daemon which runs in a
+     * different working directory than its clients. The files keep their paths, because the relative paths of the
+     * emails of a batch are derived from them, see {@link #getResolvedFiles()}.
+     */
+    void resolveRelativePaths(File baseDir) {
+        workingDir = baseDir;
+        output = resolve(baseDir, output);
+        outputDirectory = resolve(baseDir, outputDirectory);
+        extractAttachmentsDir = resolve(baseDir, extractAttachmentsDir);
+        manifestDirectory = resolve(baseDir, manifestDirectory);
+        journal = resolve(baseDir, journal);
+        metadata = resolve(baseDir, metadata);
+        dedup = resolve(baseDir, dedup);
+        renderCache = resolve(baseDir, renderCache);
+        progressJsonFile = resolve(baseDir, progressJsonFile);
+    }
+
+    private static String resolve(File baseDir, String path) {
+        if (baseDir == null || path == null || path.isEmpty() || new File(path).isAbsolute()) {
+            return path;
+        }
+
+        return new File(baseDir, path).getPath();
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public int getMaxRenderers() {
+        return maxRenderers;
+    }
+
+    public void setMaxRenderers(int maxRenderers) {
+        this.maxRenderers = maxRenderers;
+    }
+
+    public int getMaxParsers() {
+        return maxParsers;
+    }
+
+    public void setMaxParsers(int maxParsers) {
+        this.maxParsers = maxParsers;
+    }
+
+    public boolean isProgress() {
+        return progress;
+    }
+
+    public void setProgress(boolean progress) {
+        this.progress = progress;
+    }
+
+    public boolean isProgressJson() {
+        return progressJson;
+    }
+
+    public void setProgressJson(boolean progressJson) {
+        this.progressJson = progressJson;
+    }
+
+    public String getProgressJsonFile() {
+        return progressJsonFile;
+    }
+
+    public void setProgressJsonFile(String progressJsonFile) {
+        this.progressJsonFile = progressJsonFile;
+    }
+
+    public int getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public void setMemoryBudget(int memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+}
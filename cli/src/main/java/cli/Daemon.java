@@ -0,0 +1,282 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cli;
+
+import com.google.common.base.Throwables;
+import com.google.common.io.BaseEncoding;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import mimeparser.ConversionSession;
+import util.HttpUtils;
+import util.Logger;
+
+/**
+ * Keeps a warm converter running and executes the command lines that {@link DaemonClient}s forward to it.
+ *
+ * The daemon listens on a loopback TCP port, because Unix domain sockets are not available before Java 16. The port
+ * and a random access token are written to the daemon file, which only the owner can read, and every client has to
+ * present the token.
+ *
+ * Every client is served by its own thread, so the command lines run concurrently. System.out and System.err are
+ * replaced once by streams that write to the client of the calling thread, and the log level is set per call.
+ *
+ * @author Nick Russler
+ */
+final class Daemon {
+    static final int FRAME_STDOUT = 1;
+    static final int FRAME_STDERR = 2;
+    static final int FRAME_EXIT = 3;
+    // sent as soon as the command line was accepted, the client runs it itself if this frame does not arrive
+    static final int FRAME_ACCEPTED = 4;
+
+    static final String PORT_PROPERTY = "port";
+    static final String TOKEN_PROPERTY = "token";
+
+    static final int MAX_ARGS = 10000;
+
+    // a client has to send its command line right after connecting
+    private static final int REQUEST_TIMEOUT_MILLIS = 10000;
+
+    // the streams of the client that is served by the current thread, inherited by the threads of its call
+    private static final InheritableThreadLocal<OutputStream> CLIENT_OUT = new InheritableThreadLocal<>();
+    private static final InheritableThreadLocal<OutputStream> CLIENT_ERR = new InheritableThreadLocal<>();
+
+    private Daemon() {
+    }
+
+    /**
+     * Listen for clients until the process is killed.
+     *
+     * @param daemonFile file the port and the access token are written to
+     * @throws IOException if the daemon could not be started
+     */
+    static void serve(final File daemonFile) throws IOException {
+        final ConversionSession session = ConversionSession.create(HttpUtils.getDefaultProxyUrlLookup()).warmUp();
+        final String token = newToken();
+
+        System.setOut(new PrintStream(new ClientOutputStream(CLIENT_OUT, System.out), true, "UTF-8"));
+        System.setErr(new PrintStream(new ClientOutputStream(CLIENT_ERR, System.err), true, "UTF-8"));
+
+        ExecutorService clients = Executors.newCachedThreadPool();
+
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            writeDaemonFile(daemonFile, server.getLocalPort(), token);
+
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    if (!daemonFile.delete()) {
+                        daemonFile.deleteOnExit();
+                    }
+                }
+            }));
+
+            Logger.info("Daemon listens on port %d, calls are forwarded to it while %s exists", server.getLocalPort(), daemonFile);
+
+            while (true) {
+                final Socket socket = server.accept();
+
+                clients.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try (Socket s = socket) {
+                            handle(s, token, session);
+                        } catch (IOException e) {
+                            Logger.error("Could not serve a client. Error: %s", Throwables.getStackTraceAsString(e));
+                        }
+                    }
+                });
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private static void handle(Socket socket, String token, ConversionSession session) throws IOException {
+        socket.setSoTimeout(REQUEST_TIMEOUT_MILLIS);
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+        String clientToken = in.readUTF();
+        if (!MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), clientToken.getBytes(StandardCharsets.UTF_8))) {
+            Logger.error("Rejected a client with a wrong token");
+            return;
+        }
+
+        File workingDir = new File(in.readUTF());
+        int argc = in.readInt();
+        if (argc < 0 || argc > MAX_ARGS) {
+            Logger.error("Rejected a client with %d arguments", argc);
+            return;
+        }
+
+        String[] args = new String[argc];
+        for (int i = 0; i < argc; i++) {
+            args[i] = in.readUTF();
+        }
+
+        socket.setSoTimeout(0);
+
+        out.writeByte(FRAME_ACCEPTED);
+        out.flush();
+
+        OutputStream clientOut = new BufferedOutputStream(new FrameOutputStream(out, FRAME_STDOUT));
+        OutputStream clientErr = new BufferedOutputStream(new FrameOutputStream(out, FRAME_STDERR));
+
+        int status;
+        long start = System.nanoTime();
+
+        CLIENT_OUT.set(clientOut);
+        CLIENT_ERR.set(clientErr);
+        try {
+            status = Main.run(args, workingDir, session);
+        } catch (RuntimeException e) {
+            Logger.error("The email could not be converted. Error: %s", Throwables.getStackTraceAsString(e));
+            status = 1;
+        } finally {
+            System.out.flush();
+            System.err.flush();
+            CLIENT_OUT.remove();
+            CLIENT_ERR.remove();
+            Logger.setCallLevel(null);
+        }
+
+        synchronized (out) {
+            out.writeByte(FRAME_EXIT);
+            out.writeInt(status);
+            out.flush();
+        }
+
+        Logger.debug("Served %d arguments with status %d in %d ms", argc, status, (System.nanoTime() - start) / 1000000);
+    }
+
+    private static String newToken() {
+        byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+
+        return BaseEncoding.base16().lowerCase().encode(bytes);
+    }
+
+    /**
+     * Write the port and the token, the file is made private before the token is written to it.
+     */
+    private static void writeDaemonFile(File daemonFile, int port, String token) throws IOException {
+        File dir = daemonFile.getAbsoluteFile().getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+            throw new IOException("Could not create directory " + dir);
+        }
+
+        if (!daemonFile.exists() && !daemonFile.createNewFile()) {
+            throw new IOException("Could not create " + daemonFile);
+        }
+
+        boolean privateFile = daemonFile.setReadable(false, false) & daemonFile.setReadable(true, true)
+                & daemonFile.setWritable(false, false) & daemonFile.setWritable(true, true);
+        if (!privateFile) {
+            Logger.error("Could not restrict the permissions of %s to the owner", daemonFile);
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty(PORT_PROPERTY, String.valueOf(port));
+        properties.setProperty(TOKEN_PROPERTY, token);
+
+        try (OutputStream out = new FileOutputStream(daemonFile)) {
+            properties.store(out, "emailconverter daemon");
+        }
+    }
+
+    /**
+     * Writes to the stream of the client that is served by the current thread, or to the daemon stream.
+     */
+    private static final class ClientOutputStream extends OutputStream {
+        private final ThreadLocal<OutputStream> client;
+        private final OutputStream daemon;
+
+        ClientOutputStream(ThreadLocal<OutputStream> client, OutputStream daemon) {
+            this.client = client;
+            this.daemon = daemon;
+        }
+
+        private OutputStream target() {
+            OutputStream out = client.get();
+
+            return out != null ? out : daemon;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target().flush();
+        }
+    }
+
+    /**
+     * Sends everything written to it as frames of the given type.
+     */
+    private static final class FrameOutputStream extends OutputStream {
+        private final DataOutputStream out;
+        private final int type;
+
+        FrameOutputStream(DataOutputStream out, int type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            // the frames of stdout and stderr share the connection
+            synchronized (out) {
+                out.writeByte(type);
+                out.writeInt(len);
+                out.write(b, off, len);
+                out.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cli;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Properties;
+import util.Logger;
+
+/**
+ * Forwards a command line to a running {@link Daemon} and replays its output and exit status, so the caller does not
+ * notice the difference to a conversion in this process.
+ *
+ * @author Nick Russler
+ */
+final class DaemonClient {
+    private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+
+    // a daemon that does not accept the command line in time is treated like a missing one
+    private static final int HANDSHAKE_TIMEOUT_MILLIS = 5000;
+
+    private DaemonClient() {
+    }
+
+    /**
+     * @param daemonFile file the daemon wrote its port and token to
+     * @param args       command line that is executed by the daemon
+     * @return the exit status of the command line, or null if no daemon is reachable or accepts the command line and it
+     * has to be executed in this process
+     */
+    static Integer forward(File daemonFile, String[] args) {
+        if (!daemonFile.isFile()) {
+            return null;
+        }
+
+        Properties properties = new Properties();
+        int port;
+        try (InputStream in = new FileInputStream(daemonFile)) {
+            properties.load(in);
+            port = Integer.parseInt(properties.getProperty(Daemon.PORT_PROPERTY, ""));
+        } catch (IOException | NumberFormatException e) {
+            Logger.debug("Could not read the daemon file %s: %s", daemonFile, e);
+            return null;
+        }
+
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), CONNECT_TIMEOUT_MILLIS);
+        } catch (IOException e) {
+            Logger.debug("The daemon of %s is not running: %s", daemonFile, e);
+            closeQuietly(socket);
+            return null;
+        }
+
+        DataInputStream in;
+        try {
+            socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeUTF(properties.getProperty(Daemon.TOKEN_PROPERTY, ""));
+            out.writeUTF(new File("").getAbsolutePath());
+            out.writeInt(args.length);
+            for (String arg : args) {
+                out.writeUTF(arg);
+            }
+            out.flush();
+
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            int type = in.readUnsignedByte();
+            if (type != Daemon.FRAME_ACCEPTED) {
+                throw new IOException("Unexpected frame " + type);
+            }
+
+            // the conversion may take arbitrarily long once it started
+            socket.setSoTimeout(0);
+        } catch (IOException e) {
+            // nothing was executed yet, e.g. the daemon rejected the token or belongs to an older version
+            Logger.debug("The daemon of %s did not accept the command line, delete it if it belongs to an old daemon: %s", daemonFile, e);
+            closeQuietly(socket);
+            return null;
+        }
+
+        try {
+            return replay(in);
+        } catch (EOFException e) {
+            Logger.error("The daemon closed the connection before the command line finished");
+            return 1;
+        } catch (IOException e) {
+            Logger.error("The connection to the daemon was lost: %s", e);
+            return 1;
+        } finally {
+            closeQuietly(socket);
+        }
+    }
+
+    /**
+     * Copy the output frames to stdout and stderr until the exit frame arrives.
+     */
+    static int replay(DataInputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+
+        while (true) {
+            int type = in.readUnsignedByte();
+
+            if (type == Daemon.FRAME_EXIT) {
+                System.out.flush();
+                System.err.flush();
+                return in.readInt();
+            }
+
+            int length = in.readInt();
+            if (length < 0) {
+                throw new IOException("Invalid frame length " + length);
+            }
+
+            PrintStream target = type == Daemon.FRAME_STDERR ? System.err : System.out;
+            while (length > 0) {
+                int read = in.read(buffer, 0, Math.min(buffer.length, length));
+                if (read == -1) {
+                    throw new EOFException();
+                }
+
+                target.write(buffer, 0, read);
+                length -= read;
+            }
+            target.flush();
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+}
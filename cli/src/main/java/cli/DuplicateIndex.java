@@ -0,0 +1,441 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cli;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import jakarta.mail.internet.InternetHeaders;
+import jakarta.mail.internet.MimeUtility;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import mimeparser.MessageFormats;
+import util.Logger;
+
+/**
+ * Persistent index of the emails that were converted, used to skip duplicates across runs. Mailbox exports often
+ * contain the same message several times, e.g. in the inbox and the archive or in the mailboxes of several users.
+ *
+ * An email is identified by a key that hashes its Message-ID, From, Date and Subject headers and its body with
+ * normalized line breaks, so copies that only differ in transport headers like Received or Delivered-To have the
+ * same key. The key is computed from the raw bytes, before the email is decoded.
+ *
+ * The keys are held in a bloom filter that is loaded completely, and in an exact index on disk that maps every key to
+ * the pdf of its first conversion. The index is split into buckets by the first byte of the key, a bucket is only
+ * read when the bloom filter reports a possible duplicate and only the recently used buckets are kept in memory. The
+ * bloom filter is written when the index is closed, if a run crashed it is rebuilt from the exact index. Only one run
+ * at a time can use the index directory.
+ *
+ * Duplicates are listed in duplicates.tsv as "email TAB pdf of the first conversion".
+ *
+ * @author Nick Russler
+ */
+public final class DuplicateIndex implements Closeable {
+    public static final String DUPLICATES_FILE_NAME = "duplicates.tsv";
+
+    static final String BLOOM_FILE_NAME = "keys.bloom";
+    static final String INDEX_DIRECTORY_NAME = "index";
+
+    // exists while a run uses the index, so a crashed run is detected by the next one
+    static final String LOCK_FILE_NAME = "lock";
+
+    // 10 million keys need about 18 MiB, with more keys the false positive rate rises but the exact index still decides
+    private static final int EXPECTED_KEYS = 10000000;
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.001;
+
+    // of the 256 buckets, a large index would not fit into the heap
+    private static final int MAX_CACHED_BUCKETS = 16;
+
+    // headers that are the same in every copy of a message
+    private static final String[] IDENTITY_HEADERS = {"Message-ID", "From", "Date", "Subject"};
+
+    private final File directory;
+    private final BloomFilter<CharSequence> bloomFilter;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final Writer duplicatesWriter;
+
+    // recently used buckets of the exact index, key to pdf
+    private final Map<String, Map<String, String>> buckets = new LinkedHashMap<String, Map<String, String>>(MAX_CACHED_BUCKETS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Map<String, String>> eldest) {
+            // the committed keys are already on disk, an evicted bucket is simply read again
+            return size() > MAX_CACHED_BUCKETS;
+        }
+    };
+
+    // buckets whose torn last line, if any, was removed before the first commit of this run
+    private final Set<String> checkedBuckets = new HashSet<>();
+
+    // keys of emails that are being converted by this run, so parallel copies of a message are converted once
+    private final Map<String, String> claimed = new HashMap<>();
+
+    private long bloomHits = 0;
+    private long bucketReads = 0;
+    private long duplicates = 0;
+
+    private DuplicateIndex(File directory, BloomFilter<CharSequence> bloomFilter, FileChannel lockChannel, FileLock lock, Writer duplicatesWriter) {
+        this.directory = directory;
+        this.bloomFilter = bloomFilter;
+        this.lockChannel = lockChannel;
+        this.lock = lock;
+        this.duplicatesWriter = duplicatesWriter;
+    }
+
+    /**
+     * Open the index in the directory, it is created if it does not exist.
+     *
+     * @param directory index directory
+     * @return the index
+     * @throws IOException if the index can not be read or is used by another run
+     */
+    public static DuplicateIndex open(File directory) throws IOException {
+        File indexDir = new File(directory, INDEX_DIRECTORY_NAME);
+        if (!indexDir.isDirectory() && !indexDir.mkdirs() && !indexDir.isDirectory()) {
+            throw new IOException("Could not create the duplicate index directory " + indexDir);
+        }
+
+        File lockFile = new File(directory, LOCK_FILE_NAME);
+        boolean crashed = lockFile.exists();
+
+        FileChannel lockChannel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // the index is already open in this jvm
+            lock = null;
+        } catch (IOException e) {
+            lockChannel.close();
+            throw e;
+        }
+
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("The duplicate index " + directory + " is used by another run");
+        }
+
+        try {
+            File bloomFile = new File(directory, BLOOM_FILE_NAME);
+            BloomFilter<CharSequence> bloomFilter;
+
+            if (bloomFile.isFile() && !crashed) {
+                try (InputStream in = new BufferedInputStream(new FileInputStream(bloomFile))) {
+                    bloomFilter = BloomFilter.readFrom(in, Funnels.stringFunnel(StandardCharsets.UTF_8));
+                }
+            } else {
+                bloomFilter = rebuildBloomFilter(indexDir);
+            }
+
+            Writer duplicatesWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(directory, DUPLICATES_FILE_NAME), true), StandardCharsets.UTF_8));
+
+            return new DuplicateIndex(directory, bloomFilter, lockChannel, lock, duplicatesWriter);
+        } catch (IOException | RuntimeException e) {
+            lock.release();
+            lockChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Compute the key of an email from its raw bytes. Emails in the format of a plugin, e.g. msg files, are not
+     * converted for this, the key of such an email is the hash of the whole file.
+     *
+     * @param emailFile email file
+     * @return hex encoded key
+     * @throws Exception
+     */
+    public static String computeKey(File emailFile) throws Exception {
+        Hasher hasher = Hashing.sha256().newHasher();
+
+        try (InputStream in = new BufferedInputStream(new FileInputStream(emailFile))) {
+            if (MessageFormats.forFileName(emailFile.getName()) != null) {
+                ByteStreams.copy(in, Funnels.asOutputStream(hasher));
+                return hasher.hash().toString();
+            }
+
+            InternetHeaders headers = new InternetHeaders(in);
+            for (String name : IDENTITY_HEADERS) {
+                String value = headers.getHeader(name, ",");
+                hasher.putString(name, StandardCharsets.UTF_8).putByte((byte) ':');
+                if (value != null) {
+                    hasher.putString(MimeUtility.unfold(value).trim(), StandardCharsets.UTF_8);
+                }
+                hasher.putByte((byte) '\n');
+            }
+
+            putNormalizedBody(in, hasher);
+        }
+
+        return hasher.hash().toString();
+    }
+
+    /**
+     * Hash the body without carriage returns and trailing line breaks, which differ between export tools.
+     */
+    private static void putNormalizedBody(InputStream in, Hasher hasher) throws IOException {
+        byte[] buffer = new byte[8192];
+        int pendingLineBreaks = 0;
+        int n;
+
+        while ((n = in.read(buffer)) != -1) {
+            for (int i = 0; i < n; i++) {
+                byte b = buffer[i];
+                if (b == '\r') {
+                    continue;
+                }
+
+                if (b == '\n') {
+                    pendingLineBreaks++;
+                    continue;
+                }
+
+                for (; pendingLineBreaks > 0; pendingLineBreaks--) {
+                    hasher.putByte((byte) '\n');
+                }
+                hasher.putByte(b);
+            }
+        }
+    }
+
+    /**
+     * Claim the key for a conversion. If the email was converted before, by this or an earlier run, the pdf of that
+     * conversion is returned and the email should be skipped. Otherwise the key is claimed until it is committed after
+     * a successful conversion or released after a failed one. If a copy of the email is being converted, the call
+     * waits for that conversion, so a copy is only skipped if the pdf exists and is converted if the first attempt
+     * failed.
+     *
+     * @param key     key of the email
+     * @param pdfPath pdf the email is converted to
+     * @return pdf of the first conversion, or null if the email has to be converted
+     * @throws IOException
+     * @throws InterruptedException if the thread was interrupted while waiting for the conversion of a copy
+     */
+    public synchronized String claim(String key, String pdfPath) throws IOException, InterruptedException {
+        while (claimed.containsKey(key)) {
+            wait();
+        }
+
+        if (bloomFilter.mightContain(key)) {
+            bloomHits++;
+            String first = getBucket(key).get(key);
+
+            if (first != null) {
+                return first;
+            }
+        }
+
+        claimed.put(key, pdfPath);
+        return null;
+    }
+
+    /**
+     * Add the claimed key to the index after the email was converted.
+     */
+    public synchronized void commit(String key) throws IOException {
+        String pdfPath = claimed.remove(key);
+        if (pdfPath == null) {
+            throw new IllegalStateException("The key " + key + " was not claimed");
+        }
+
+        File bucketFile = getBucketFile(key);
+        if (checkedBuckets.add(bucketFile.getName())) {
+            truncateTornLine(bucketFile);
+        }
+
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(bucketFile, true), StandardCharsets.UTF_8)) {
+            writer.write(key + "\t" + ShardManifest.escape(pdfPath) + "\n");
+        }
+
+        bloomFilter.put(key);
+
+        Map<String, String> bucket = buckets.get(bucketFile.getName());
+        if (bucket != null) {
+            bucket.put(key, pdfPath);
+        }
+
+        notifyAll();
+    }
+
+    /**
+     * Release the claimed key after the conversion of the email failed, so a copy of it is converted again.
+     */
+    public synchronized void release(String key) {
+        claimed.remove(key);
+
+        // one of the waiting copies claims the key and is converted instead
+        notifyAll();
+    }
+
+    /**
+     * Record that the email was skipped because it is a duplicate.
+     *
+     * @param emailPath    the skipped email
+     * @param firstPdfPath pdf of the first conversion of the email
+     */
+    public synchronized void recordDuplicate(String emailPath, String firstPdfPath) throws IOException {
+        duplicates++;
+        duplicatesWriter.write(ShardManifest.escape(emailPath) + "\t" + ShardManifest.escape(firstPdfPath) + "\n");
+        duplicatesWriter.flush();
+    }
+
+    /**
+     * @return number of duplicates that were recorded since the index was opened
+     */
+    public synchronized long getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Write the bloom filter and release the index for the next run.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            duplicatesWriter.close();
+
+            // the bloom filter is replaced atomically, a run that crashes while writing it leaves the lock file behind
+            File bloomFile = new File(directory, BLOOM_FILE_NAME);
+            File tmpFile = new File(directory, BLOOM_FILE_NAME + ".tmp");
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tmpFile))) {
+                bloomFilter.writeTo(out);
+            }
+            Files.move(tmpFile.toPath(), bloomFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            Logger.debug("Duplicate index: %d bloom filter hits, %d duplicates, %d buckets read", bloomHits, duplicates, bucketReads);
+
+            Files.delete(new File(directory, LOCK_FILE_NAME).toPath());
+        } finally {
+            lock.release();
+            lockChannel.close();
+        }
+    }
+
+    private File getBucketFile(String key) {
+        return new File(new File(directory, INDEX_DIRECTORY_NAME), key.substring(0, 2) + ".tsv");
+    }
+
+    private Map<String, String> getBucket(String key) throws IOException {
+        File bucketFile = getBucketFile(key);
+        Map<String, String> bucket = buckets.get(bucketFile.getName());
+
+        if (bucket == null) {
+            bucket = new HashMap<>();
+            if (bucketFile.isFile()) {
+                readBucket(bucketFile, bucket);
+                bucketReads++;
+            }
+            buckets.put(bucketFile.getName(), bucket);
+        }
+
+        return bucket;
+    }
+
+    /**
+     * Cut off a last line that was torn by a crash, otherwise the next line would be appended to it.
+     */
+    private static void truncateTornLine(File bucketFile) throws IOException {
+        if (!bucketFile.isFile()) {
+            return;
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(bucketFile, "rw")) {
+            long end = file.length();
+            while (end > 0) {
+                file.seek(end - 1);
+                if (file.read() == '\n') {
+                    break;
+                }
+                end--;
+            }
+
+            if (end < file.length()) {
+                Logger.debug("Remove the torn last line of %s", bucketFile);
+                file.setLength(end);
+            }
+        }
+    }
+
+    private static void readBucket(File bucketFile, Map<String, String> bucket) throws IOException {
+        try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(bucketFile), StandardCharsets.UTF_8))) {
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = reader.read()) != -1) {
+                if (c != '\n') {
+                    line.append((char) c);
+                    continue;
+                }
+
+                int tab = line.indexOf("\t");
+                if (tab > 0) {
+                    bucket.put(line.substring(0, tab), ShardManifest.unescape(line.substring(tab + 1)));
+                }
+                line.setLength(0);
+            }
+
+            // a last line without line break was torn by a crash, its email is converted again, so it is ignored
+        }
+    }
+
+    private static BloomFilter<CharSequence> rebuildBloomFilter(File indexDir) throws IOException {
+        BloomFilter<CharSequence> bloomFilter = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), EXPECTED_KEYS, FALSE_POSITIVE_PROBABILITY);
+
+        File[] bucketFiles = indexDir.listFiles();
+        if (bucketFiles != null && bucketFiles.length > 0) {
+            Logger.info("Rebuild the bloom filter of the duplicate index from %d buckets", bucketFiles.length);
+
+            for (File bucketFile : bucketFiles) {
+                Map<String, String> bucket = new HashMap<>();
+                readBucket(bucketFile, bucket);
+
+                for (String key : bucket.keySet()) {
+                    bloomFilter.put(key);
+                }
+            }
+        }
+
+        return bloomFilter;
+    }
+}
@@ -0,0 +1,714 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cli;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.ParameterException;
+import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import mimeparser.BundleGrouping;
+import mimeparser.BundleRequest;
+import mimeparser.CachingPdfRenderer;
+import mimeparser.ConversionListener;
+import mimeparser.ConversionOptions;
+import mimeparser.ConversionRequest;
+import mimeparser.ConversionSession;
+import mimeparser.Converter;
+import mimeparser.EmailMetadata;
+import mimeparser.MemoryBudget;
+import mimeparser.PdfRenderer;
+import mimeparser.ProgressTracker;
+import mimeparser.RenderCache;
+import mimeparser.WkHtmlToPdfRenderer;
+import util.HttpUtils;
+import util.LogLevel;
+import util.Logger;
+
+/**
+ * Commandline tool to convert an email (eml, msg) to html and pdf.
+ *
+ * @author Nick Russler
+ */
+public class Main {
+    private static final String GUI_MAIN_CLASS = "gui.MainWindow";
+
+    public static void main(String[] args) {
+        exit(execute(args));
+    }
+
+    /**
+     * Execute a command line in this process or forward it to a running daemon.
+     *
+     * @param args command line
+     * @return exit status
+     */
+    static int execute(String[] args) {
+        CommandLineParameters cli = new CommandLineParameters();
+        JCommander jCmd = new JCommander(cli);
+        jCmd.setProgramName("EmailToPDFConverter");
+        jCmd.parse(args);
+
+        if (cli.isGui()) {
+            launchGui();
+            return 0;
+        }
+
+        if (cli.isHelp()) {
+            jCmd.usage();
+            return 0;
+        }
+
+        if (cli.isVersion()) {
+            System.out.println(Main.class.getPackage().getImplementationVersion());
+            return 0;
+        }
+
+        File daemonFile = getDaemonFile(cli);
+
+        if (cli.isDaemon()) {
+            try {
+                Daemon.serve(daemonFile);
+            } catch (IOException e) {
+                Logger.error("The daemon could not be started. Error: %s", Throwables.getStackTraceAsString(e));
+                return 1;
+            }
+            return 0;
+        }
+
+        // a running daemon has a warm jvm, which is much faster than starting the conversion in this one
+        if (!cli.isNoDaemon()) {
+            Integer status = DaemonClient.forward(daemonFile, args);
+            if (status != null) {
+                return status;
+            }
+        }
+
+        return run(cli, jCmd, null);
+    }
+
+    /**
+     * Execute a command line that was forwarded to the daemon.
+     *
+     * @param args       command line
+     * @param workingDir working directory of the client, relative paths are resolved against it
+     * @param session    session of the daemon
+     * @return exit status
+     */
+    static int run(String[] args, File workingDir, ConversionSession session) {
+        CommandLineParameters cli = new CommandLineParameters();
+        JCommander jCmd = new JCommander(cli);
+        jCmd.setProgramName("EmailToPDFConverter");
+
+        try {
+            jCmd.parse(args);
+        } catch (ParameterException e) {
+            Logger.error("%s", e.getMessage());
+            return 1;
+        }
+
+        if (cli.isGui() || cli.isDaemon()) {
+            Logger.error("The graphical user interface and the daemon can not be started by the daemon");
+            return 1;
+        }
+
+        if (cli.isHelp() || cli.isVersion()) {
+            Logger.error("Use --no-daemon to print the help or the version");
+            return 1;
+        }
+
+        cli.resolveRelativePaths(workingDir);
+
+        // the calls of the daemon run concurrently, every call has its own log level
+        Logger.setCallLevel(LogLevel.Info);
+
+        return run(cli, jCmd, session);
+    }
+
+    /**
+     * Convert the emails of the command line.
+     *
+     * @param session session of the run, or null to create one
+     * @return exit status
+     */
+    private static int run(CommandLineParameters cli, JCommander jCmd, ConversionSession session) {
+        // the calls of the daemon share its session
+        boolean daemonCall = session != null;
+
+        LogLevel level = Logger.getLevel();
+
+        if (cli.isDebug()) {
+            level = LogLevel.Debug;
+        }
+
+        if (cli.isError()) {
+            level = LogLevel.Error;
+        }
+
+        if (cli.isQuiet()) {
+            level = LogLevel.Quiet;
+        }
+
+        if (daemonCall) {
+            Logger.setCallLevel(level);
+        } else {
+            Logger.level = level;
+        }
+
+        if (cli.getFiles().isEmpty()) {
+            Logger.error("Please provide the path of an email (eml, msg) file.");
+            jCmd.usage();
+            return 1;
+        }
+
+        String in = cli.getResolvedFiles().get(0);
+
+        for (String file : cli.getResolvedFiles()) {
+            if (!(new File(file).exists())) {
+                Logger.error("Input email file %s could not be found!", file);
+                return 1;
+            }
+        }
+
+        if (cli.isMergeShards()) {
+            return mergeShards(cli);
+        }
+
+        Shard shard = null;
+        if (cli.getShard() != null) {
+            try {
+                shard = Shard.parse(cli.getShard());
+            } catch (IllegalArgumentException e) {
+                Logger.error("%s", e.getMessage());
+                return 1;
+            }
+        }
+
+        if (!Strings.isNullOrEmpty(cli.getMetadata())) {
+            return exportMetadata(cli, shard);
+        }
+
+        if (cli.getThreads() < 1) {
+            Logger.error("The number of threads must be at least 1");
+            return 1;
+        }
+
+        if (cli.getMaxRenderers() < 0 || cli.getMaxParsers() < 0) {
+            Logger.error("The maximum number of renderers and parsers must not be negative");
+            return 1;
+        }
+
+        if (cli.getRenderCacheSize() < 1) {
+            Logger.error("The size of the render cache must be at least 1 MiB");
+            return 1;
+        }
+
+        // multiple emails are converted each into their own pdf
+        boolean batch = !cli.isBundle() && (cli.getFiles().size() > 1 || new File(in).isDirectory() || shard != null || cli.getOutputDirectory() != null || cli.getJournal() != null || cli.getDedup() != null);
+        boolean parallel = batch && (cli.getThreads() > 1 || cli.isVirtualThreads());
+
+        if (batch && !Strings.isNullOrEmpty(cli.getOutput())) {
+            Logger.error("The output filepath can only be used for a single email, use the output directory for multiple emails.");
+            return 1;
+        }
+
+        if (cli.isBundle() && (shard != null || cli.getOutputDirectory() != null || cli.getJournal() != null || cli.getDedup() != null)) {
+            Logger.error("A bundle is a single pdf, it can not be used with a shard, the output directory, a journal or the duplicate index.");
+            return 1;
+        }
+
+        BundleGrouping bundleGrouping;
+        try {
+            bundleGrouping = BundleGrouping.valueOf(Strings.nullToEmpty(cli.getBundleGrouping()).toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            Logger.error("Unknown bundle grouping %s, use none, folder or thread", cli.getBundleGrouping());
+            return 1;
+        }
+
+        String out = cli.getOutput();
+
+        if (Strings.isNullOrEmpty(cli.getOutput())) {
+            out = ConversionRequest.getDefaultPdfOutputPath(in);
+        }
+
+        // templates, registries and the proxy are set up once for all emails of the run
+        if (session == null) {
+            try {
+                session = ConversionSession.create(HttpUtils.getDefaultProxyUrlLookup());
+            } catch (IOException e) {
+                Logger.error("The converter could not be initialized. Error: %s", Throwables.getStackTraceAsString(e));
+                return 1;
+            }
+        }
+
+        String proxy = null;
+
+        if ("auto".equalsIgnoreCase(cli.getProxy())) {
+            proxy = session.getDefaultProxyUrl();
+
+            if (proxy == null) {
+                Logger.error("Default proxy could not be determined, please specify it manually");
+                return 1;
+            }
+
+            Logger.debug("Use default proxy %s", proxy);
+        } else if (!Strings.isNullOrEmpty(cli.getProxy())) {
+            proxy = cli.getProxy();
+            Logger.debug("Use proxy from parameters %s", cli.getProxy());
+        }
+
+        // parallel conversions of large emails could exhaust the heap, so they reserve their memory up front
+        MemoryBudget memoryBudget = null;
+        if (daemonCall) {
+            // concurrent calls of the daemon would reserve the heap several times with a budget each
+            if (cli.getMemoryBudget() > 0) {
+                Logger.error("The daemon shares its memory budget between all calls, the memory budget is ignored");
+            }
+            memoryBudget = session.getMemoryBudget();
+        } else if (cli.getMemoryBudget() > 0) {
+            memoryBudget = new MemoryBudget(cli.getMemoryBudget() * 1024L * 1024L);
+        } else if (parallel) {
+            memoryBudget = MemoryBudget.createDefault();
+        }
+
+        // virtual threads start every conversion at once, so the expensive phases have to be limited
+        int maxRenderers = cli.getMaxRenderers();
+        int maxParsers = cli.getMaxParsers();
+        if (cli.isVirtualThreads()) {
+            int processors = Runtime.getRuntime().availableProcessors();
+            maxRenderers = maxRenderers > 0 ? maxRenderers : processors;
+            maxParsers = maxParsers > 0 ? maxParsers : processors;
+        }
+
+        List<ConversionListener> listeners = new ArrayList<>();
+        if (cli.isProgress()) {
+            listeners.add(new ProgressLinePrinter(System.err));
+        }
+
+        // stderr also carries the error messages and the output of wkhtmltopdf, a file keeps the events parseable
+        PrintStream progressJsonFile = null;
+        if (!Strings.isNullOrEmpty(cli.getProgressJsonFile())) {
+            try {
+                progressJsonFile = new PrintStream(new FileOutputStream(cli.getProgressJsonFile()), true, "UTF-8");
+            } catch (IOException e) {
+                Logger.error("Could not open %s. Error: %s", cli.getProgressJsonFile(), e.getMessage());
+                return 1;
+            }
+            listeners.add(new NdjsonProgressWriter(progressJsonFile));
+        } else if (cli.isProgressJson()) {
+            listeners.add(new NdjsonProgressWriter(System.err));
+        }
+
+        ProgressTracker tracker = listeners.isEmpty() ? null : new ProgressTracker(listeners);
+
+        ConversionOptions options = ConversionOptions.builder()
+                .hideHeaders(cli.isHideHeaders())
+                .addAttachmentNames(cli.isAddAttachmentNames())
+                .extractAttachments(cli.isExtractAttachments())
+                .pageSize(cli.getPageSize())
+                .dpi(cli.getDPI())
+                .proxy(proxy)
+                .memoryBudget(memoryBudget)
+                .maxConcurrentRenders(maxRenderers)
+                .maxConcurrentParses(maxParsers)
+                .listener(tracker)
+                .build();
+
+        int status = 0;
+        RenderCache renderCache = null;
+        try {
+            PdfRenderer renderer = new WkHtmlToPdfRenderer(options);
+            if (!Strings.isNullOrEmpty(cli.getRenderCache())) {
+                renderCache = RenderCache.open(new File(cli.getRenderCache()), cli.getRenderCacheSize() * 1024L * 1024L);
+                renderer = new CachingPdfRenderer(renderer, renderCache, cli.isRenderCacheLinks());
+            }
+
+            Converter converter = new Converter(options, renderer, session);
+
+            if (cli.isBundle()) {
+                converter.convertBundle(new BundleRequest(getBundleEmails(cli), out, bundleGrouping));
+            } else if (batch) {
+                if (convertBatch(converter, cli, shard, tracker) > 0) {
+                    status = 1;
+                }
+            } else {
+                if (tracker != null) {
+                    tracker.start(1, new File(in).length());
+                }
+
+                converter.convert(new ConversionRequest(in, out, cli.getExtractAttachmentsDir()));
+            }
+        } catch (Exception e) {
+            Logger.error("The email could not be converted. Error: %s", Throwables.getStackTraceAsString(e));
+            status = 1;
+        } finally {
+            if (progressJsonFile != null) {
+                progressJsonFile.close();
+            }
+        }
+
+        if (renderCache != null) {
+            Logger.info("Render cache: %s", renderCache);
+        }
+
+        return status;
+    }
+
+    /**
+     * Expand the directories of the inputs into their emails, the emails are bundled in the order of the inputs.
+     */
+    private static List<String> getBundleEmails(CommandLineParameters cli) {
+        List<String> emails = new ArrayList<>();
+        for (String file : cli.getFiles()) {
+            for (BatchInput input : BatchInput.collect(Collections.singletonList(file), cli.getWorkingDir())) {
+                emails.add(input.getEmailFile().getPath());
+            }
+        }
+
+        return emails;
+    }
+
+    /**
+     * The gui is an optional module, it is only part of the desktop distribution.
+     */
+    private static void launchGui() {
+        try {
+            Class.forName(GUI_MAIN_CLASS).getMethod("main", String[].class).invoke(null, (Object) new String[0]);
+        } catch (ClassNotFoundException e) {
+            Logger.error("The gui is not part of this distribution, pass the emails on the command line or use the emailconverter jar");
+            System.exit(1);
+        } catch (ReflectiveOperationException e) {
+            Logger.error("The gui could not be started. Error: %s", Throwables.getStackTraceAsString(e));
+            System.exit(1);
+        }
+    }
+
+    private static void exit(int status) {
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    private static File getDaemonFile(CommandLineParameters cli) {
+        if (!Strings.isNullOrEmpty(cli.getDaemonFile())) {
+            return new File(cli.getDaemonFile());
+        }
+
+        return new File(new File(System.getProperty("user.home"), ".emailconverter"), "daemon");
+    }
+
+    /**
+     * Convert every email of the inputs into its own pdf. If a shard is given only the emails of the shard are
+     * converted and recorded in the manifest of the shard. If a journal is given, emails that were finished by a
+     * previous run are skipped and interrupted emails are converted again. The progress tracker, if any, is started
+     * with the emails that remain. If a duplicate index is given, emails that were converted before by this or an
+     * earlier run are skipped and recorded as duplicates of the first conversion.
+     *
+     * @return the number of emails that could not be converted
+     */
+    private static int convertBatch(final Converter converter, final CommandLineParameters cli, Shard shard, final ProgressTracker tracker) throws Exception {
+        List<BatchInput> inputs = new ArrayList<>();
+        for (BatchInput input : BatchInput.collect(cli.getFiles(), cli.getWorkingDir())) {
+            if (shard == null || shard.contains(input.getRelativePath())) {
+                inputs.add(input);
+            }
+        }
+
+        if (shard != null) {
+            Logger.info("Shard %s converts %d emails", shard, inputs.size());
+        }
+
+        if (!Strings.isNullOrEmpty(cli.getExtractAttachmentsDir())) {
+            Logger.error("The attachment directory is ignored for multiple emails, the attachments are extracted alongside each pdf");
+        }
+
+        BatchJournal journal = null;
+        ShardManifest manifest = null;
+        DuplicateIndex dedup = null;
+        final AtomicInteger failed = new AtomicInteger();
+
+        try {
+            boolean resumed = false;
+
+            if (!Strings.isNullOrEmpty(cli.getDedup())) {
+                dedup = DuplicateIndex.open(new File(cli.getDedup()));
+            }
+
+            if (!Strings.isNullOrEmpty(cli.getJournal())) {
+                journal = BatchJournal.open(new File(cli.getJournal()));
+                Map<String, BatchJournal.State> replayedStates = journal.getReplayedStates();
+                resumed = !replayedStates.isEmpty();
+
+                List<BatchInput> remaining = new ArrayList<>();
+                List<String> newKeys = new ArrayList<>();
+                int interrupted = 0;
+
+                for (BatchInput input : inputs) {
+                    BatchJournal.State state = replayedStates.get(input.getRelativePath());
+
+                    if (state == null) {
+                        newKeys.add(input.getRelativePath());
+                        remaining.add(input);
+                    } else if (state == BatchJournal.State.ENQUEUED || state == BatchJournal.State.STARTED) {
+                        interrupted++;
+                        remaining.add(input);
+                    }
+                }
+
+                if (resumed) {
+                    Logger.info("Resume from journal %s: %d emails are finished, %d interrupted emails are converted again", cli.getJournal(), inputs.size() - remaining.size(), interrupted);
+                }
+
+                journal.enqueued(newKeys);
+                inputs = remaining;
+            }
+
+            if (shard != null) {
+                manifest = ShardManifest.create(getManifestDirectory(cli), shard, resumed);
+            }
+
+            if (tracker != null) {
+                long totalBytes = 0;
+                for (BatchInput input : inputs) {
+                    totalBytes += input.getEmailFile().length();
+                }
+
+                tracker.start(inputs.size(), totalBytes);
+            }
+
+            final BatchJournal finalJournal = journal;
+            final ShardManifest finalManifest = manifest;
+            final DuplicateIndex finalDedup = dedup;
+
+            BatchScheduler scheduler;
+            if (cli.isVirtualThreads()) {
+                scheduler = new BatchScheduler(converter.getOptions().getMaxConcurrentRenders(), true);
+            } else {
+                scheduler = new BatchScheduler(cli.getThreads());
+            }
+
+            scheduler.run(inputs, new BatchScheduler.BatchTask() {
+                @Override
+                public void run(BatchInput input) throws Exception {
+                    String pdfOutputPath = input.getPdfOutputPath(cli.getOutputDirectory());
+                    ConversionRequest request = new ConversionRequest(input.getEmailFile().getPath(), pdfOutputPath);
+                    long start = System.nanoTime();
+
+                    if (finalJournal != null) {
+                        finalJournal.started(input.getRelativePath());
+                    }
+
+                    String dedupKey = null;
+                    boolean reported = false;
+                    try {
+                        // the key is hashed from the raw bytes, a duplicate is skipped before it is decoded
+                        if (finalDedup != null) {
+                            dedupKey = DuplicateIndex.computeKey(input.getEmailFile());
+                            String firstPdfPath = finalDedup.claim(dedupKey, pdfOutputPath);
+
+                            if (firstPdfPath != null) {
+                                Logger.info("Skip %s, it is a duplicate of %s", input, firstPdfPath);
+                                skipDuplicate(input, firstPdfPath, finalDedup, finalManifest, finalJournal, tracker);
+                                return;
+                            }
+                        }
+
+                        File pdfDir = new File(pdfOutputPath).getAbsoluteFile().getParentFile();
+                        if (!pdfDir.isDirectory() && !pdfDir.mkdirs() && !pdfDir.isDirectory()) {
+                            throw new IOException("Could not create output directory " + pdfDir);
+                        }
+
+                        // the converter reports the outcome to the tracker itself
+                        reported = true;
+                        converter.convert(request);
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                        Logger.error("The email %s could not be converted. Error: %s", input, Throwables.getStackTraceAsString(e));
+
+                        if (!reported && tracker != null) {
+                            tracker.itemFinished(request, e, System.nanoTime() - start);
+                        }
+
+                        if (dedupKey != null) {
+                            finalDedup.release(dedupKey);
+                        }
+
+                        if (finalManifest != null) {
+                            finalManifest.recordFailed(input, e.toString());
+                        }
+                        if (finalJournal != null) {
+                            finalJournal.failed(input.getRelativePath());
+                        }
+                        return;
+                    }
+
+                    if (dedupKey != null) {
+                        finalDedup.commit(dedupKey);
+                    }
+
+                    // the manifest is written first, if the journal record gets lost the email is converted again by
+                    // the same shard, which the merge tolerates
+                    if (finalManifest != null) {
+                        finalManifest.recordDone(input, pdfOutputPath);
+                    }
+                    if (finalJournal != null) {
+                        finalJournal.done(input.getRelativePath());
+                    }
+                }
+            });
+
+            if (manifest != null) {
+                manifest.complete(inputs.size());
+            }
+        } finally {
+            if (manifest != null) {
+                manifest.close();
+            }
+            if (journal != null) {
+                journal.close();
+            }
+            if (dedup != null) {
+                dedup.close();
+            }
+        }
+
+        if (dedup != null) {
+            Logger.info("Skipped %d duplicates, they are listed in %s", dedup.getDuplicates(), new File(cli.getDedup(), DuplicateIndex.DUPLICATES_FILE_NAME));
+        }
+
+        Logger.info("Converted %d of %d emails", inputs.size() - failed.get(), inputs.size());
+        return failed.get();
+    }
+
+    /**
+     * Record a duplicate as done with the pdf of its first conversion, so the manifest and the journal consider it
+     * converted.
+     */
+    private static void skipDuplicate(BatchInput input, String firstPdfPath, DuplicateIndex dedup, ShardManifest manifest, BatchJournal journal, ProgressTracker tracker) throws IOException {
+        dedup.recordDuplicate(input.getEmailFile().getPath(), firstPdfPath);
+
+        if (manifest != null) {
+            manifest.recordDone(input, firstPdfPath);
+        }
+        if (journal != null) {
+            journal.done(input.getRelativePath());
+        }
+        if (tracker != null) {
+            tracker.itemFinished(new ConversionRequest(input.getEmailFile().getPath(), firstPdfPath), null, 0);
+        }
+    }
+
+    /**
+     * Verify that every email of the inputs was converted exactly once by the shards.
+     *
+     * @return exit status, 1 if the verification failed
+     */
+    private static int mergeShards(CommandLineParameters cli) {
+        File manifestDir = getManifestDirectory(cli);
+
+        List<BatchInput> inputs;
+        try {
+            inputs = BatchInput.collect(cli.getFiles(), cli.getWorkingDir());
+        } catch (IllegalArgumentException e) {
+            Logger.error("%s", e.getMessage());
+            return 1;
+        }
+
+        List<String> problems;
+        try {
+            problems = ShardManifest.merge(manifestDir, inputs, new File(manifestDir, ShardManifest.MERGED_FILE_NAME));
+        } catch (IOException e) {
+            Logger.error("The shard manifests could not be read. Error: %s", Throwables.getStackTraceAsString(e));
+            return 1;
+        }
+
+        if (!problems.isEmpty()) {
+            for (String problem : problems) {
+                Logger.error("%s", problem);
+            }
+
+            Logger.error("Verification of %d emails failed with %d problems", inputs.size(), problems.size());
+            return 1;
+        }
+
+        Logger.info("All %d emails were converted exactly once", inputs.size());
+        return 0;
+    }
+
+    /**
+     * Write the metadata of every email of the inputs into one file, without decoding the bodies or rendering. If a
+     * shard is given only the emails of the shard are written.
+     *
+     * @return exit status, 1 if the file could not be written or the metadata of an email could not be read
+     */
+    private static int exportMetadata(CommandLineParameters cli, Shard shard) {
+        File metadataFile = new File(cli.getMetadata());
+        int count = 0;
+        int failed = 0;
+
+        try (MetadataWriter writer = new MetadataWriter(Files.newWriter(metadataFile, StandardCharsets.UTF_8), MetadataWriter.Format.forFileName(metadataFile.getName()))) {
+            for (BatchInput input : BatchInput.collect(cli.getFiles(), cli.getWorkingDir())) {
+                if (shard != null && !shard.contains(input.getRelativePath())) {
+                    continue;
+                }
+
+                String path = input.getEmailFile().getPath();
+                try {
+                    writer.write(path, EmailMetadata.read(input.getEmailFile()));
+                } catch (Exception e) {
+                    failed++;
+                    Logger.error("The metadata of %s could not be read. Error: %s", input, Throwables.getStackTraceAsString(e));
+                    writer.writeFailed(path, e);
+                }
+
+                count++;
+            }
+        } catch (IOException e) {
+            Logger.error("The metadata file %s could not be written. Error: %s", metadataFile, Throwables.getStackTraceAsString(e));
+            return 1;
+        } catch (IllegalArgumentException e) {
+            Logger.error("%s", e.getMessage());
+            return 1;
+        }
+
+        Logger.info("Wrote the metadata of %d emails to %s, %d could not be read", count, metadataFile, failed);
+        return failed > 0 ? 1 : 0;
+    }
+
+    private static File getManifestDirectory(CommandLineParameters cli) {
+        if (!Strings.isNullOrEmpty(cli.getManifestDirectory())) {
+            return new File(cli.getManifestDirectory());
+        }
+
+        if (!Strings.isNullOrEmpty(cli.getOutputDirectory())) {
+            return new File(cli.getOutputDirectory());
+        }
+
+        return new File(".");
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cli;
+
+import static util.JsonUtils.quote;
+
+import com.google.common.base.Joiner;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Locale;
+import mimeparser.EmailMetadata;
+
+/**
+ * Writes the metadata of emails into one file, either as csv with a header row or as a json object per line (NDJSON).
+ * The records are written as they come in, so the file of a large run never has to be held in memory.
+ *
+ * @author Nick Russler
+ */
+final class MetadataWriter implements Closeable {
+    /**
+     * Output format, chosen by the extension of the output file.
+     */
+    enum Format {
+        CSV, NDJSON;
+
+        /**
+         * @return NDJSON for files ending with .ndjson or .jsonl, otherwise CSV. A .json file would have to hold a
+         * single json document.
+         */
+        static Format forFileName(String fileName) {
+            String name = fileName.toLowerCase(Locale.ROOT);
+            if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+                return NDJSON;
+            }
+
+            return CSV;
+        }
+    }
+
+    static final String CSV_HEADER = "path,message_id,from,to,cc,subject,date,size,attachments,error";
+
+    // separates the values of the list columns of the csv, e.g. the recipients
+    private static final Joiner CSV_LIST_JOINER = Joiner.on("; ");
+
+    private final Writer out;
+    private final Format format;
+
+    MetadataWriter(Writer out, Format format) throws IOException {
+        this.out = out;
+        this.format = format;
+
+        if (format == Format.CSV) {
+            out.write(CSV_HEADER);
+            out.write("\r\n");
+        }
+    }
+
+    /**
+     * Write the metadata of an email.
+     */
+    void write(String path, EmailMetadata metadata) throws IOException {
+        if (format == Format.CSV) {
+            writeCsv(path, metadata.getMessageId(), metadata.getFrom(), CSV_LIST_JOINER.join(metadata.getTo()),
+                    CSV_LIST_JOINER.join(metadata.getCc()), metadata.getSubject(), metadata.getDate(),
+                    String.valueOf(metadata.getSize()), CSV_LIST_JOINER.join(metadata.getAttachmentNames()), null);
+            return;
+        }
+
+        out.write("{\"path\":" + quote(path)
+                + ",\"messageId\":" + quote(metadata.getMessageId())
+                + ",\"from\":" + quote(metadata.getFrom())
+                + ",\"to\":" + toJsonArray(metadata.getTo())
+                + ",\"cc\":" + toJsonArray(metadata.getCc())
+                + ",\"subject\":" + quote(metadata.getSubject())
+                + ",\"date\":" + quote(metadata.getDate())
+                + ",\"size\":" + metadata.getSize()
+                + ",\"attachments\":" + toJsonArray(metadata.getAttachmentNames()) + "}\n");
+    }
+
+    /**
+     * Write a record for an email whose metadata could not be read, so it is not silently missing from the file.
+     */
+    void writeFailed(String path, Exception error) throws IOException {
+        if (format == Format.CSV) {
+            writeCsv(path, null, null, null, null, null, null, null, null, String.valueOf(error));
+            return;
+        }
+
+        out.write("{\"path\":" + quote(path) + ",\"error\":" + quote(String.valueOf(error)) + "}\n");
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeCsv(String... values) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(quoteCsv(values[i]));
+        }
+        sb.append("\r\n");
+
+        out.write(sb.toString());
+    }
+
+    /**
+     * Quote the value as described in RFC 4180 if it contains a separator, a quote or a line break.
+     */
+    static String quoteCsv(String value) {
+        if (value == null) {
+            return "";
+        }
+
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\r') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String toJsonArray(List<String> values) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(quote(values.get(i)));
+        }
+
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cli;
+
+import static util.JsonUtils.quote;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import mimeparser.ConversionListener;
+import mimeparser.ConversionPhase;
+import mimeparser.ConversionProgress;
+import mimeparser.ConversionRequest;
+
+/**
+ * Writes every conversion event as a json object on its own line (NDJSON), so tools can follow long runs without
+ * parsing the log.
+ *
+ * @author Nick Russler
+ */
+public class NdjsonProgressWriter implements ConversionListener {
+    private final PrintStream out;
+
+    public NdjsonProgressWriter(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void phaseStarted(ConversionRequest request, ConversionPhase phase) {
+        write(event("phaseStarted", request) + ",\"phase\":" + quote(phase.name().toLowerCase(Locale.ROOT)) + "}");
+    }
+
+    @Override
+    public void phaseFinished(ConversionRequest request, ConversionPhase phase, long nanos) {
+        write(event("phaseFinished", request) + ",\"phase\":" + quote(phase.name().toLowerCase(Locale.ROOT))
+                + ",\"millis\":" + nanos / 1000000 + "}");
+    }
+
+    @Override
+    public void bytesProcessed(ConversionRequest request, long bytes) {
+        write(event("bytesProcessed", request) + ",\"bytes\":" + bytes + "}");
+    }
+
+    @Override
+    public void itemFinished(ConversionRequest request, Exception error, long nanos) {
+        StringBuilder sb = new StringBuilder(event("itemFinished", request));
+        sb.append(",\"outcome\":").append(quote(error == null ? "done" : "failed"));
+        if (error != null) {
+            sb.append(",\"error\":").append(quote(String.valueOf(error)));
+        }
+        sb.append(",\"millis\":").append(nanos / 1000000).append('}');
+
+        write(sb.toString());
+    }
+
+    @Override
+    public void progress(ConversionProgress progress) {
+        write(String.format(Locale.ROOT, "{\"event\":\"progress\",\"time\":%d,\"total\":%d,\"completed\":%d,\"failed\":%d,"
+                        + "\"totalBytes\":%d,\"processedBytes\":%d,\"itemsPerSecond\":%.3f,\"bytesPerSecond\":%.0f,\"etaSeconds\":%s}",
+                System.currentTimeMillis(), progress.getTotalItems(), progress.getCompletedItems(), progress.getFailedItems(),
+                progress.getTotalBytes(), progress.getProcessedBytes(), progress.getItemsPerSecond(), progress.getBytesPerSecond(),
+                progress.getEtaNanos() < 0 ? "null" : String.valueOf(progress.getEtaNanos() / 1000000000)));
+    }
+
+    private void write(String line) {
+        // a single println keeps the lines of concurrent conversions from interleaving
+        out.println(line);
+    }
+
+    private static String event(String name, ConversionRequest request) {
+        String email = request.getEmailFilePath() != null ? request.getEmailFilePath() : request.getEmailFileName();
+
+        return "{\"event\":" + quote(name) + ",\"time\":" + System.currentTimeMillis() + ",\"email\":" + quote(email);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cli;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import mimeparser.ConversionListener;
+import mimeparser.ConversionProgress;
+
+/**
+ * Shows the progress as a single line that is overwritten in place, e.g.
+ * "  120/1000  12.0%  3.4 emails/s  1.2 MiB/s  ETA 0:04:19  2 failed".
+ *
+ * @author Nick Russler
+ */
+public class ProgressLinePrinter implements ConversionListener {
+    private static final long MIN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    private final PrintStream out;
+    private long lastPrintNanos;
+    private int lastLength;
+
+    public ProgressLinePrinter(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public synchronized void progress(ConversionProgress progress) {
+        long now = System.nanoTime();
+        if (!progress.isFinished() && lastPrintNanos != 0 && now - lastPrintNanos < MIN_INTERVAL_NANOS) {
+            return;
+        }
+        lastPrintNanos = now;
+
+        String line = format(progress);
+
+        // pad with spaces to overwrite the rest of a longer previous line
+        StringBuilder sb = new StringBuilder("\r").append(line);
+        for (int i = line.length(); i < lastLength; i++) {
+            sb.append(' ');
+        }
+        lastLength = line.length();
+
+        if (progress.isFinished()) {
+            sb.append(System.lineSeparator());
+        }
+
+        out.print(sb);
+        out.flush();
+    }
+
+    static String format(ConversionProgress progress) {
+        int total = progress.getTotalItems();
+        double percent = total > 0 ? 100.0 * progress.getFinishedItems() / total : 100.0;
+
+        StringBuilder sb = new StringBuilder(String.format(Locale.ROOT, "%5d/%d  %5.1f%%  %.1f emails/s  %.1f MiB/s  ETA %s",
+                progress.getFinishedItems(), total, percent, progress.getItemsPerSecond(),
+                progress.getBytesPerSecond() / (1024 * 1024), formatDuration(progress.getEtaNanos())));
+
+        if (progress.getFailedItems() > 0) {
+            sb.append(String.format(Locale.ROOT, "  %d failed", progress.getFailedItems()));
+        }
+
+        return sb.toString();
+    }
+
+    static String formatDuration(long nanos) {
+        if (nanos < 0) {
+            return "?";
+        }
+
+        long seconds = TimeUnit.NANOSECONDS.toSeconds(nanos);
+        return String.format(Locale.ROOT, "%d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cli;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * One of N shards of a batch conversion. Inputs are assigned to shards by a stable hash of their relative path, so
+ * every worker that sees the same input tree picks the same emails, independent of where the tree is mounted.
+ *
+ * @author Nick Russler
+ */
+public final class Shard {
+    private final int index;
+    private final int count;
+
+    /**
+     * @param index shard number, starting at 1
+     * @param count number of shards
+     */
+    public Shard(int index, int count) {
+        if (count < 1 || index < 1 || index > count) {
+            throw new IllegalArgumentException(String.format("Invalid shard %d/%d", index, count));
+        }
+
+        this.index = index;
+        this.count = count;
+    }
+
+    /**
+     * Parse a shard in the form "i/N", e.g. "2/8".
+     *
+     * @param shard shard description
+     * @return the shard
+     * @throws IllegalArgumentException if the description is malformed
+     */
+    public static Shard parse(String shard) {
+        int slash = shard.indexOf('/');
+        if (slash < 0) {
+            throw new IllegalArgumentException("Shard must be given as i/N, e.g. 2/8: " + shard);
+        }
+
+        try {
+            return new Shard(Integer.parseInt(shard.substring(0, slash).trim()), Integer.parseInt(shard.substring(slash + 1).trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Shard must be given as i/N, e.g. 2/8: " + shard, e);
+        }
+    }
+
+    /**
+     * @param relativePath relative path of an input
+     * @param count        number of shards
+     * @return number of the shard the input belongs to, starting at 1
+     */
+    public static int indexOf(String relativePath, int count) {
+        CRC32 crc = new CRC32();
+        crc.update(relativePath.getBytes(StandardCharsets.UTF_8));
+
+        return (int) (crc.getValue() % count) + 1;
+    }
+
+    public boolean contains(String relativePath) {
+        return indexOf(relativePath, count) == index;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cli;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Completion manifest of a shard. Every converted or failed input is appended as a tab separated line when it is
+ * finished, a final COMPLETE line marks that the shard has processed all of its inputs.
+ *
+ * The manifests of all shards can be merged to verify that every input was converted exactly once.
+ *
+ * @author Nick Russler
+ */
+public final class ShardManifest implements Closeable {
+    public static final String MERGED_FILE_NAME = "merged.manifest";
+
+    private static final String FILE_NAME_TEMPLATE = "shard-%d-of-%d.manifest";
+    private static final Pattern FILE_NAME_REGEX = Pattern.compile("shard-(\\d+)-of-(\\d+)\\.manifest");
+
+    private static final String DONE = "DONE";
+    private static final String FAILED = "FAILED";
+    private static final String COMPLETE = "COMPLETE";
+
+    private final Writer writer;
+
+    private ShardManifest(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Create the manifest of the shard in the directory, an existing manifest of the shard is replaced.
+     *
+     * @param dir   manifest directory, shared by all shards
+     * @param shard the shard
+     * @return the manifest
+     * @throws IOException
+     */
+    public static ShardManifest create(File dir, Shard shard) throws IOException {
+        return create(dir, shard, false);
+    }
+
+    /**
+     * Create or continue the manifest of the shard in the directory.
+     *
+     * @param dir    manifest directory, shared by all shards
+     * @param shard  the shard
+     * @param append true to append to an existing manifest, e.g. when a shard resumes after a crash
+     * @return the manifest
+     * @throws IOException
+     */
+    public static ShardManifest create(File dir, Shard shard, boolean append) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Could not create manifest directory " + dir);
+        }
+
+        File file = getFile(dir, shard);
+        return new ShardManifest(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, append), StandardCharsets.UTF_8)));
+    }
+
+    public static File getFile(File dir, Shard shard) {
+        return new File(dir, String.format(FILE_NAME_TEMPLATE, shard.getIndex(), shard.getCount()));
+    }
+
+    public synchronized void recordDone(BatchInput input, String pdfOutputPath) throws IOException {
+        writeLine(DONE, input.getRelativePath(), pdfOutputPath);
+    }
+
+    public synchronized void recordFailed(BatchInput input, String error) throws IOException {
+        writeLine(FAILED, input.getRelativePath(), String.valueOf(error));
+    }
+
+    /**
+     * Mark the shard as complete.
+     *
+     * @param inputCount number of inputs of the shard
+     * @throws IOException
+     */
+    public synchronized void complete(int inputCount) throws IOException {
+        writeLine(COMPLETE, String.valueOf(inputCount));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    private void writeLine(String... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                writer.write('\t');
+            }
+            writer.write(escape(fields[i]));
+        }
+        writer.write('\n');
+
+        // a crash must not lose the inputs that were already finished
+        writer.flush();
+    }
+
+    /**
+     * Verify the manifests of all shards in the directory against the inputs and write the merged manifest.
+     *
+     * @param dir            manifest directory
+     * @param inputs         all inputs of the batch
+     * @param mergedManifest file the DONE lines of all shards are written to if the verification succeeds
+     * @return the problems found, empty if every input was converted by exactly one shard, its own
+     * @throws IOException
+     */
+    public static List<String> merge(File dir, List<BatchInput> inputs, File mergedManifest) throws IOException {
+        List<String> problems = new ArrayList<>();
+
+        int shardCount = findShardCount(dir, problems);
+        if (shardCount < 1) {
+            return problems;
+        }
+
+        // an input that is recorded more than once by the same shard was converted again after a crash, which is fine
+        Map<String, Set<Integer>> doneBy = new HashMap<>();
+        Map<String, String> pdfOutputPaths = new HashMap<>();
+        Map<String, String> errors = new HashMap<>();
+
+        for (int index = 1; index <= shardCount; index++) {
+            Shard shard = new Shard(index, shardCount);
+            File file = getFile(dir, shard);
+
+            if (!file.isFile()) {
+                problems.add(String.format("The manifest of shard %s is missing", shard));
+                continue;
+            }
+
+            boolean complete = false;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = line.split("\t", -1);
+                    for (int i = 0; i < fields.length; i++) {
+                        fields[i] = unescape(fields[i]);
+                    }
+
+                    if (fields.length == 3 && DONE.equals(fields[0])) {
+                        Set<Integer> shards = doneBy.get(fields[1]);
+                        if (shards == null) {
+                            shards = new TreeSet<>();
+                            doneBy.put(fields[1], shards);
+                        }
+                        shards.add(index);
+                        pdfOutputPaths.put(fields[1], fields[2]);
+                    } else if (fields.length == 3 && FAILED.equals(fields[0])) {
+                        errors.put(fields[1], fields[2]);
+                    } else if (fields.length == 2 && COMPLETE.equals(fields[0])) {
+                        complete = true;
+                    }
+                }
+            }
+
+            if (!complete) {
+                problems.add(String.format("Shard %s did not complete", shard));
+            }
+        }
+
+        Set<String> known = new HashSet<>();
+        for (BatchInput input : inputs) {
+            String relativePath = input.getRelativePath();
+            known.add(relativePath);
+
+            Set<Integer> shards = doneBy.get(relativePath);
+            int expected = Shard.indexOf(relativePath, shardCount);
+
+            if (shards == null) {
+                if (errors.containsKey(relativePath)) {
+                    problems.add(String.format("%s failed: %s", relativePath, errors.get(relativePath)));
+                } else {
+                    problems.add(String.format("%s was not converted", relativePath));
+                }
+            } else if (shards.size() > 1) {
+                problems.add(String.format("%s was converted by %d shards %s", relativePath, shards.size(), shards));
+            } else if (!shards.contains(expected)) {
+                problems.add(String.format("%s was converted by shard %d/%d instead of %d/%d", relativePath, shards.iterator().next(), shardCount, expected, shardCount));
+            }
+        }
+
+        for (String relativePath : doneBy.keySet()) {
+            if (!known.contains(relativePath)) {
+                problems.add(String.format("%s was converted but is not an input", relativePath));
+            }
+        }
+
+        if (problems.isEmpty()) {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(mergedManifest), StandardCharsets.UTF_8))) {
+                ShardManifest merged = new ShardManifest(writer);
+                for (BatchInput input : inputs) {
+                    merged.recordDone(input, pdfOutputPaths.get(input.getRelativePath()));
+                }
+                merged.complete(inputs.size());
+            }
+        }
+
+        return problems;
+    }
+
+    /**
+     * @return the number of shards the manifests in the directory were written for, or 0 if it can not be determined
+     */
+    private static int findShardCount(File dir, List<String> problems) {
+        File[] files = dir.listFiles();
+        int shardCount = 0;
+
+        if (files != null) {
+            for (File file : files) {
+                Matcher m = FILE_NAME_REGEX.matcher(file.getName());
+                if (!m.matches()) {
+                    continue;
+                }
+
+                int count = Integer.parseInt(m.group(2));
+                if (shardCount != 0 && shardCount != count) {
+                    problems.add(String.format("Found manifests for %d and %d shards in %s", shardCount, count, dir));
+                    return 0;
+                }
+                shardCount = count;
+            }
+        }
+
+        if (shardCount == 0) {
+            problems.add(String.format("Found no shard manifests in %s", dir));
+        }
+
+        return shardCount;
+    }
+
+    static String escape(String field) {
+        return field.replace("%", "%25").replace("\t", "%09").replace("\n", "%0A").replace("\r", "%0D");
+    }
+
+    static String unescape(String field) {
+        return field.replace("%0D", "\r").replace("%0A", "\n").replace("%09", "\t").replace("%25", "%");
+    }
+}
@@ -18,6 +18,7 @@ package util;
 
 import com.github.markusbernhardt.proxy.ProxySearch;
 import com.github.markusbernhardt.proxy.ProxySearch.Strategy;
+import com.google.common.base.Supplier;
 import com.google.common.base.Throwables;
 import com.google.common.io.CharStreams;
 import java.io.InputStreamReader;
@@ -25,6 +26,7 @@ import java.io.OutputStreamWriter;
 import java.net.*;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import mimeparser.ConversionSession;
 
 /**
  * Utility Class for HTTP Request.
@@ -38,13 +40,8 @@ public class HttpUtils {
      * @return default proxy
      */
     public static Proxy getDefaultProxy() {
-        ProxySearch proxySearch = new ProxySearch();
-        proxySearch.addStrategy(Strategy.OS_DEFAULT);
-        proxySearch.addStrategy(Strategy.JAVA);
-        proxySearch.addStrategy(Strategy.BROWSER);
-        ProxySelector proxySelector = proxySearch.getProxySelector();
+        ProxySelector proxySelector = getDefaultProxySelector();
 
-        ProxySelector.setDefault(proxySelector);
         URI home = URI.create("http://www.google.com");
         List<Proxy> proxyList = proxySelector.select(home);
         if (proxyList != null && !proxyList.isEmpty()) {
@@ -56,6 +53,42 @@ public class HttpUtils {
         return null;
     }
 
+    /**
+     * Find the default proxy and format it as url that can be passed to wkhtmltopdf.
+     *
+     * @return default proxy url (e.g. "http://10.64.1.74:81") or null if it could not be determined
+     * @see ConversionSession#getProxyUrl(ProxySelector)
+     */
+    public static String getDefaultProxyUrl() {
+        return ConversionSession.getProxyUrl(getDefaultProxySelector());
+    }
+
+    /**
+     * @return lookup of {@link #getDefaultProxyUrl()} that can be passed to a conversion session
+     */
+    public static Supplier<String> getDefaultProxyUrlLookup() {
+        return new Supplier<String>() {
+            @Override
+            public String get() {
+                return getDefaultProxyUrl();
+            }
+        };
+    }
+
+    /**
+     * Search the proxy settings of the os, the jvm and the browsers and install the result as default selector.
+     */
+    private static ProxySelector getDefaultProxySelector() {
+        ProxySearch proxySearch = new ProxySearch();
+        proxySearch.addStrategy(Strategy.OS_DEFAULT);
+        proxySearch.addStrategy(Strategy.JAVA);
+        proxySearch.addStrategy(Strategy.BROWSER);
+        ProxySelector proxySelector = proxySearch.getProxySelector();
+
+        ProxySelector.setDefault(proxySelector);
+        return proxySelector;
+    }
+
     /**
      * Makes a HTTP Post.
      *
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+/**
+ * TestClass.
+ *
+ * @author Nick Russler
+ */
+public class BatchJournalTest {
+    private static File createJournalFile() throws IOException {
+        File file = File.createTempFile("emailtopdf", ".journal");
+        if (!file.delete()) {
+            throw new IOException("Could not delete " + file);
+        }
+        file.deleteOnExit();
+
+        return file;
+    }
+
+    @Test
+    public void open_replaysLastState() throws IOException {
+        File file = createJournalFile();
+
+        try (BatchJournal journal = BatchJournal.open(file)) {
+            journal.enqueued(Arrays.asList("a.eml", "b.eml", "c\td%.eml", "e.eml"));
+            journal.started("a.eml");
+            journal.done("a.eml");
+            journal.started("b.eml");
+            journal.failed("b.eml");
+            journal.started("c\td%.eml");
+        }
+
+        try (BatchJournal journal = BatchJournal.open(file)) {
+            Map<String, BatchJournal.State> states = journal.getReplayedStates();
+
+            assertThat(states.get("a.eml"), equalTo(BatchJournal.State.DONE));
+            assertThat(states.get("b.eml"), equalTo(BatchJournal.State.FAILED));
+            assertThat(states.get("c\td%.eml"), equalTo(BatchJournal.State.STARTED));
+            assertThat(states.get("e.eml"), equalTo(BatchJournal.State.ENQUEUED));
+            assertThat(states.get("f.eml"), nullValue());
+        }
+    }
+
+    @Test
+    public void open_cutsOffTornTail() throws IOException {
+        File file = createJournalFile();
+
+        try (BatchJournal journal = BatchJournal.open(file)) {
+            journal.enqueued(Arrays.asList("a.eml"));
+            journal.done("a.eml");
+        }
+        long validLength = file.length();
+
+        // a crash in the middle of a write leaves a partial or garbled record
+        try (OutputStream out = new FileOutputStream(file, true)) {
+            out.write("00000000\tDONE\tb.eml\n0123".getBytes(StandardCharsets.UTF_8));
+        }
+
+        try (BatchJournal journal = BatchJournal.open(file)) {
+            assertThat(journal.getReplayedStates().get("b.eml"), nullValue());
+            assertThat(file.length(), equalTo(validLength));
+
+            journal.done("c.eml");
+        }
+
+        try (BatchJournal journal = BatchJournal.open(file)) {
+            assertThat(journal.getReplayedStates().get("a.eml"), equalTo(BatchJournal.State.DONE));
+            assertThat(journal.getReplayedStates().get("c.eml"), equalTo(BatchJournal.State.DONE));
+        }
+    }
+
+    @Test
+    public void done_concurrentWriters() throws Exception {
+        File file = createJournalFile();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try (final BatchJournal journal = BatchJournal.open(file)) {
+            List<Future<Void>> futures = new ArrayList<>();
+
+            for (int t = 0; t < 8; t++) {
+                final int thread = t;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int i = 0; i < 200; i++) {
+                            journal.started(thread + "/" + i + ".eml");
+                            journal.done(thread + "/" + i + ".eml");
+                        }
+                        return null;
+                    }
+                }));
+            }
+
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        try (BatchJournal journal = BatchJournal.open(file)) {
+            assertThat(journal.getReplayedStates().size(), equalTo(1600));
+
+            for (BatchJournal.State state : journal.getReplayedStates().values()) {
+                assertThat(state, equalTo(BatchJournal.State.DONE));
+            }
+        }
+    }
+}
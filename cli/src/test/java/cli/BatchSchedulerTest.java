@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ * TestClass.
+ *
+ * @author Nick Russler
+ */
+public class BatchSchedulerTest {
+    @Test
+    public void predictMakespan() {
+        // largest first: {7, 3} and {6, 4} on two workers
+        assertThat(BatchScheduler.predictMakespan(new long[]{7, 6, 4, 3}, 2), equalTo(10L));
+        // a single huge job dominates
+        assertThat(BatchScheduler.predictMakespan(new long[]{20, 1, 1, 1}, 3), equalTo(20L));
+        assertThat(BatchScheduler.predictMakespan(new long[]{1, 1, 1}, 1), equalTo(3L));
+    }
+
+    @Test
+    public void predictImbalance() {
+        assertThat(BatchScheduler.predictImbalance(new long[]{7, 6, 4, 3}, 2), equalTo(1.0));
+        assertThat(BatchScheduler.predictImbalance(new long[]{20, 1, 1, 1}, 3), equalTo(20 / (23 / 3.0)));
+        assertThat(BatchScheduler.predictImbalance(new long[0], 2), equalTo(1.0));
+    }
+
+    @Test
+    public void estimateCost_fromFileSize() throws IOException {
+        File eml = File.createTempFile("emailtopdf", ".eml");
+        eml.deleteOnExit();
+        Files.write(new byte[1000], eml);
+
+        assertThat(BatchScheduler.estimateCost(eml), equalTo(BatchScheduler.FIXED_COST + 1000));
+    }
+
+    @Test
+    public void run_largestFirst() throws Exception {
+        File dir = java.nio.file.Files.createTempDirectory("emailtopdf").toFile();
+        for (int size : new int[]{10, 5000, 300, 100000}) {
+            Files.write(new byte[size], new File(dir, size + ".eml"));
+        }
+
+        final List<String> started = Collections.synchronizedList(new ArrayList<String>());
+        List<BatchInput> inputs = BatchInput.collect(Collections.singletonList(dir.getPath()));
+
+        // with a single worker the inputs keep their order
+        new BatchScheduler(1).run(inputs, new BatchScheduler.BatchTask() {
+            @Override
+            public void run(BatchInput input) {
+                started.add(input.getRelativePath());
+            }
+        });
+        assertThat(started, contains("10.eml", "100000.eml", "300.eml", "5000.eml"));
+
+        // both workers take a job before any job finishes, these have to be the two largest
+        started.clear();
+        final CountDownLatch bothStarted = new CountDownLatch(2);
+        new BatchScheduler(2).run(inputs, new BatchScheduler.BatchTask() {
+            @Override
+            public void run(BatchInput input) throws InterruptedException {
+                started.add(input.getRelativePath());
+                bothStarted.countDown();
+                bothStarted.await(10, TimeUnit.SECONDS);
+            }
+        });
+        assertThat(started.size(), equalTo(4));
+        assertThat(new HashSet<>(started.subList(0, 2)), equalTo(new HashSet<>(Arrays.asList("100000.eml", "5000.eml"))));
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import org.junit.Test;
+
+/**
+ * TestClass.
+ *
+ * @author Nick Russler
+ */
+public class DaemonClientTest {
+    @Test
+    public void replay() throws Exception {
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(frames);
+        writeFrame(out, Daemon.FRAME_STDOUT, "Start converting\n");
+        writeFrame(out, Daemon.FRAME_STDERR, "failed\n");
+        writeFrame(out, Daemon.FRAME_STDOUT, "done\n");
+        out.writeByte(Daemon.FRAME_EXIT);
+        out.writeInt(3);
+
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        PrintStream oldOut = System.out;
+        PrintStream oldErr = System.err;
+
+        int status;
+        System.setOut(new PrintStream(stdout, true, "UTF-8"));
+        System.setErr(new PrintStream(stderr, true, "UTF-8"));
+        try {
+            status = DaemonClient.replay(new DataInputStream(new ByteArrayInputStream(frames.toByteArray())));
+        } finally {
+            System.setOut(oldOut);
+            System.setErr(oldErr);
+        }
+
+        assertThat(status, equalTo(3));
+        assertThat(new String(stdout.toByteArray(), StandardCharsets.UTF_8), equalTo("Start converting\ndone\n"));
+        assertThat(new String(stderr.toByteArray(), StandardCharsets.UTF_8), equalTo("failed\n"));
+    }
+
+    @Test
+    public void forward_withoutDaemon() throws Exception {
+        File daemonFile = new File(java.nio.file.Files.createTempDirectory("emailtopdf").toFile(), "daemon");
+
+        assertThat(DaemonClient.forward(daemonFile, new String[]{"a.eml"}), equalTo(null));
+    }
+
+    @Test
+    public void forward_rejectedBeforeAcceptance() throws Exception {
+        try (final ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            Thread daemon = fakeDaemon(server, new byte[0]);
+
+            assertThat(DaemonClient.forward(daemonFile(server.getLocalPort()), new String[]{"a.eml"}), equalTo(null));
+            daemon.join();
+        }
+    }
+
+    @Test
+    public void forward_replaysAcceptedCommandLine() throws Exception {
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(frames);
+        out.writeByte(Daemon.FRAME_ACCEPTED);
+        out.writeByte(Daemon.FRAME_EXIT);
+        out.writeInt(3);
+
+        try (final ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            Thread daemon = fakeDaemon(server, frames.toByteArray());
+
+            assertThat(DaemonClient.forward(daemonFile(server.getLocalPort()), new String[]{"a.eml"}), equalTo(3));
+            daemon.join();
+        }
+    }
+
+    @Test
+    public void resolveRelativePaths() {
+        CommandLineParameters cli = new CommandLineParameters();
+        cli.setFiles(Arrays.asList("a.eml", new File("/mails/b.eml").getAbsolutePath()));
+        cli.setOutputDirectory("pdfs");
+
+        File baseDir = new File("/home/user").getAbsoluteFile();
+        cli.resolveRelativePaths(baseDir);
+
+        assertThat(cli.getFiles(), contains("a.eml", new File("/mails/b.eml").getAbsolutePath()));
+        assertThat(cli.getResolvedFiles(), contains(new File(baseDir, "a.eml").getPath(), new File("/mails/b.eml").getAbsolutePath()));
+        assertThat(cli.getOutputDirectory(), equalTo(new File(baseDir, "pdfs").getPath()));
+        assertThat(cli.getOutput(), equalTo(null));
+    }
+
+    @Test
+    public void resolveRelativePaths_forwardedAndLocalRunsHaveTheSameOutputPaths() throws Exception {
+        File clientDir = java.nio.file.Files.createTempDirectory("emailtopdf").toFile();
+        File mailbox = new File(clientDir, "mailbox");
+        assertThat(mailbox.mkdir(), equalTo(true));
+        assertThat(new File(mailbox, "b.eml").createNewFile(), equalTo(true));
+
+        CommandLineParameters forwarded = new CommandLineParameters();
+        forwarded.setFiles(Arrays.asList("a.eml", "mailbox"));
+        forwarded.resolveRelativePaths(clientDir);
+
+        List<BatchInput> forwardedInputs = BatchInput.collect(forwarded.getFiles(), forwarded.getWorkingDir());
+        List<BatchInput> localInputs = BatchInput.collect(Arrays.asList("a.eml", new File(clientDir, "mailbox").getPath()));
+
+        assertThat(forwardedInputs.size(), equalTo(2));
+        for (int i = 0; i < forwardedInputs.size(); i++) {
+            assertThat(forwardedInputs.get(i).getRelativePath(), equalTo(localInputs.get(i).getRelativePath()));
+            assertThat(forwardedInputs.get(i).getPdfOutputPath("out"), equalTo(localInputs.get(i).getPdfOutputPath("out")));
+        }
+
+        // the emails are opened in the directory of the client
+        assertThat(forwardedInputs.get(0).getEmailFile(), equalTo(new File(clientDir, "a.eml")));
+    }
+
+    private static File daemonFile(int port) throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty(Daemon.PORT_PROPERTY, String.valueOf(port));
+        properties.setProperty(Daemon.TOKEN_PROPERTY, "token");
+
+        File daemonFile = new File(java.nio.file.Files.createTempDirectory("emailtopdf").toFile(), "daemon");
+        try (OutputStream out = new FileOutputStream(daemonFile)) {
+            properties.store(out, null);
+        }
+
+        return daemonFile;
+    }
+
+    /**
+     * Accept one client, read its command line and answer with the given frames.
+     */
+    private static Thread fakeDaemon(final ServerSocket server, final byte[] frames) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try (Socket socket = server.accept()) {
+                    DataInputStream in = new DataInputStream(socket.getInputStream());
+                    in.readUTF();
+                    in.readUTF();
+                    int argc = in.readInt();
+                    for (int i = 0; i < argc; i++) {
+                        in.readUTF();
+                    }
+
+                    socket.getOutputStream().write(frames);
+                    socket.getOutputStream().flush();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        thread.start();
+
+        return thread;
+    }
+
+    private static void writeFrame(DataOutputStream out, int type, String text) throws Exception {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeByte(type);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
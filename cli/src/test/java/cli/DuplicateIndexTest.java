@@ -0,0 +1,182 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+
+import com.google.common.base.Strings;
+import com.google.common.io.FileWriteMode;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ * TestClass.
+ *
+ * @author Nick Russler
+ */
+public class DuplicateIndexTest {
+    private static final String KEY_1 = "0a" + Strings.repeat("1", 62);
+    private static final String KEY_2 = "0a" + Strings.repeat("2", 62);
+
+    private static File createEmail(String content) throws IOException {
+        File file = File.createTempFile("emailtopdf", ".eml");
+        file.deleteOnExit();
+        Files.asCharSink(file, StandardCharsets.UTF_8).write(content);
+
+        return file;
+    }
+
+    @Test
+    public void computeKey_sameForCopiesOfAMessage() throws Exception {
+        String inbox = createEmailKey("Received: from a\r\nDelivered-To: alice@example.com\r\nMessage-ID: <1@example.com>\r\nSubject: Report\r\n\r\nHello\r\n");
+        String archive = createEmailKey("Received: from b\nMessage-ID: <1@example.com>\nSubject: Report\n\nHello\n\n");
+
+        assertThat(inbox, equalTo(archive));
+        assertThat(createEmailKey("Message-ID: <1@example.com>\nSubject: Report\n\nBye\n"), not(equalTo(inbox)));
+        assertThat(createEmailKey("Message-ID: <2@example.com>\nSubject: Report\n\nHello\n"), not(equalTo(inbox)));
+    }
+
+    private static String createEmailKey(String content) throws Exception {
+        return DuplicateIndex.computeKey(createEmail(content));
+    }
+
+    @Test
+    public void claim_findsConversionsOfEarlierRuns() throws Exception {
+        File dir = Files.createTempDir();
+
+        try (DuplicateIndex index = DuplicateIndex.open(dir)) {
+            assertThat(index.claim(KEY_1, "first.pdf"), nullValue());
+            index.commit(KEY_1);
+            assertThat(index.claim(KEY_1, "second.pdf"), equalTo("first.pdf"));
+
+            assertThat(index.claim(KEY_2, "failed.pdf"), nullValue());
+            index.release(KEY_2);
+        }
+
+        try (DuplicateIndex index = DuplicateIndex.open(dir)) {
+            assertThat(index.claim(KEY_1, "third.pdf"), equalTo("first.pdf"));
+            assertThat(index.claim(KEY_2, "retry.pdf"), nullValue());
+
+            index.recordDuplicate("copy.eml", "first.pdf");
+            assertThat(index.getDuplicates(), equalTo(1L));
+        }
+
+        assertThat(Files.asCharSource(new File(dir, DuplicateIndex.DUPLICATES_FILE_NAME), StandardCharsets.UTF_8).read(), equalTo("copy.eml\tfirst.pdf\n"));
+    }
+
+    @Test
+    public void claim_waitsForTheConversionOfACopy() throws Exception {
+        File dir = Files.createTempDir();
+
+        try (DuplicateIndex index = DuplicateIndex.open(dir)) {
+            assertThat(index.claim(KEY_1, "first.pdf"), nullValue());
+            FutureTask<String> copy = claimInBackground(index, KEY_1, "second.pdf");
+
+            Thread.sleep(100);
+            assertThat(copy.isDone(), equalTo(false));
+
+            // the copy is skipped once the first conversion succeeded
+            index.commit(KEY_1);
+            assertThat(copy.get(10, TimeUnit.SECONDS), equalTo("first.pdf"));
+
+            assertThat(index.claim(KEY_2, "failed.pdf"), nullValue());
+            copy = claimInBackground(index, KEY_2, "retry.pdf");
+
+            // the copy is converted if the first conversion failed
+            index.release(KEY_2);
+            assertThat(copy.get(10, TimeUnit.SECONDS), nullValue());
+            index.commit(KEY_2);
+            assertThat(index.claim(KEY_2, "third.pdf"), equalTo("retry.pdf"));
+        }
+    }
+
+    private static FutureTask<String> claimInBackground(final DuplicateIndex index, final String key, final String pdfPath) {
+        FutureTask<String> task = new FutureTask<>(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return index.claim(key, pdfPath);
+            }
+        });
+        new Thread(task).start();
+
+        return task;
+    }
+
+    @Test
+    public void open_rebuildsBloomFilterAfterCrash() throws Exception {
+        File dir = Files.createTempDir();
+
+        try (DuplicateIndex index = DuplicateIndex.open(dir)) {
+            assertThat(index.claim(KEY_1, "first.pdf"), nullValue());
+            index.commit(KEY_1);
+        }
+
+        // a crashed run leaves the lock file and an outdated bloom filter behind
+        Files.touch(new File(dir, DuplicateIndex.LOCK_FILE_NAME));
+        assertThat(new File(dir, DuplicateIndex.BLOOM_FILE_NAME).delete(), equalTo(true));
+
+        try (DuplicateIndex index = DuplicateIndex.open(dir)) {
+            assertThat(index.claim(KEY_1, "second.pdf"), equalTo("first.pdf"));
+        }
+    }
+
+    @Test
+    public void claim_ignoresLineTornByCrash() throws Exception {
+        File dir = Files.createTempDir();
+        String tornKey = "0a" + Strings.repeat("3", 62);
+
+        try (DuplicateIndex index = DuplicateIndex.open(dir)) {
+            assertThat(index.claim(KEY_1, "first.pdf"), nullValue());
+            index.commit(KEY_1);
+        }
+
+        // a run crashed while it appended a line
+        File bucketFile = new File(new File(dir, DuplicateIndex.INDEX_DIRECTORY_NAME), "0a.tsv");
+        Files.asCharSink(bucketFile, StandardCharsets.UTF_8, FileWriteMode.APPEND).write(tornKey + "\tpd");
+        Files.touch(new File(dir, DuplicateIndex.LOCK_FILE_NAME));
+
+        try (DuplicateIndex index = DuplicateIndex.open(dir)) {
+            assertThat(index.claim(tornKey, "second.pdf"), nullValue());
+            index.commit(tornKey);
+        }
+
+        try (DuplicateIndex index = DuplicateIndex.open(dir)) {
+            assertThat(index.claim(KEY_1, "third.pdf"), equalTo("first.pdf"));
+            assertThat(index.claim(tornKey, "third.pdf"), equalTo("second.pdf"));
+        }
+
+        assertThat(Files.asCharSource(bucketFile, StandardCharsets.UTF_8).read(), equalTo(KEY_1 + "\tfirst.pdf\n" + tornKey + "\tsecond.pdf\n"));
+    }
+
+    @Test(expected = IOException.class)
+    public void open_failsWhileAnotherRunUsesTheIndex() throws IOException {
+        File dir = Files.createTempDir();
+
+        try (DuplicateIndex index = DuplicateIndex.open(dir)) {
+            DuplicateIndex.open(dir);
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package cli;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasItems;
 import static org.junit.Assert.assertTrue;
 
@@ -82,6 +83,22 @@ public class MainTest {
         writer.close();
     }
 
+    @Test
+    public void execute_failsForParameterErrors() throws IOException {
+        File missing = new File(java.nio.file.Files.createTempDirectory("emailtopdf").toFile(), "missing.eml");
+
+        LogLevel old = Logger.level;
+        Logger.level = LogLevel.Quiet;
+
+        try {
+            assertThat(Main.execute(new String[]{"--no-daemon", missing.getAbsolutePath()}), equalTo(1));
+            assertThat(Main.execute(new String[]{"--no-daemon", "-t", "0", missing.getParent()}), equalTo(1));
+            assertThat(Main.execute(new String[]{"--no-daemon", "--bundle", "-od", missing.getParent(), missing.getParent()}), equalTo(1));
+        } finally {
+            Logger.level = old;
+        }
+    }
+
     @Test
     public void main_simplePlainMessage() throws IOException, URISyntaxException {
         File tmpPdf = File.createTempFile("emailtopdf", ".pdf");
@@ -92,7 +109,7 @@ public class MainTest {
         LogLevel old = Logger.level;
         Logger.level = LogLevel.Error;
 
-        Main.main(args);
+        assertThat(Main.execute(args), equalTo(0));
 
         Logger.level = old;
 
@@ -114,7 +131,7 @@ public class MainTest {
         LogLevel old = Logger.level;
         Logger.level = LogLevel.Error;
 
-        Main.main(args);
+        assertThat(Main.execute(args), equalTo(0));
 
         Logger.level = old;
 
@@ -135,7 +152,7 @@ public class MainTest {
         LogLevel old = Logger.level;
         Logger.level = LogLevel.Error;
 
-        Main.main(args);
+        assertThat(Main.execute(args), equalTo(0));
 
         Logger.level = old;
 
@@ -156,7 +173,7 @@ public class MainTest {
         LogLevel old = Logger.level;
         Logger.level = LogLevel.Error;
 
-        Main.main(args);
+        assertThat(Main.execute(args), equalTo(0));
 
         Logger.level = old;
 
@@ -178,7 +195,7 @@ public class MainTest {
         LogLevel old = Logger.level;
         Logger.level = LogLevel.Error;
 
-        Main.main(args);
+        assertThat(Main.execute(args), equalTo(0));
 
         Logger.level = old;
 
@@ -200,7 +217,7 @@ public class MainTest {
         LogLevel old = Logger.level;
         Logger.level = LogLevel.Error;
 
-        Main.main(args);
+        assertThat(Main.execute(args), equalTo(0));
 
         Logger.level = old;
 
@@ -235,7 +252,7 @@ public class MainTest {
         LogLevel old = Logger.level;
         Logger.level = LogLevel.Error;
 
-        Main.main(args);
+        assertThat(Main.execute(args), equalTo(0));
 
         Logger.level = old;
 
@@ -270,7 +287,7 @@ public class MainTest {
         LogLevel old = Logger.level;
         Logger.level = LogLevel.Error;
 
-        Main.main(args);
+        assertThat(Main.execute(args), equalTo(0));
 
         Logger.level = old;
 
@@ -305,7 +322,7 @@ public class MainTest {
         LogLevel old = Logger.level;
         Logger.level = LogLevel.Error;
 
-        Main.main(args);
+        assertThat(Main.execute(args), equalTo(0));
 
         Logger.level = old;
 
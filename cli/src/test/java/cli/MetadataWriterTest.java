@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.StringWriter;
+import org.junit.Test;
+
+/**
+ * TestClass.
+ *
+ * @author Nick Russler
+ */
+public class MetadataWriterTest {
+    @Test
+    public void quoteCsv_onlyWhenNeeded() {
+        assertThat(MetadataWriter.quoteCsv("Re: plain subject"), equalTo("Re: plain subject"));
+        assertThat(MetadataWriter.quoteCsv("Doe, John <john@example.com>"), equalTo("\"Doe, John <john@example.com>\""));
+        assertThat(MetadataWriter.quoteCsv("say \"hi\""), equalTo("\"say \"\"hi\"\"\""));
+        assertThat(MetadataWriter.quoteCsv("two\nlines"), equalTo("\"two\nlines\""));
+        assertThat(MetadataWriter.quoteCsv(null), equalTo(""));
+    }
+
+    @Test
+    public void format_byFileExtension() {
+        assertThat(MetadataWriter.Format.forFileName("triage.csv"), equalTo(MetadataWriter.Format.CSV));
+        assertThat(MetadataWriter.Format.forFileName("triage.NDJSON"), equalTo(MetadataWriter.Format.NDJSON));
+        assertThat(MetadataWriter.Format.forFileName("triage.jsonl"), equalTo(MetadataWriter.Format.NDJSON));
+        assertThat(MetadataWriter.Format.forFileName("triage.txt"), equalTo(MetadataWriter.Format.CSV));
+        assertThat(MetadataWriter.Format.forFileName("triage.json"), equalTo(MetadataWriter.Format.CSV));
+    }
+
+    @Test
+    public void writeFailed_keepsTheEmailInTheFile() throws Exception {
+        StringWriter csv = new StringWriter();
+        try (MetadataWriter writer = new MetadataWriter(csv, MetadataWriter.Format.CSV)) {
+            writer.writeFailed("in/a,b.eml", new IllegalStateException("broken"));
+        }
+
+        assertThat(csv.toString(), equalTo(MetadataWriter.CSV_HEADER + "\r\n\"in/a,b.eml\",,,,,,,,,java.lang.IllegalStateException: broken\r\n"));
+
+        StringWriter ndjson = new StringWriter();
+        try (MetadataWriter writer = new MetadataWriter(ndjson, MetadataWriter.Format.NDJSON)) {
+            writer.writeFailed("in/a.eml", new IllegalStateException("broken"));
+        }
+
+        assertThat(ndjson.toString(), equalTo("{\"path\":\"in/a.eml\",\"error\":\"java.lang.IllegalStateException: broken\"}\n"));
+    }
+}
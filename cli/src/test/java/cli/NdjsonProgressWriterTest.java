@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import mimeparser.ConversionPhase;
+import mimeparser.ConversionRequest;
+import org.junit.Test;
+
+/**
+ * TestClass.
+ *
+ * @author Nick Russler
+ */
+public class NdjsonProgressWriterTest {
+    @Test
+    public void events_oneObjectPerLine() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        NdjsonProgressWriter writer = new NdjsonProgressWriter(new PrintStream(bytes, true, "UTF-8"));
+        ConversionRequest request = new ConversionRequest(new ByteArrayInputStream(new byte[0]), "multi\nline.eml", new ByteArrayOutputStream());
+
+        writer.phaseStarted(request, ConversionPhase.RENDER);
+        writer.itemFinished(request, new IOException("line 1\nline 2"), TimeUnit.MILLISECONDS.toNanos(1500));
+
+        String[] lines = new String(bytes.toByteArray(), StandardCharsets.UTF_8).split(System.lineSeparator());
+        assertThat(lines.length, equalTo(2));
+        assertThat(lines[0].matches("\\{\"event\":\"phaseStarted\",\"time\":\\d+,\"email\":\"multi\\\\nline.eml\",\"phase\":\"render\"}"), equalTo(true));
+        assertThat(lines[1].endsWith(",\"outcome\":\"failed\",\"error\":\"java.io.IOException: line 1\\nline 2\",\"millis\":1500}"), equalTo(true));
+    }
+
+    @Test
+    public void formatDuration() {
+        assertThat(ProgressLinePrinter.formatDuration(-1), equalTo("?"));
+        assertThat(ProgressLinePrinter.formatDuration(TimeUnit.SECONDS.toNanos(3725)), equalTo("1:02:05"));
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * TestClass.
+ *
+ * @author Nick Russler
+ */
+public class ShardManifestTest {
+    private static File createTempDir() throws IOException {
+        return java.nio.file.Files.createTempDirectory("emailtopdf").toFile();
+    }
+
+    private static File createInputDir() throws IOException {
+        File dir = createTempDir();
+
+        for (String relativePath : Arrays.asList("a.eml", "sub/b.msg", "sub/c\tweird%.eml", "ignored.txt")) {
+            File f = new File(dir, relativePath);
+            Files.createParentDirs(f);
+            Files.touch(f);
+        }
+
+        return dir;
+    }
+
+    private static void writeManifests(File manifestDir, List<BatchInput> inputs, int count) throws IOException {
+        for (int index = 1; index <= count; index++) {
+            Shard shard = new Shard(index, count);
+            int converted = 0;
+
+            try (ShardManifest manifest = ShardManifest.create(manifestDir, shard)) {
+                for (BatchInput input : inputs) {
+                    if (shard.contains(input.getRelativePath())) {
+                        manifest.recordDone(input, input.getPdfOutputPath("out"));
+                        converted++;
+                    }
+                }
+                manifest.complete(converted);
+            }
+        }
+    }
+
+    @Test
+    public void collect_relativePaths() throws IOException {
+        List<BatchInput> inputs = BatchInput.collect(Collections.singletonList(createInputDir().getPath()));
+
+        assertThat(inputs.size(), equalTo(3));
+        assertThat(inputs.get(0).getRelativePath(), equalTo("a.eml"));
+        assertThat(inputs.get(1).getRelativePath(), equalTo("sub/b.msg"));
+        assertThat(inputs.get(1).getPdfOutputPath("out"), equalTo(new File(new File("out", "sub"), "b.pdf").getPath()));
+    }
+
+    @Test
+    public void collect_fileInputsKeepTheirPath() throws IOException {
+        File dir = createInputDir();
+        File a = new File(new File(dir, "sub"), "b.msg");
+        File b = new File(dir, "b.msg");
+        Files.touch(b);
+
+        List<BatchInput> inputs = BatchInput.collect(Arrays.asList(a.getPath(), b.getPath()));
+
+        assertThat(inputs.size(), equalTo(2));
+        assertThat(inputs.get(0).getRelativePath(), equalTo(BatchInput.normalize(b.getPath())));
+        assertThat(inputs.get(1).getRelativePath(), equalTo(BatchInput.normalize(a.getPath())));
+        assertThat(BatchInput.normalize("../x/./y.eml"), equalTo("x/y.eml"));
+        assertThat(BatchInput.normalize("/a/b.eml"), equalTo("a/b.eml"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void collect_rejectsSameRelativePath() throws IOException {
+        File dir = createInputDir();
+        File other = createTempDir();
+        Files.touch(new File(other, "a.eml"));
+
+        BatchInput.collect(Arrays.asList(dir.getPath(), other.getPath()));
+    }
+
+    @Test
+    public void merge_allConverted() throws IOException {
+        List<BatchInput> inputs = BatchInput.collect(Collections.singletonList(createInputDir().getPath()));
+        File manifestDir = createTempDir();
+        writeManifests(manifestDir, inputs, 3);
+
+        File merged = new File(manifestDir, ShardManifest.MERGED_FILE_NAME);
+        List<String> problems = ShardManifest.merge(manifestDir, inputs, merged);
+
+        assertTrue(problems.isEmpty());
+        assertThat(Files.asCharSource(merged, StandardCharsets.UTF_8).read(), containsString("DONE\tsub/c%09weird%25.eml\t"));
+    }
+
+    @Test
+    public void merge_toleratesResumedShard() throws IOException {
+        List<BatchInput> inputs = BatchInput.collect(Collections.singletonList(createInputDir().getPath()));
+        File manifestDir = createTempDir();
+        writeManifests(manifestDir, inputs, 1);
+
+        // the shard was resumed and converted an input again
+        try (ShardManifest manifest = ShardManifest.create(manifestDir, new Shard(1, 1), true)) {
+            manifest.recordDone(inputs.get(0), "a.pdf");
+            manifest.complete(1);
+        }
+
+        assertTrue(ShardManifest.merge(manifestDir, inputs, new File(manifestDir, ShardManifest.MERGED_FILE_NAME)).isEmpty());
+    }
+
+    @Test
+    public void merge_reportsDuplicate() throws IOException {
+        List<BatchInput> inputs = BatchInput.collect(Collections.singletonList(createInputDir().getPath()));
+        File manifestDir = createTempDir();
+        writeManifests(manifestDir, inputs, 2);
+
+        for (int index = 1; index <= 2; index++) {
+            try (ShardManifest manifest = ShardManifest.create(manifestDir, new Shard(index, 2), true)) {
+                manifest.recordDone(inputs.get(0), "a.pdf");
+            }
+        }
+
+        List<String> problems = ShardManifest.merge(manifestDir, inputs, new File(manifestDir, ShardManifest.MERGED_FILE_NAME));
+
+        assertThat(problems.toString(), containsString("a.eml was converted by 2 shards [1, 2]"));
+    }
+
+    @Test
+    public void merge_reportsMissingWrongShardAndIncomplete() throws IOException {
+        List<BatchInput> inputs = BatchInput.collect(Collections.singletonList(createInputDir().getPath()));
+        File manifestDir = createTempDir();
+        writeManifests(manifestDir, inputs, 2);
+
+        // shard 1 crashed after recording all but the last input, shard 2 is missing
+        Shard shard = new Shard(1, 2);
+        try (ShardManifest manifest = ShardManifest.create(manifestDir, shard)) {
+            for (BatchInput input : inputs.subList(0, inputs.size() - 1)) {
+                manifest.recordDone(input, "out.pdf");
+            }
+        }
+        assertTrue(ShardManifest.getFile(manifestDir, new Shard(2, 2)).delete());
+
+        List<String> problems = ShardManifest.merge(manifestDir, inputs, new File(manifestDir, ShardManifest.MERGED_FILE_NAME));
+
+        assertThat(problems.toString(), containsString("The manifest of shard 2/2 is missing"));
+        assertThat(problems.toString(), containsString("Shard 1/2 did not complete"));
+        assertThat(problems.toString(), containsString(inputs.get(inputs.size() - 1).getRelativePath() + " was not converted"));
+        for (BatchInput input : inputs.subList(0, inputs.size() - 1)) {
+            if (!shard.contains(input.getRelativePath())) {
+                assertThat(problems.toString(), containsString(input.getRelativePath() + " was converted by shard 1/2 instead of 2/2"));
+            }
+        }
+        assertTrue(!new File(manifestDir, ShardManifest.MERGED_FILE_NAME).exists());
+    }
+}
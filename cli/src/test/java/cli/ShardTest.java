@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * TestClass.
+ *
+ * @author Nick Russler
+ */
+public class ShardTest {
+    @Test
+    public void parse() {
+        Shard shard = Shard.parse(" 2 / 8 ");
+
+        assertThat(shard.getIndex(), equalTo(2));
+        assertThat(shard.getCount(), equalTo(8));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_indexOutOfRange() {
+        Shard.parse("9/8");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_malformed() {
+        Shard.parse("2of8");
+    }
+
+    @Test
+    public void indexOf_isStable() {
+        // the assignment must never change, otherwise workers of different versions would disagree
+        assertThat(Shard.indexOf("folder/mail.eml", 8), equalTo(Shard.indexOf("folder/mail.eml", 8)));
+        assertThat(Shard.indexOf("anything", 1), equalTo(1));
+    }
+
+    @Test
+    public void contains_everyInputInExactlyOneShard() {
+        int count = 5;
+        int[] sizes = new int[count];
+
+        for (int i = 0; i < 1000; i++) {
+            String relativePath = "folder" + (i % 7) + "/mail" + i + ".eml";
+
+            int shards = 0;
+            for (int index = 1; index <= count; index++) {
+                if (new Shard(index, count).contains(relativePath)) {
+                    shards++;
+                    sizes[index - 1]++;
+                }
+            }
+
+            assertThat(shards, equalTo(1));
+        }
+
+        for (int size : sizes) {
+            assertTrue(size > 100);
+        }
+    }
+}
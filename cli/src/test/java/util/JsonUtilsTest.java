@@ -0,0 +1,36 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import org.junit.Test;
+
+/**
+ * TestClass.
+ *
+ * @author Nick Russler
+ */
+public class JsonUtilsTest {
+    @Test
+    public void quote() {
+        assertThat(JsonUtils.quote(null), equalTo("null"));
+        assertThat(JsonUtils.quote("C:\\mails\\\"a\".eml"), equalTo("\"C:\\\\mails\\\\\\\"a\\\".eml\""));
+        assertThat(JsonUtils.quote("a\nb\u0001"), equalTo("\"a\\nb\\u0001\""));
+    }
+}
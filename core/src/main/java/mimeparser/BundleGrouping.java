@@ -0,0 +1,31 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+/**
+ * How the emails of a bundle are grouped in the outline of the pdf.
+ *
+ * @author Nick Russler
+ */
+public enum BundleGrouping {
+    /** No grouping, the emails are ordered as given. */
+    NONE,
+    /** Group the emails by the folder they are stored in. */
+    FOLDER,
+    /** Group the emails by conversation, using the References and In-Reply-To headers. */
+    THREAD
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes the conversion of multiple emails (eml, msg) into a single pdf.
+ *
+ * @author Nick Russler
+ * @see Converter#convertBundle(BundleRequest)
+ */
+public final class BundleRequest {
+    private final List<String> emailFilePaths;
+    private final String pdfOutputPath;
+    private final BundleGrouping grouping;
+
+    public BundleRequest(List<String> emailFilePaths, String pdfOutputPath) {
+        this(emailFilePaths, pdfOutputPath, BundleGrouping.NONE);
+    }
+
+    public BundleRequest(List<String> emailFilePaths, String pdfOutputPath, BundleGrouping grouping) {
+        if (emailFilePaths.isEmpty()) {
+            throw new IllegalArgumentException("A bundle needs at least one email");
+        }
+
+        this.emailFilePaths = Collections.unmodifiableList(new ArrayList<>(emailFilePaths));
+        this.pdfOutputPath = pdfOutputPath;
+        this.grouping = grouping;
+    }
+
+    public List<String> getEmailFilePaths() {
+        return emailFilePaths;
+    }
+
+    public String getPdfOutputPath() {
+        return pdfOutputPath;
+    }
+
+    public BundleGrouping getGrouping() {
+        return grouping;
+    }
+
+    @Override
+    public String toString() {
+        return emailFilePaths.size() + " emails -> " + pdfOutputPath;
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import util.Logger;
+
+/**
+ * Renderer that caches the pdfs of another renderer in a {@link RenderCache}. Bulk emails like notifications often
+ * differ only in their headers, with hidden headers their html is identical and only rendered once.
+ *
+ * The key of a pdf is the sha-256 hash of the settings of the renderer and the html. Inline images are embedded into
+ * the html, so they are part of the key. Resources the renderer loads from the network are not.
+ *
+ * Renderers without settings key are not cached, neither are bundles and pdfs the renderer reports as incomplete.
+ *
+ * @author Nick Russler
+ */
+public class CachingPdfRenderer implements PdfRenderer {
+    static final String TMP_FILE_PREFIX = "tmp-";
+
+    private final PdfRenderer delegate;
+    private final RenderCache cache;
+    private final boolean hardLinks;
+
+    /**
+     * @param delegate  renderer of the pdfs that are not cached
+     * @param cache     cache of the pdfs
+     * @param hardLinks true to hard link cached pdfs to output files instead of copying them. The outputs then share
+     *                  their content with the cache, so they must not be modified in place.
+     */
+    public CachingPdfRenderer(PdfRenderer delegate, RenderCache cache, boolean hardLinks) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.hardLinks = hardLinks;
+    }
+
+    @Override
+    public void render(final HtmlSource html, final OutputStream pdf) throws Exception {
+        render(html, new Delivery() {
+            @Override
+            public void deliver(File cached) throws Exception {
+                Files.copy(cached.toPath(), pdf);
+            }
+
+            @Override
+            public boolean renderUncached() throws Exception {
+                delegate.render(html, pdf);
+                return true;
+            }
+        });
+    }
+
+    @Override
+    public boolean render(final HtmlSource html, final File pdf) throws Exception {
+        return render(html, new Delivery() {
+            @Override
+            public void deliver(File cached) throws Exception {
+                if (hardLinks) {
+                    try {
+                        Files.deleteIfExists(pdf.toPath());
+                        Files.createLink(pdf.toPath(), cached.toPath());
+                        return;
+                    } catch (NoSuchFileException e) {
+                        throw e;
+                    } catch (IOException | UnsupportedOperationException e) {
+                        // e.g. the output is on another file system
+                        Logger.debug("Could not link %s to %s, copying it: %s", pdf, cached, e);
+                    }
+                }
+
+                Files.copy(cached.toPath(), pdf.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            @Override
+            public boolean renderUncached() throws Exception {
+                return delegate.render(html, pdf);
+            }
+        });
+    }
+
+    @Override
+    public void render(List<HtmlSource> pages, OutputStream pdf) throws Exception {
+        delegate.render(pages, pdf);
+    }
+
+    @Override
+    public String getSettingsKey() {
+        return delegate.getSettingsKey();
+    }
+
+    /**
+     * Look up the pdf of the html, render it into the cache if it is missing and deliver it to the output. Only pdfs
+     * the renderer reports as complete are stored.
+     *
+     * @return true if the delivered pdf is complete
+     */
+    private boolean render(HtmlSource html, Delivery delivery) throws Exception {
+        String settingsKey = delegate.getSettingsKey();
+        if (settingsKey == null) {
+            return delivery.renderUncached();
+        }
+
+        // the html is needed twice on a miss, for the key and for the renderer, so it is spooled to disk once
+        final File htmlFile = File.createTempFile(TMP_FILE_PREFIX, ".html", cache.getDirectory());
+        File pdfFile = null;
+        try {
+            HashCode htmlHash;
+            try (HashingOutputStream out = new HashingOutputStream(Hashing.sha256(), new BufferedOutputStream(new FileOutputStream(htmlFile)))) {
+                html.writeTo(out);
+                htmlHash = out.hash();
+            }
+
+            String key = Hashing.sha256().newHasher()
+                    .putString(settingsKey, StandardCharsets.UTF_8)
+                    .putByte((byte) 0)
+                    .putBytes(htmlHash.asBytes())
+                    .hash().toString();
+
+            File cached = cache.lookup(key);
+            if (cached != null) {
+                try {
+                    delivery.deliver(cached);
+                    return true;
+                } catch (NoSuchFileException e) {
+                    // evicted by another thread in the meantime
+                    Logger.debug("Cached pdf %s disappeared, rendering it again", cached);
+                }
+            }
+
+            pdfFile = File.createTempFile(TMP_FILE_PREFIX, ".pdf", cache.getDirectory());
+            boolean complete = delegate.render(new HtmlSource() {
+                @Override
+                public void writeTo(OutputStream out) throws Exception {
+                    Files.copy(htmlFile.toPath(), out);
+                }
+            }, pdfFile);
+
+            // e.g. images that could not be loaded are missing from the pdf, the next rendering may succeed
+            File stored = complete ? cache.store(key, pdfFile) : null;
+            if (stored == null) {
+                delivery.deliver(pdfFile);
+                return complete;
+            }
+
+            try {
+                delivery.deliver(stored);
+                return true;
+            } catch (NoSuchFileException e) {
+                Logger.debug("Cached pdf %s disappeared, rendering it again", stored);
+                return delivery.renderUncached();
+            }
+        } finally {
+            deleteTemporary(htmlFile);
+            if (pdfFile != null) {
+                deleteTemporary(pdfFile);
+            }
+        }
+    }
+
+    private static void deleteTemporary(File file) {
+        if (file.exists() && !file.delete()) {
+            Logger.debug("Could not delete %s", file);
+        }
+    }
+
+    /**
+     * Output of a single document.
+     */
+    private interface Delivery {
+        /**
+         * Write the rendered pdf to the output.
+         *
+         * @throws NoSuchFileException if the pdf was evicted before it could be read
+         */
+        void deliver(File pdf) throws Exception;
+
+        /**
+         * Render the document without the cache.
+         *
+         * @return true if the pdf is complete
+         */
+        boolean renderUncached() throws Exception;
+    }
+}
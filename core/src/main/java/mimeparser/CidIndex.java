@@ -0,0 +1,182 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.Map;
+import jakarta.mail.Part;
+import util.Logger;
+
+/**
+ * Index of the inline images of a message by their Content-ID.
+ *
+ * The index is built once per message and resolves references in O(1) by the exact Content-ID (with or without angle
+ * brackets), the url-decoded Content-ID (cid urls are url-encoded, see RFC 2392) and the local part of the Content-ID
+ * (references like cid:X for Content-ID &lt;X@host&gt;).
+ *
+ * The images are either base64 strings or mime parts. The base64 of a part is written straight from the part whenever
+ * the data uri is written, so an image is never copied into a string.
+ *
+ * @author Nick Russler
+ */
+public class CidIndex implements CidResolver {
+    private final Map<String, MimeObjectEntry<?>> byId = new HashMap<String, MimeObjectEntry<?>>();
+    private final Map<String, MimeObjectEntry<?>> byLocalPart = new HashMap<String, MimeObjectEntry<?>>();
+
+    /**
+     * @param inlineImageMap inline images (base64 strings or parts) by Content-ID as found in the header (including the
+     *                       angle brackets)
+     */
+    public CidIndex(Map<String, ? extends MimeObjectEntry<?>> inlineImageMap) {
+        for (Map.Entry<String, ? extends MimeObjectEntry<?>> image : inlineImageMap.entrySet()) {
+            String id = normalize(image.getKey());
+            byId.put(id, image.getValue());
+
+            String decodedId = urlDecode(id);
+            if (decodedId != null) {
+                byId.putIfAbsent(decodedId, image.getValue());
+            }
+
+            int at = id.indexOf('@');
+            if (at > 0) {
+                byLocalPart.putIfAbsent(id.substring(0, at), image.getValue());
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return byId.isEmpty();
+    }
+
+    /**
+     * Find the inline image for a reference.
+     *
+     * @param cid Content-ID as referenced in the message, without "cid:"
+     * @return the image or null if there is no image for this reference
+     */
+    public MimeObjectEntry<?> get(String cid) {
+        String id = normalize(cid);
+
+        MimeObjectEntry<?> entry = byId.get(id);
+        if (entry != null) {
+            return entry;
+        }
+
+        String decodedId = urlDecode(id);
+        if (decodedId != null) {
+            entry = byId.get(decodedId);
+            if (entry != null) {
+                return entry;
+            }
+
+            id = decodedId;
+        }
+
+        // in eml cid=X and Content-ID=<X@...>
+        return byLocalPart.get(id);
+    }
+
+    @Override
+    public String resolve(String cid) {
+        MimeObjectEntry<?> entry = get(cid);
+        if (entry == null) {
+            return null;
+        }
+
+        StringWriter out = new StringWriter();
+        try {
+            writeDataUri(entry, out);
+        } catch (IOException e) {
+            Logger.error("Could not read the inline image for cid %s: %s", cid, e.getMessage());
+            return null;
+        }
+
+        return out.toString();
+    }
+
+    @Override
+    public boolean writeDataUri(String cid, Writer out) throws IOException {
+        MimeObjectEntry<?> entry = get(cid);
+        if (entry == null) {
+            return false;
+        }
+
+        writeDataUri(entry, out);
+        return true;
+    }
+
+    static void writeDataUri(MimeObjectEntry<?> entry, Writer out) throws IOException {
+        out.write("data:");
+        out.write(entry.getContentType().getBaseType());
+        out.write(";base64,");
+        writeBase64(entry, out);
+    }
+
+    /**
+     * Write the base64 of the image, the content of a part is read and encoded on the fly.
+     */
+    private static void writeBase64(MimeObjectEntry<?> entry, Writer out) throws IOException {
+        if (!(entry.getEntry() instanceof Part)) {
+            out.write(entry.getEntry().toString());
+            return;
+        }
+
+        try {
+            MimeMessageParser.writeBase64Content((Part) entry.getEntry(), out);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Could not read the inline image", e);
+        }
+    }
+
+    /**
+     * Remove surrounding whitespace and angle brackets.
+     */
+    static String normalize(String cid) {
+        String id = cid.trim();
+
+        if (id.length() >= 2 && id.charAt(0) == '<' && id.charAt(id.length() - 1) == '>') {
+            id = id.substring(1, id.length() - 1).trim();
+        }
+
+        return id;
+    }
+
+    /**
+     * @return the url-decoded id or null if the id is not url-encoded
+     */
+    private static String urlDecode(String id) {
+        if (id.indexOf('%') < 0) {
+            return null;
+        }
+
+        try {
+            // only percent-escapes are decoded, a '+' is part of the id
+            String decodedId = URLDecoder.decode(id.replace("+", "%2B"), "UTF-8");
+            return decodedId.equals(id) ? null : decodedId;
+        } catch (IllegalArgumentException | UnsupportedEncodingException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Resolves a Content-ID reference (the part after "cid:") to the data uri of the inline image.
+ *
+ * @author Nick Russler
+ */
+public interface CidResolver {
+    /**
+     * @param cid Content-ID as referenced in the html, without "cid:"
+     * @return data uri of the image or null if there is no image for this cid
+     */
+    String resolve(String cid);
+
+    /**
+     * Write the data uri of the image, resolvers that hold large images stream them instead of building the uri.
+     *
+     * @param cid Content-ID as referenced in the html, without "cid:"
+     * @param out writer for the data uri
+     * @return false if there is no image for this cid, nothing has been written then
+     * @throws IOException if the image could not be read or written
+     */
+    default boolean writeDataUri(String cid, Writer out) throws IOException {
+        String dataUri = resolve(cid);
+        if (dataUri == null) {
+            return false;
+        }
+
+        out.write(dataUri);
+        return true;
+    }
+}
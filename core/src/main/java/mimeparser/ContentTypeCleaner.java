@@ -38,7 +38,7 @@ import util.Logger;
 public class ContentTypeCleaner {
     public static final String DEFAULT_BASETYPE = "text/plain";
     public static final String DEFAULT_CHARSET = "utf-8";
-    private static final String DEFAULT_CONTENTTYPE = DEFAULT_BASETYPE + "; charset=\"" + DEFAULT_CHARSET + "\"";
+    static final String DEFAULT_CONTENTTYPE = DEFAULT_BASETYPE + "; charset=\"" + DEFAULT_CHARSET + "\"";
     private static final Pattern SEMICOLON_SEQUENCE_IN_PARAMS_REGEX = Pattern.compile(";[\\s;]*;");
     private static final Pattern COLON_AS_PARAM_DELIM_REGEX = Pattern.compile("([^=:]*)(=|:)(.*?(;|\\z))");
 
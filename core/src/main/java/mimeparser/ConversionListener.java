@@ -0,0 +1,72 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package mimeparser;
+
+/**
+ * Receives the progress of conversions, e.g. to show a progress bar or to report it to an orchestration tool.
+ *
+ * The methods are called by the threads that run the conversions, so implementations have to be thread safe when
+ * emails are converted in parallel. They should return quickly, the conversion waits for them.
+ *
+ * @author Nick Russler
+ */
+public interface ConversionListener {
+    /**
+     * Listener that ignores all events.
+     */
+    ConversionListener NONE = new ConversionListener() {
+    };
+
+    /**
+     * A phase of the conversion of the email started.
+     */
+    default void phaseStarted(ConversionRequest request, ConversionPhase phase) {
+    }
+
+    /**
+     * A phase of the conversion of the email finished successfully. If the phase fails only
+     * {@link #itemFinished(ConversionRequest, Exception, long)} is called.
+     *
+     * @param nanos duration of the phase
+     */
+    default void phaseFinished(ConversionRequest request, ConversionPhase phase, long nanos) {
+    }
+
+    /**
+     * The email was read.
+     *
+     * @param bytes size of the email
+     */
+    default void bytesProcessed(ConversionRequest request, long bytes) {
+    }
+
+    /**
+     * The conversion of the email finished.
+     *
+     * @param error the reason the conversion failed or null if it succeeded
+     * @param nanos duration of the conversion, including the time it waited for memory or permits
+     */
+    default void itemFinished(ConversionRequest request, Exception error, long nanos) {
+    }
+
+    /**
+     * The progress of all conversions changed, only emitted by a {@link ProgressTracker}.
+     */
+    default void progress(ConversionProgress progress) {
+    }
+}
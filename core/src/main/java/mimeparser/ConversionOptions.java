@@ -0,0 +1,227 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable set of options that control how a {@link Converter} renders emails.
+ *
+ * @author Nick Russler
+ */
+public final class ConversionOptions {
+    private final boolean hideHeaders;
+    private final boolean addAttachmentNames;
+    private final boolean extractAttachments;
+    private final String pageSize;
+    private final String dpi;
+    private final String proxy;
+    private final List<String> rendererArgs;
+    private final MemoryBudget memoryBudget;
+    private final int maxConcurrentParses;
+    private final int maxConcurrentRenders;
+    private final ConversionListener listener;
+
+    private ConversionOptions(Builder builder) {
+        this.hideHeaders = builder.hideHeaders;
+        this.addAttachmentNames = builder.addAttachmentNames;
+        this.extractAttachments = builder.extractAttachments;
+        this.pageSize = builder.pageSize;
+        this.dpi = builder.dpi;
+        this.proxy = builder.proxy;
+        this.rendererArgs = Collections.unmodifiableList(new ArrayList<>(builder.rendererArgs));
+        this.memoryBudget = builder.memoryBudget;
+        this.maxConcurrentParses = builder.maxConcurrentParses;
+        this.maxConcurrentRenders = builder.maxConcurrentRenders;
+        this.listener = builder.listener;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public boolean isHideHeaders() {
+        return hideHeaders;
+    }
+
+    public boolean isAddAttachmentNames() {
+        return addAttachmentNames;
+    }
+
+    public boolean isExtractAttachments() {
+        return extractAttachments;
+    }
+
+    /**
+     * @return paper size passed to the renderer, or null to use the renderer default
+     */
+    public String getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return DPI passed to the renderer, or null to use the renderer default
+     */
+    public String getDpi() {
+        return dpi;
+    }
+
+    /**
+     * @return proxy url (e.g. "http://10.64.1.74:81") or null if no proxy should be used
+     */
+    public String getProxy() {
+        return proxy;
+    }
+
+    /**
+     * @return additional raw arguments that are passed to the renderer as they are
+     */
+    public List<String> getRendererArgs() {
+        return rendererArgs;
+    }
+
+    /**
+     * @return budget every conversion reserves its estimated memory from, or null if conversions are not limited
+     */
+    public MemoryBudget getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * @return maximum number of emails a converter parses at the same time, or 0 if it is not limited
+     */
+    public int getMaxConcurrentParses() {
+        return maxConcurrentParses;
+    }
+
+    /**
+     * @return maximum number of renderer processes a converter runs at the same time, or 0 if it is not limited
+     */
+    public int getMaxConcurrentRenders() {
+        return maxConcurrentRenders;
+    }
+
+    /**
+     * @return listener that receives the progress of the conversions, never null
+     */
+    public ConversionListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Builder for {@link ConversionOptions}.
+     */
+    public static class Builder {
+        private boolean hideHeaders = false;
+        private boolean addAttachmentNames = false;
+        private boolean extractAttachments = false;
+        private String pageSize = "A4";
+        private String dpi = "300";
+        private String proxy;
+        private List<String> rendererArgs = new ArrayList<>();
+        private MemoryBudget memoryBudget;
+        private int maxConcurrentParses = 0;
+        private int maxConcurrentRenders = 0;
+        private ConversionListener listener = ConversionListener.NONE;
+
+        private Builder() {
+        }
+
+        public Builder hideHeaders(boolean hideHeaders) {
+            this.hideHeaders = hideHeaders;
+            return this;
+        }
+
+        public Builder addAttachmentNames(boolean addAttachmentNames) {
+            this.addAttachmentNames = addAttachmentNames;
+            return this;
+        }
+
+        public Builder extractAttachments(boolean extractAttachments) {
+            this.extractAttachments = extractAttachments;
+            return this;
+        }
+
+        public Builder pageSize(String pageSize) {
+            this.pageSize = pageSize;
+            return this;
+        }
+
+        public Builder dpi(String dpi) {
+            this.dpi = dpi;
+            return this;
+        }
+
+        public Builder proxy(String proxy) {
+            this.proxy = proxy;
+            return this;
+        }
+
+        public Builder rendererArgs(List<String> rendererArgs) {
+            this.rendererArgs = new ArrayList<>(rendererArgs);
+            return this;
+        }
+
+        /**
+         * Share a memory budget between conversions, e.g. {@link MemoryBudget#createDefault()}. Conversions block
+         * while the budget is exhausted.
+         */
+        public Builder memoryBudget(MemoryBudget memoryBudget) {
+            this.memoryBudget = memoryBudget;
+            return this;
+        }
+
+        /**
+         * Limit the number of emails that are parsed and prepared as html at the same time, this work is CPU-bound.
+         * Use 0 for no limit.
+         */
+        public Builder maxConcurrentParses(int maxConcurrentParses) {
+            if (maxConcurrentParses < 0) {
+                throw new IllegalArgumentException("The number of concurrent parses must not be negative");
+            }
+
+            this.maxConcurrentParses = maxConcurrentParses;
+            return this;
+        }
+
+        /**
+         * Limit the number of renderer processes that run at the same time. Use 0 for no limit.
+         */
+        public Builder maxConcurrentRenders(int maxConcurrentRenders) {
+            if (maxConcurrentRenders < 0) {
+                throw new IllegalArgumentException("The number of concurrent renders must not be negative");
+            }
+
+            this.maxConcurrentRenders = maxConcurrentRenders;
+            return this;
+        }
+
+        /**
+         * Report the progress of the conversions, e.g. to a {@link ProgressTracker}.
+         */
+        public Builder listener(ConversionListener listener) {
+            this.listener = listener != null ? listener : ConversionListener.NONE;
+            return this;
+        }
+
+        public ConversionOptions build() {
+            return new ConversionOptions(this);
+        }
+    }
+}
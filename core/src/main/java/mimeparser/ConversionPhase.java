@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package mimeparser;
+
+/**
+ * Phases of the conversion of a single email, reported to a {@link ConversionListener}.
+ *
+ * @author Nick Russler
+ */
+public enum ConversionPhase {
+    /**
+     * The email is read and prepared as html.
+     */
+    PARSE,
+
+    /**
+     * The renderer writes the pdf.
+     */
+    RENDER,
+
+    /**
+     * The attachments are saved next to the pdf.
+     */
+    EXTRACT_ATTACHMENTS
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package mimeparser;
+
+/**
+ * Snapshot of the progress of a number of conversions, created by a {@link ProgressTracker}.
+ *
+ * @author Nick Russler
+ */
+public final class ConversionProgress {
+    private final int totalItems;
+    private final int completedItems;
+    private final int failedItems;
+    private final long totalBytes;
+    private final long processedBytes;
+    private final long elapsedNanos;
+    private final double itemsPerSecond;
+    private final double bytesPerSecond;
+    private final long etaNanos;
+
+    ConversionProgress(int totalItems, int completedItems, int failedItems, long totalBytes, long processedBytes,
+                       long elapsedNanos, double itemsPerSecond, double bytesPerSecond, long etaNanos) {
+        this.totalItems = totalItems;
+        this.completedItems = completedItems;
+        this.failedItems = failedItems;
+        this.totalBytes = totalBytes;
+        this.processedBytes = processedBytes;
+        this.elapsedNanos = elapsedNanos;
+        this.itemsPerSecond = itemsPerSecond;
+        this.bytesPerSecond = bytesPerSecond;
+        this.etaNanos = etaNanos;
+    }
+
+    /**
+     * @return number of emails that are converted in total
+     */
+    public int getTotalItems() {
+        return totalItems;
+    }
+
+    /**
+     * @return number of emails that were converted successfully
+     */
+    public int getCompletedItems() {
+        return completedItems;
+    }
+
+    /**
+     * @return number of emails that could not be converted
+     */
+    public int getFailedItems() {
+        return failedItems;
+    }
+
+    /**
+     * @return number of emails that were converted successfully or failed
+     */
+    public int getFinishedItems() {
+        return completedItems + failedItems;
+    }
+
+    /**
+     * @return size of all emails in bytes, 0 if unknown
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return size of the finished emails in bytes
+     */
+    public long getProcessedBytes() {
+        return processedBytes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return emails finished per second, averaged over the last seconds
+     */
+    public double getItemsPerSecond() {
+        return itemsPerSecond;
+    }
+
+    /**
+     * @return bytes of emails finished per second, averaged over the last seconds
+     */
+    public double getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * @return estimated time until all emails are finished, or -1 if it can not be estimated yet
+     */
+    public long getEtaNanos() {
+        return etaNanos;
+    }
+
+    /**
+     * @return true if all emails are finished
+     */
+    public boolean isFinished() {
+        return getFinishedItems() >= totalItems;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d/%d emails, %d failed", getFinishedItems(), totalItems, failedItems);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A single email that should be converted by a {@link Converter}.
+ *
+ * The email can either be read from a file or from an InputStream and the pdf can either be written to a file or to an
+ * OutputStream. Streams are not closed by the converter.
+ *
+ * @author Nick Russler
+ */
+public final class ConversionRequest {
+    private final String emailFilePath;
+    private final InputStream emailInputStream;
+    private final String emailFileName;
+    private final String pdfOutputPath;
+    private final OutputStream pdfOutputStream;
+    private final String attachmentsDir;
+
+    /**
+     * Convert the email file to a pdf file with the same name placed alongside the email file.
+     *
+     * @param emailFilePath path of the email (eml, msg) file
+     */
+    public ConversionRequest(String emailFilePath) {
+        this(emailFilePath, getDefaultPdfOutputPath(emailFilePath), null);
+    }
+
+    public ConversionRequest(String emailFilePath, String pdfOutputPath) {
+        this(emailFilePath, pdfOutputPath, null);
+    }
+
+    /**
+     * @param emailFilePath  path of the email (eml, msg) file
+     * @param pdfOutputPath  path of the produced pdf file
+     * @param attachmentsDir directory the attachments are extracted to, if null "&lt;pdf-name&gt;-attachments" besides the pdf is used
+     */
+    public ConversionRequest(String emailFilePath, String pdfOutputPath, String attachmentsDir) {
+        this(checkNotNull(emailFilePath), null, emailFilePath, checkNotNull(pdfOutputPath), null, attachmentsDir);
+    }
+
+    /**
+     * Convert an email that is read from a stream and write the pdf to a stream, without touching the disk.
+     *
+     * @param emailInputStream stream of the email
+     * @param emailFileName    name of the email, used for logging and to detect the format (names with the extension of a
+     *                         {@link MessageFormat} plugin, e.g. ".msg", are read with that plugin, everything else as
+     *                         eml), may be null
+     * @param pdfOutputStream  stream the pdf is written to
+     */
+    public ConversionRequest(InputStream emailInputStream, String emailFileName, OutputStream pdfOutputStream) {
+        this(emailInputStream, emailFileName, pdfOutputStream, null);
+    }
+
+    /**
+     * @param emailInputStream stream of the email
+     * @param emailFileName    name of the email, may be null
+     * @param pdfOutputStream  stream the pdf is written to
+     * @param attachmentsDir   directory the attachments are extracted to, required to extract attachments
+     */
+    public ConversionRequest(InputStream emailInputStream, String emailFileName, OutputStream pdfOutputStream, String attachmentsDir) {
+        this(null, checkNotNull(emailInputStream), emailFileName, null, checkNotNull(pdfOutputStream), attachmentsDir);
+    }
+
+    private ConversionRequest(String emailFilePath, InputStream emailInputStream, String emailFileName, String pdfOutputPath, OutputStream pdfOutputStream, String attachmentsDir) {
+        this.emailFilePath = emailFilePath;
+        this.emailInputStream = emailInputStream;
+        this.emailFileName = emailFileName;
+        this.pdfOutputPath = pdfOutputPath;
+        this.pdfOutputStream = pdfOutputStream;
+        this.attachmentsDir = attachmentsDir;
+    }
+
+    private static <T> T checkNotNull(T value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Email input and pdf output must not be null");
+        }
+
+        return value;
+    }
+
+    /**
+     * Get the default pdf path for an email file, that is the email file path with a pdf extension.
+     *
+     * @param emailFilePath path of the email (eml, msg) file
+     * @return pdf file path
+     */
+    public static String getDefaultPdfOutputPath(String emailFilePath) {
+        String out = Files.getNameWithoutExtension(emailFilePath) + ".pdf";
+
+        File parent = new File(emailFilePath).getParentFile();
+        if (parent != null) {
+            out = new File(parent, out).toString();
+        }
+
+        return out;
+    }
+
+    /**
+     * @return path of the email file or null if the email is read from a stream
+     */
+    public String getEmailFilePath() {
+        return emailFilePath;
+    }
+
+    /**
+     * @return name of the email file, may be null if the email is read from a stream
+     */
+    public String getEmailFileName() {
+        return emailFileName;
+    }
+
+    /**
+     * @return path of the pdf file or null if the pdf is written to a stream
+     */
+    public String getPdfOutputPath() {
+        return pdfOutputPath;
+    }
+
+    public String getAttachmentsDir() {
+        return attachmentsDir;
+    }
+
+    /**
+     * @return the format plugin that converts the email to eml, or null if the email is read as eml
+     */
+    MessageFormat getMessageFormat() {
+        return MessageFormats.forFileName(emailFileName);
+    }
+
+    /**
+     * Open the email input. The returned stream must not be closed if it was passed in by the caller.
+     */
+    InputStream openEmailInputStream() throws FileNotFoundException {
+        if (emailInputStream != null) {
+            return emailInputStream;
+        }
+
+        return new FileInputStream(emailFilePath);
+    }
+
+    /**
+     * Open the pdf output. The returned stream must not be closed if it was passed in by the caller.
+     */
+    OutputStream openPdfOutputStream() throws FileNotFoundException {
+        if (pdfOutputStream != null) {
+            return pdfOutputStream;
+        }
+
+        return new FileOutputStream(pdfOutputPath);
+    }
+
+    /**
+     * @return true if the streams of this request are owned by the caller
+     */
+    boolean isStreaming() {
+        return emailInputStream != null;
+    }
+
+    @Override
+    public String toString() {
+        String in = emailFilePath != null ? emailFilePath : "<stream " + emailFileName + ">";
+        String out = pdfOutputPath != null ? pdfOutputPath : "<stream>";
+
+        return in + " -> " + out;
+    }
+}
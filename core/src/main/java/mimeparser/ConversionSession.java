@@ -0,0 +1,206 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package mimeparser;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.base.Ticker;
+import com.google.common.io.Resources;
+import jakarta.mail.internet.MimeUtility;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.apache.tika.mime.MimeTypes;
+import util.Logger;
+
+/**
+ * Everything conversions share that is expensive to set up: the templates, the Tika mime type registry, the charset
+ * tables and the system proxy. A session is created once per run and passed to every {@link Converter} of the run,
+ * so the costs are not paid per email.
+ *
+ * The mime type registry and the proxy are only loaded when they are needed, most single email runs need neither.
+ * Long running processes call {@link #warmUp()} to load everything up front.
+ *
+ * @author Nick Russler
+ */
+public final class ConversionSession {
+    /**
+     * How long the resolved system proxy is reused, e.g. across the runs of the GUI.
+     */
+    public static final long PROXY_TTL_MINUTES = 10;
+
+    // charsets that are common in emails, looking them up once fills the charset caches of the JDK and jakarta.mail
+    private static final String[] COMMON_CHARSETS = {
+            "utf-8", "us-ascii", "iso-8859-1", "iso-8859-15", "windows-1252", "windows-1250", "windows-1251",
+            "koi8-r", "iso-2022-jp", "shift_jis", "euc-jp", "gb2312", "gbk", "big5", "euc-kr", "utf-16"};
+
+    private static ConversionSession defaultSession;
+
+    private final String headerTemplate;
+    private final String contentScript;
+    private final Supplier<MimeTypes> mimeTypes = Suppliers.memoize(new Supplier<MimeTypes>() {
+        @Override
+        public MimeTypes get() {
+            return MimeTypes.getDefaultMimeTypes();
+        }
+    });
+
+    private final Supplier<MemoryBudget> memoryBudget = Suppliers.memoize(new Supplier<MemoryBudget>() {
+        @Override
+        public MemoryBudget get() {
+            return MemoryBudget.createDefault();
+        }
+    });
+
+    private final Supplier<String> proxyLookup;
+    private final long proxyTtlNanos;
+    private final Ticker ticker;
+    private boolean proxyResolved;
+    private long proxyResolvedNanos;
+    private String proxyUrl;
+
+    ConversionSession(Supplier<String> proxyLookup, long proxyTtl, TimeUnit unit, Ticker ticker) throws IOException {
+        this.headerTemplate = Resources.toString(Resources.getResource(Converter.class, "/header.html"), StandardCharsets.UTF_8);
+        this.contentScript = Resources.toString(Resources.getResource(Converter.class, "/contentScript.js"), StandardCharsets.UTF_8);
+        this.proxyLookup = proxyLookup;
+        this.proxyTtlNanos = unit.toNanos(proxyTtl);
+        this.ticker = ticker;
+    }
+
+    /**
+     * Create a new session, this loads the templates right away. The proxy is looked up with the default
+     * {@link ProxySelector} of the JVM.
+     */
+    public static ConversionSession create() throws IOException {
+        return create(new Supplier<String>() {
+            @Override
+            public String get() {
+                return getProxyUrl(ProxySelector.getDefault());
+            }
+        });
+    }
+
+    /**
+     * Create a new session, this loads the templates right away.
+     *
+     * @param proxyLookup finds the system proxy url, e.g. from the settings of the operating system and the browsers
+     */
+    public static ConversionSession create(Supplier<String> proxyLookup) throws IOException {
+        return new ConversionSession(proxyLookup, PROXY_TTL_MINUTES, TimeUnit.MINUTES, Ticker.systemTicker());
+    }
+
+    /**
+     * @return the session shared by all converters that are created without a session
+     */
+    public static synchronized ConversionSession getDefault() throws IOException {
+        if (defaultSession == null) {
+            defaultSession = create();
+        }
+
+        return defaultSession;
+    }
+
+    /**
+     * Load the mime type registry and the common charsets now instead of during the first conversion that needs them.
+     *
+     * @return this session
+     */
+    public ConversionSession warmUp() {
+        mimeTypes.get();
+        warmCharsets();
+
+        return this;
+    }
+
+    /**
+     * Find the system proxy, it is looked up at most once per {@link #PROXY_TTL_MINUTES}.
+     *
+     * @return proxy url that can be passed to the renderer, or null if there is no system proxy
+     */
+    public synchronized String getDefaultProxyUrl() {
+        long now = ticker.read();
+
+        if (!proxyResolved || now - proxyResolvedNanos >= proxyTtlNanos) {
+            proxyUrl = proxyLookup.get();
+            proxyResolvedNanos = now;
+            proxyResolved = true;
+
+            Logger.debug("Resolved default proxy %s", proxyUrl);
+        }
+
+        return proxyUrl;
+    }
+
+    /**
+     * Get the memory budget of the session. Processes that run several batches at once, like the daemon, pass it to
+     * all of them, so together they do not reserve more than the heap.
+     *
+     * @return the budget, sized once from the heap of the jvm
+     */
+    public MemoryBudget getMemoryBudget() {
+        return memoryBudget.get();
+    }
+
+    String getHeaderTemplate() {
+        return headerTemplate;
+    }
+
+    String getContentScript() {
+        return contentScript;
+    }
+
+    MimeTypes getMimeTypes() {
+        return mimeTypes.get();
+    }
+
+    /**
+     * Format the proxy the selector picks for http connections as url that can be passed to wkhtmltopdf.
+     *
+     * @param proxySelector selector, may be null
+     * @return proxy url (e.g. "http://10.64.1.74:81") or null if connections are direct
+     */
+    public static String getProxyUrl(ProxySelector proxySelector) {
+        if (proxySelector == null) {
+            return null;
+        }
+
+        for (Proxy proxy : proxySelector.select(URI.create("http://www.google.com"))) {
+            if (proxy.address() instanceof InetSocketAddress) {
+                InetSocketAddress address = (InetSocketAddress) proxy.address();
+                return (proxy.type().toString() + "://" + address.getHostString() + ":" + address.getPort()).toLowerCase();
+            }
+        }
+
+        return null;
+    }
+
+    private static void warmCharsets() {
+        for (String name : COMMON_CHARSETS) {
+            String javaName = MimeUtility.javaCharset(name);
+
+            if (Charset.isSupported(javaName)) {
+                Charset.forName(javaName);
+            }
+        }
+    }
+}
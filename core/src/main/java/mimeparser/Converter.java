@@ -0,0 +1,661 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import static com.google.common.io.Files.getFileExtension;
+import static com.google.common.io.Files.getNameWithoutExtension;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.html.HtmlEscapers;
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
+import jakarta.mail.Part;
+import jakarta.mail.internet.ContentType;
+import jakarta.mail.internet.MimeMessage;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import org.simplejavamail.api.email.AttachmentResource;
+import org.simplejavamail.converter.EmailConverter;
+import util.FileNameSanitizer;
+import util.Logger;
+
+/**
+ * Converts email (eml, msg) files into pdf files.
+ *
+ * A Converter is built once from {@link ConversionOptions} and can then be used to convert any number of emails,
+ * also concurrently from multiple threads.
+ *
+ * @author Nick Russler
+ */
+public class Converter {
+    static {
+        configureMimeParser();
+    }
+
+    // html wrapper for text/plain messages, the encoded text is placed between head and foot
+    private static final String PLAIN_TEXT_HTML_HEAD = "<!DOCTYPE html><html><head><style>body{font-size: 0.5cm;}</style><meta charset=\"utf-8\"><title>title</title></head><body><div style=\"white-space: pre-wrap\">";
+    private static final String PLAIN_TEXT_HTML_FOOT_START = "</div>";
+    private static final String PLAIN_TEXT_HTML_FOOT_END = "</body></html>";
+    private static final String ADD_HEADER_IFRAME_JS_TAG_TEMPLATE = "<script id=\"header-v6a8oxpf48xfzy0rhjra\" data-file=\"%s\" type=\"text/javascript\">%s</script>";
+    private static final String HEADER_FIELD_TEMPLATE = "<tr><td class=\"header-name\">%s</td><td class=\"header-value\">%s</td></tr>";
+    private static final String ATTACHMENT_LIST_TEMPLATE = "<hr>%s<ul>%s</ul>";
+    private static final String ATTACHMENT_ITEM_TEMPLATE = "<li>%s</li>";
+
+    // headings for the outline of bundles, they are placed out of sight at the top of the page
+    private static final String OUTLINE_HEADING_TEMPLATE = "<h%d style=\"position: absolute; top: 0; left: -10000px; font-size: 1px;\">%s</h%d>";
+
+    private final ConversionOptions options;
+    private final PdfRenderer renderer;
+    private final ConversionSession session;
+
+    // null if the phase is not limited, the permits are fair so waiting conversions proceed in the order they arrived
+    private final Semaphore parsePermits;
+    private final Semaphore renderPermits;
+
+    // DateFormat is not thread safe, so every thread gets its own instance
+    private final ThreadLocal<DateFormat> dateFormatter = new ThreadLocal<DateFormat>() {
+        @Override
+        protected DateFormat initialValue() {
+            return DateFormat.getDateTimeInstance(DateFormat.LONG, DateFormat.LONG);
+        }
+    };
+
+    public Converter(ConversionOptions options) throws IOException {
+        this(options, ConversionSession.getDefault());
+    }
+
+    public Converter(ConversionOptions options, ConversionSession session) {
+        this(options, new WkHtmlToPdfRenderer(options), session);
+    }
+
+    public Converter(ConversionOptions options, PdfRenderer renderer) throws IOException {
+        this(options, renderer, ConversionSession.getDefault());
+    }
+
+    /**
+     * @param options  options of the conversions
+     * @param renderer renderer that writes the pdfs
+     * @param session  session of the run, shared with the other converters of the run
+     */
+    public Converter(ConversionOptions options, PdfRenderer renderer, ConversionSession session) {
+        this.options = options;
+        this.renderer = renderer;
+        this.session = session;
+        this.parsePermits = options.getMaxConcurrentParses() > 0 ? new Semaphore(options.getMaxConcurrentParses(), true) : null;
+        this.renderPermits = options.getMaxConcurrentRenders() > 0 ? new Semaphore(options.getMaxConcurrentRenders(), true) : null;
+    }
+
+    /**
+     * Set System parameters to alleviate Java's built in Mime Parser strictness.
+     * This has to happen before jakarta.mail reads them, which is why it is done when this class is loaded.
+     */
+    static void configureMimeParser() {
+        System.setProperty("mail.mime.address.strict", "false");
+        System.setProperty("mail.mime.decodetext.strict", "false");
+        System.setProperty("mail.mime.decodefilename", "true");
+        System.setProperty("mail.mime.decodeparameters", "true");
+        System.setProperty("mail.mime.multipart.ignoremissingendboundary", "true");
+        System.setProperty("mail.mime.multipart.ignoremissingboundaryparameter", "true");
+
+        System.setProperty("mail.mime.parameters.strict", "false");
+        System.setProperty("mail.mime.applefilenames", "true");
+        System.setProperty("mail.mime.ignoreunknownencoding", "true");
+        System.setProperty("mail.mime.uudecode.ignoremissingbeginend", "true");
+        System.setProperty("mail.mime.multipart.allowempty", "true");
+        System.setProperty("mail.mime.multipart.ignoreexistingboundaryparameter", "true");
+
+        System.setProperty("mail.mime.base64.ignoreerrors", "true");
+
+        // set own cleaner class to handle broken contentTypes
+        System.setProperty("mail.mime.contenttypehandler", "mimeparser.ContentTypeCleaner");
+    }
+
+    public ConversionOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Convert the email asynchronously on the common ForkJoinPool.
+     *
+     * @param request email to convert
+     * @return future that completes when the conversion finished
+     */
+    public CompletableFuture<Void> convertAsync(ConversionRequest request) {
+        return convertAsync(request, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Convert the email asynchronously on the given executor.
+     *
+     * @param request  email to convert
+     * @param executor executor that runs the conversion
+     * @return future that completes when the conversion finished
+     */
+    public CompletableFuture<Void> convertAsync(final ConversionRequest request, Executor executor) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    convert(request);
+                    future.complete(null);
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Convert an email (eml, msg) file to PDF.
+     * If the options have a memory budget, the conversion waits until its estimated memory is available.
+     * The phases and the outcome of the conversion are reported to the listener of the options.
+     *
+     * @param request email to convert
+     * @throws Exception
+     */
+    public void convert(ConversionRequest request) throws Exception {
+        ConversionListener listener = options.getListener();
+        long start = System.nanoTime();
+
+        try {
+            MemoryBudget memoryBudget = options.getMemoryBudget();
+            if (memoryBudget == null) {
+                convertMessage(request, listener);
+            } else {
+                try (MemoryBudget.Reservation reservation = memoryBudget.reserve(MemoryEstimator.estimate(request, options))) {
+                    convertMessage(request, listener);
+                }
+            }
+        } catch (Exception e) {
+            listener.itemFinished(request, e, System.nanoTime() - start);
+            throw e;
+        }
+
+        listener.itemFinished(request, null, System.nanoTime() - start);
+    }
+
+    private void convertMessage(ConversionRequest request, ConversionListener listener) throws Exception {
+        String pdfOutputPath = request.getPdfOutputPath();
+
+        Logger.info("Start converting %s", request);
+
+        final MimeMessage message;
+        HtmlSource htmlSource;
+
+        acquire(parsePermits);
+        try {
+            listener.phaseStarted(request, ConversionPhase.PARSE);
+            long phaseStart = System.nanoTime();
+
+            message = readMessage(request, listener);
+            htmlSource = createHtmlSource(message, request.getEmailFileName(), "");
+
+            listener.phaseFinished(request, ConversionPhase.PARSE, System.nanoTime() - phaseStart);
+        } finally {
+            release(parsePermits);
+        }
+
+        acquire(renderPermits);
+        try {
+            listener.phaseStarted(request, ConversionPhase.RENDER);
+            long phaseStart = System.nanoTime();
+
+            if (request.isStreaming()) {
+                Logger.debug("Write pdf to output stream");
+                renderer.render(htmlSource, request.openPdfOutputStream());
+            } else {
+                Logger.debug("Write pdf to %s", new File(pdfOutputPath).getAbsolutePath());
+                renderer.render(htmlSource, new File(pdfOutputPath));
+            }
+
+            listener.phaseFinished(request, ConversionPhase.RENDER, System.nanoTime() - phaseStart);
+        } finally {
+            release(renderPermits);
+        }
+
+        /* ######### Save attachments ######### */
+        if (options.isExtractAttachments()) {
+            File attachmentDir = null;
+            if (!Strings.isNullOrEmpty(request.getAttachmentsDir())) {
+                attachmentDir = new File(request.getAttachmentsDir());
+            } else if (pdfOutputPath != null) {
+                File pdf = new File(pdfOutputPath);
+                attachmentDir = new File(pdf.getParentFile(), getNameWithoutExtension(pdfOutputPath) + "-attachments");
+            }
+
+            if (attachmentDir != null) {
+                listener.phaseStarted(request, ConversionPhase.EXTRACT_ATTACHMENTS);
+                long phaseStart = System.nanoTime();
+
+                extractAttachments(message, attachmentDir, session);
+
+                listener.phaseFinished(request, ConversionPhase.EXTRACT_ATTACHMENTS, System.nanoTime() - phaseStart);
+            } else {
+                Logger.error("Attachments are not extracted, the pdf is written to a stream and no attachment directory is given");
+            }
+        }
+
+        Logger.info("Conversion finished");
+    }
+
+    private static void acquire(Semaphore permits) throws InterruptedException {
+        if (permits != null) {
+            permits.acquire();
+        }
+    }
+
+    private static void release(Semaphore permits) {
+        if (permits != null) {
+            permits.release();
+        }
+    }
+
+    /**
+     * Convert multiple emails (eml, msg) into a single pdf with one renderer invocation. Every email starts on a new
+     * page and gets an entry in the outline of the pdf, grouped by folder or thread if requested.
+     * Attachments are not extracted in this mode.
+     *
+     * @param request emails to convert
+     * @throws Exception
+     */
+    public void convertBundle(BundleRequest request) throws Exception {
+        Logger.info("Start converting %d emails into %s", request.getEmailFilePaths().size(), request.getPdfOutputPath());
+
+        boolean grouped = request.getGrouping() != BundleGrouping.NONE;
+
+        List<HtmlSource> pages = new ArrayList<>();
+        for (EmailGrouper.EmailGroup group : EmailGrouper.group(request.getEmailFilePaths(), request.getGrouping())) {
+            List<String> emailFilePaths = group.getEmailFilePaths();
+
+            for (int i = 0; i < emailFilePaths.size(); i++) {
+                String groupTitle = (grouped && i == 0) ? group.getTitle() : null;
+                pages.add(createBundlePage(emailFilePaths.get(i), groupTitle, grouped ? 2 : 1));
+            }
+        }
+
+        Logger.debug("Write pdf to %s", new File(request.getPdfOutputPath()).getAbsolutePath());
+        acquire(renderPermits);
+        try (OutputStream pdfOut = new BufferedOutputStream(new FileOutputStream(request.getPdfOutputPath()))) {
+            renderer.render(pages, pdfOut);
+        } finally {
+            release(renderPermits);
+        }
+
+        Logger.info("Conversion finished");
+    }
+
+    /**
+     * The email is only read when the renderer asks for the page, so the messages of a bundle are not all held in
+     * memory at once.
+     *
+     * @param emailFilePath email of this page
+     * @param groupTitle    title of the group if the page is the first of its group, otherwise null
+     * @param level         outline level of the email
+     */
+    private HtmlSource createBundlePage(final String emailFilePath, final String groupTitle, final int level) {
+        return new HtmlSource() {
+            @Override
+            public void writeTo(OutputStream out) throws Exception {
+                ConversionRequest request = new ConversionRequest(emailFilePath);
+                Logger.info("Add %s to the bundle", request.getEmailFileName());
+
+                MimeMessage message = readMessage(request, ConversionListener.NONE);
+
+                String outlineHtml = "";
+                if (groupTitle != null) {
+                    outlineHtml += String.format(OUTLINE_HEADING_TEMPLATE, 1, HtmlEscapers.htmlEscaper().escape(groupTitle), 1);
+                }
+
+                String title = MimeMessageConverter.parseSubject(message);
+                if (Strings.isNullOrEmpty(title)) {
+                    title = request.getEmailFileName();
+                }
+                outlineHtml += String.format(OUTLINE_HEADING_TEMPLATE, level, HtmlEscapers.htmlEscaper().escape(title), level);
+
+                createHtmlSource(message, request.getEmailFileName(), outlineHtml).writeTo(out);
+            }
+        };
+    }
+
+    /**
+     * Create the html document of the message.
+     *
+     * @param message       mime message
+     * @param emailFileName name of the email file, used for logging
+     * @param outlineHtml   headings for the pdf outline that are appended to the document
+     * @return source of the utf-8 encoded html document
+     * @throws Exception
+     */
+    private HtmlSource createHtmlSource(final MimeMessage message, String emailFileName, String outlineHtml) throws Exception {
+        /* ######### Parse Header Fields ######### */
+        Logger.debug("Read and decode header fields");
+
+        String subject = MimeMessageConverter.parseSubject(message);
+
+        String from = MimeMessageConverter.getFrom(message);
+
+        String[] recipientsTo = MimeMessageConverter.getRecipients(message, "To");
+        String[] recipientsCc = MimeMessageConverter.getRecipients(message, "Cc");
+
+        String sentDateStr = null;
+        try {
+            Date sentDate = message.getSentDate();
+            sentDateStr = dateFormatter.get().format(sentDate);
+        } catch (Exception e) {
+            Logger.error("Could not parse the date");
+            e.printStackTrace();
+        }
+
+        if (sentDateStr == null) {
+            Logger.error("Attempt to fallback to raw date value");
+            sentDateStr = message.getHeader("date", null);
+
+            if (sentDateStr == null) {
+                Logger.error("No Date value found, proceeding without date value");
+            }
+        }
+
+        /* ######### Parse the mime structure ######### */
+        Logger.info("Mime Structure of %s:\n%s", Strings.nullToEmpty(emailFileName), MimeMessageParser.printStructure(message));
+
+        Logger.debug("Find the main message body");
+        final MimeObjectEntry<Part> bodyPart = MimeMessageParser.findBodyPartWithoutDecoding(message);
+        ContentType bodyContentType = (bodyPart != null) ? bodyPart.getContentType() : new ContentType(ContentTypeCleaner.DEFAULT_CONTENTTYPE);
+
+        Logger.info("Extract the inline images");
+        // the images are read when the html is written, their base64 is streamed into the data uris
+        final CidIndex cidIndex = new CidIndex(MimeMessageParser.getInlineImageParts(message));
+
+        /* ######### Embed images in the html ######### */
+        final boolean isHtmlBody = bodyContentType.match("text/html");
+        String htmlBody = null;
+        if (isHtmlBody) {
+            // the body is decoded only once, everything after this point is written as utf-8
+            htmlBody = Strings.nullToEmpty(MimeMessageParser.getStringContent(bodyPart.getEntry()));
+        } else {
+            Logger.debug(
+                    "No html message body could be found, fall back to text/plain and embed it into a html document");
+        }
+
+        Logger.debug("Successfully parsed the email and converted it into html:");
+
+        Logger.debug("---------------Result-------------");
+        Logger.debug("Subject: %s", subject);
+        Logger.debug("From: %s", from);
+        if (recipientsTo.length > 0) {
+            Logger.debug("To: %s", Joiner.on(", ").join(recipientsTo));
+        }
+        if (recipientsCc.length > 0) {
+            Logger.debug("CC: %s", Joiner.on(", ").join(recipientsCc));
+        }
+        Logger.debug("Date: %s", sentDateStr);
+        if (isHtmlBody) {
+            String bodyExcerpt = htmlBody.replace("\n", "").replace("\r", "");
+            if (bodyExcerpt.length() >= 60) {
+                bodyExcerpt = bodyExcerpt.substring(0, 40) + " [...] " + bodyExcerpt.substring(bodyExcerpt.length() - 20);
+            }
+            Logger.debug("Body (excerpt): %s", bodyExcerpt);
+        } else {
+            Logger.debug("Body: %s (is streamed)", bodyContentType.getBaseType());
+        }
+        Logger.debug("----------------------------------");
+
+        Logger.info("Start conversion to pdf");
+
+        // html that is appended to the body
+        String htmlTail = outlineHtml;
+
+        if (!options.isHideHeaders()) {
+            String headers = "";
+
+            if (!Strings.isNullOrEmpty(from)) {
+                headers += String.format(
+                        HEADER_FIELD_TEMPLATE, "From", HtmlEscapers.htmlEscaper().escape(from));
+            }
+
+            if (!Strings.isNullOrEmpty(subject)) {
+                headers += String.format(
+                        HEADER_FIELD_TEMPLATE, "Subject", "<b>" + HtmlEscapers.htmlEscaper().escape(subject) + "<b>");
+            }
+
+            if (recipientsTo.length > 0) {
+                headers += String.format(
+                        HEADER_FIELD_TEMPLATE, "To", HtmlEscapers.htmlEscaper().escape(Joiner.on(", ").join(recipientsTo)));
+            }
+
+            if (recipientsCc.length > 0) {
+                headers += String.format(
+                        HEADER_FIELD_TEMPLATE, "Cc", HtmlEscapers.htmlEscaper().escape(Joiner.on(", ").join(recipientsCc)));
+            }
+
+            if (!Strings.isNullOrEmpty(sentDateStr)) {
+                headers += String.format(
+                        HEADER_FIELD_TEMPLATE, "Date", HtmlEscapers.htmlEscaper().escape(sentDateStr));
+            }
+
+            // the header document is embedded as data uri, so no temporary file is needed
+            String headerHtml = String.format(session.getHeaderTemplate(), headers);
+            String headerDataUri = "data:text/html;charset=utf-8;base64," + BaseEncoding.base64().encode(headerHtml.getBytes(StandardCharsets.UTF_8));
+
+            // Append this script tag dirty to the bottom
+            htmlTail += String.format(ADD_HEADER_IFRAME_JS_TAG_TEMPLATE, headerDataUri, session.getContentScript());
+        }
+
+        // Append attachment filename list to body
+        if (options.isAddAttachmentNames()) {
+            String attachmentsHtml = "";
+            List<AttachmentResource> attachments = EmailConverter.mimeMessageToEmail(message).getAttachments();
+            if (attachments.size() > 0) {
+                for (AttachmentResource attach : attachments) {
+                    attachmentsHtml += String.format(ATTACHMENT_ITEM_TEMPLATE, attach.getName());
+                }
+                htmlTail += String.format(ATTACHMENT_LIST_TEMPLATE, "Attachments:", attachmentsHtml);
+            }
+        }
+
+        final String finalHtmlBody = htmlBody;
+        final String finalHtmlTail = htmlTail;
+        return new HtmlSource() {
+            @Override
+            public void writeTo(OutputStream out) throws Exception {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+
+                if (isHtmlBody) {
+                    // embed the referenced images (cid) using data uris and declare utf-8 as charset, the html is
+                    // passed on as utf-8
+                    HtmlRewriter.rewrite(finalHtmlBody, cidIndex, writer);
+                    writer.write(finalHtmlTail);
+                } else {
+                    // embed the text/plain body into a html document, decoding and escaping it on the fly
+                    writer.write(PLAIN_TEXT_HTML_HEAD);
+                    if (bodyPart != null) {
+                        try (Reader reader = MimeMessageParser.getContentReader(bodyPart.getEntry(), bodyPart.getContentType())) {
+                            PlainTextHtmlEncoder.encode(reader, writer, cidIndex);
+                        }
+                    }
+                    writer.write(PLAIN_TEXT_HTML_FOOT_START);
+                    writer.write(finalHtmlTail);
+                    writer.write(PLAIN_TEXT_HTML_FOOT_END);
+                }
+
+                writer.flush();
+            }
+        };
+    }
+
+    /**
+     * Read the email, emails in the format of a {@link MessageFormat} plugin are converted to eml first.
+     *
+     * @param request  conversion request holding the email input
+     * @param listener receives the number of bytes read
+     * @return parsed message
+     * @throws Exception
+     */
+    private static MimeMessage readMessage(ConversionRequest request, ConversionListener listener) throws Exception {
+        InputStream in = request.openEmailInputStream();
+        CountingInputStream countingIn = new CountingInputStream(in);
+        try {
+            MimeMessage message;
+            MessageFormat format = request.getMessageFormat();
+            if (format != null) {
+                Logger.debug("Read %s file from %s, convert it to eml", format.getFileExtension(), request.getEmailFileName());
+                try (InputStream eml = format.toEml(countingIn)) {
+                    message = new MimeMessage(null, eml);
+                }
+            } else {
+                Logger.debug("Read eml file from %s", request.getEmailFileName());
+                message = new MimeMessage(null, countingIn);
+            }
+
+            listener.bytesProcessed(request, countingIn.getCount());
+            return message;
+        } finally {
+            if (!request.isStreaming()) {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * Save all attachments of the message into the attachment directory.
+     *
+     * @param message       mime message
+     * @param attachmentDir directory the attachments are saved to
+     * @param session       session, its mime type registry is used for attachments without a file name
+     * @throws Exception
+     */
+    private static void extractAttachments(MimeMessage message, File attachmentDir, ConversionSession session) throws Exception {
+        Logger.debug("Start extracting attachments");
+
+        List<AttachmentResource> attachments = EmailConverter.mimeMessageToEmail(message).getAttachments();
+
+        Logger.debug("Found %s attachments", attachments.size());
+
+        if (!attachments.isEmpty()) {
+            if (!attachmentDir.exists()) {
+                boolean successfullyCreatedAttachmentDir = attachmentDir.mkdirs();
+
+                if (!successfullyCreatedAttachmentDir && !attachmentDir.isDirectory()) {
+                    throw new IllegalStateException("Failed to create attachment directory");
+                }
+            }
+
+            Logger.info("Extract attachments to %s", attachmentDir.getAbsolutePath());
+        }
+
+        Map<String, Integer> attachmentFileNameFrequency = new HashMap<>();
+        for (int i = 0; i < attachments.size(); i++) {
+            File attachFile = null;
+            try {
+                Logger.debug("Process Attachment %s", i);
+
+                AttachmentResource attachmentResource = attachments.get(i);
+
+                String attachmentFilename = getAttachmentFilename(attachmentResource, attachmentFileNameFrequency);
+
+                if (!Strings.isNullOrEmpty(attachmentFilename)) {
+                    attachFile = new File(attachmentDir, attachmentFilename);
+                } else {
+                    String extension = "";
+
+                    // try to find at least the file extension via the mime type
+                    try {
+                        extension = session.getMimeTypes().forName(attachmentResource.getDataSource().getContentType()).getExtension();
+                    } catch (Exception e) {
+                        // ignore this error
+                    }
+
+                    Logger.debug("Attachment %s did not hold any name, use random name", i);
+                    attachFile = File.createTempFile("nameless-", extension, attachmentDir);
+                }
+
+                try (FileOutputStream fos = new FileOutputStream(attachFile)) {
+                    ByteStreams.copy(attachmentResource.getDataSourceInputStream(), fos);
+                }
+
+                Logger.debug("Saved Attachment %s to %s", i, attachFile.getAbsolutePath());
+            } catch (Exception e) {
+                Logger.error(
+                        "Could not save attachment to %s. Error: %s", attachFile, Throwables.getStackTraceAsString(e));
+            }
+        }
+    }
+
+    private static String getAttachmentFilename(AttachmentResource attachmentResource, Map<String, Integer> attachmentFileNameFrequency) {
+        String attachmentFilename = null;
+        try {
+            attachmentFilename = attachmentResource.getDataSource().getName();
+        } catch (Exception e) {
+            // ignore this error
+        }
+
+        if (Strings.isNullOrEmpty(attachmentFilename)) {
+            return null;
+        }
+
+        // see simple-java-mail MimeMessageParser.java (https://tinyurl.com/45f98j3x)
+        if (attachmentFilename.equals("UnknownAttachment")) {
+            return null;
+        }
+
+        // sanitize filename
+        attachmentFilename = FileNameSanitizer.sanitizeFileName(attachmentFilename, '_');
+
+        Integer fileNamesCount = attachmentFileNameFrequency.get(attachmentFilename);
+        if (fileNamesCount != null) {
+            attachmentFileNameFrequency.put(attachmentFilename, fileNamesCount + 1);
+
+            String extension = getFileExtension(attachmentFilename);
+
+            attachmentFilename = String.format("%s (%d)", getNameWithoutExtension(attachmentFilename), fileNamesCount);
+
+            if (!Strings.isNullOrEmpty(extension)) {
+                attachmentFilename += "." + extension;
+            }
+        } else {
+            attachmentFileNameFrequency.put(attachmentFilename, 2);
+        }
+
+        return attachmentFilename;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import jakarta.mail.internet.InternetHeaders;
+import jakarta.mail.internet.MimeUtility;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Groups the emails of a bundle by folder or thread.
+ *
+ * @author Nick Russler
+ */
+final class EmailGrouper {
+    private static final Pattern MESSAGE_ID_REGEX = Pattern.compile("<[^<>\\s]+>");
+    private static final Pattern SUBJECT_PREFIX_REGEX = Pattern.compile("^(\\s*(re|aw|fw|fwd|wg)\\s*(\\[\\d+\\])?\\s*:)+\\s*", Pattern.CASE_INSENSITIVE);
+
+    private EmailGrouper() {
+    }
+
+    /**
+     * Group of emails, the emails keep the order in which they were given.
+     */
+    static final class EmailGroup {
+        private final String title;
+        private final List<String> emailFilePaths = new ArrayList<>();
+
+        EmailGroup(String title) {
+            this.title = title;
+        }
+
+        String getTitle() {
+            return title;
+        }
+
+        List<String> getEmailFilePaths() {
+            return emailFilePaths;
+        }
+    }
+
+    /**
+     * Group the emails. Groups are ordered by their first email.
+     *
+     * @param emailFilePaths emails
+     * @param grouping       how the emails are grouped
+     * @return the groups, there is a single group if the emails are not grouped
+     * @throws Exception
+     */
+    static List<EmailGroup> group(List<String> emailFilePaths, BundleGrouping grouping) throws Exception {
+        Map<String, EmailGroup> groups = new LinkedHashMap<>();
+
+        for (String emailFilePath : emailFilePaths) {
+            String key;
+            String title;
+
+            if (grouping == BundleGrouping.FOLDER) {
+                File folder = new File(emailFilePath).getAbsoluteFile().getParentFile();
+                key = folder.getPath();
+                title = folder.getName();
+            } else if (grouping == BundleGrouping.THREAD) {
+                InternetHeaders headers = readHeaders(emailFilePath);
+                String subject = decodeHeader(headers.getHeader("Subject", null));
+
+                key = getThreadKey(headers.getHeader("References", " "), headers.getHeader("In-Reply-To", null), headers.getHeader("Message-ID", null), subject);
+                title = normalizeSubject(subject);
+            } else {
+                key = "";
+                title = "";
+            }
+
+            EmailGroup group = groups.get(key);
+            if (group == null) {
+                group = new EmailGroup(title);
+                groups.put(key, group);
+            }
+
+            group.getEmailFilePaths().add(emailFilePath);
+        }
+
+        return new ArrayList<>(groups.values());
+    }
+
+    /**
+     * The thread of a message is identified by the first message of the conversation, which is the first entry of
+     * the References header. Messages without references fall back to In-Reply-To, their own Message-ID and last
+     * to the subject without reply and forward prefixes.
+     */
+    static String getThreadKey(String references, String inReplyTo, String messageId, String subject) {
+        for (String header : new String[]{references, inReplyTo, messageId}) {
+            if (header != null) {
+                Matcher m = MESSAGE_ID_REGEX.matcher(header);
+                if (m.find()) {
+                    return m.group();
+                }
+            }
+        }
+
+        return "subject:" + normalizeSubject(subject).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Remove reply and forward prefixes like "Re:", "Fwd:" or "AW:" from the subject.
+     */
+    static String normalizeSubject(String subject) {
+        if (subject == null) {
+            return "";
+        }
+
+        return SUBJECT_PREFIX_REGEX.matcher(subject).replaceFirst("").trim();
+    }
+
+    private static String decodeHeader(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        try {
+            return MimeUtility.decodeText(MimeUtility.unfold(value));
+        } catch (Exception e) {
+            return value;
+        }
+    }
+
+    /**
+     * Read only the headers of the email, emails in the format of a plugin have to be converted completely.
+     */
+    private static InternetHeaders readHeaders(String emailFilePath) throws Exception {
+        ConversionRequest request = new ConversionRequest(emailFilePath);
+
+        try (InputStream in = new BufferedInputStream(request.openEmailInputStream())) {
+            MessageFormat format = request.getMessageFormat();
+            if (format != null) {
+                try (InputStream eml = format.toEml(in)) {
+                    return new InternetHeaders(eml);
+                }
+            }
+
+            return new InternetHeaders(in);
+        }
+    }
+}
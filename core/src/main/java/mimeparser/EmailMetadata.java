@@ -0,0 +1,195 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import jakarta.mail.Part;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.util.SharedFileInputStream;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The headers of an email that are needed to triage it, together with its size and the names of its attachments.
+ *
+ * Reading the metadata does not decode any body and does not render anything: jakarta.mail parses the header block
+ * and the headers of the mime parts, the bodies are only skipped. This makes it suitable for millions of emails.
+ *
+ * @author Nick Russler
+ */
+public final class EmailMetadata {
+    static {
+        Converter.configureMimeParser();
+    }
+
+    private final String messageId;
+    private final String from;
+    private final List<String> to;
+    private final List<String> cc;
+    private final String subject;
+    private final String date;
+    private final long size;
+    private final List<String> attachmentNames;
+
+    private EmailMetadata(String messageId, String from, List<String> to, List<String> cc, String subject, String date, long size, List<String> attachmentNames) {
+        this.messageId = messageId;
+        this.from = from;
+        this.to = to;
+        this.cc = cc;
+        this.subject = subject;
+        this.date = date;
+        this.size = size;
+        this.attachmentNames = attachmentNames;
+    }
+
+    /**
+     * Read the metadata of an email file. Emails in the format of a {@link MessageFormat} plugin have to be converted
+     * to eml completely first.
+     *
+     * @param emailFile email file
+     * @return metadata of the email
+     * @throws Exception
+     */
+    public static EmailMetadata read(File emailFile) throws Exception {
+        MessageFormat format = MessageFormats.forFileName(emailFile.getName());
+
+        if (format != null) {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(emailFile)); InputStream eml = format.toEml(in)) {
+                return read(new MimeMessage(null, eml), emailFile.length());
+            }
+        }
+
+        // with a shared stream jakarta.mail refers to the bodies by their position in the file instead of copying them
+        SharedFileInputStream in = new SharedFileInputStream(emailFile);
+        try {
+            return read(new MimeMessage(null, in), emailFile.length());
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @param message parsed message, its bodies are not decoded
+     * @param size    size of the email in bytes
+     * @return metadata of the message
+     * @throws Exception
+     */
+    static EmailMetadata read(MimeMessage message, long size) throws Exception {
+        List<String> attachmentNames = new ArrayList<>();
+        for (Part attachment : MimeMessageParser.getAttachments(message)) {
+            String name = attachment.getFileName();
+            if (name != null) {
+                attachmentNames.add(name);
+            }
+        }
+
+        return new EmailMetadata(
+                message.getMessageID(),
+                MimeMessageConverter.getFrom(message),
+                trim(MimeMessageConverter.getRecipients(message, "To")),
+                trim(MimeMessageConverter.getRecipients(message, "Cc")),
+                MimeMessageConverter.parseSubject(message),
+                getDate(message),
+                size,
+                Collections.unmodifiableList(attachmentNames));
+    }
+
+    /**
+     * The date is formatted as ISO-8601 instant in UTC, so the values of different time zones can be sorted. If the
+     * date can not be parsed the raw header value is kept.
+     */
+    private static String getDate(MimeMessage message) {
+        try {
+            Date sentDate = message.getSentDate();
+            if (sentDate != null) {
+                return DateTimeFormatter.ISO_INSTANT.format(sentDate.toInstant());
+            }
+        } catch (Exception e) {
+            // fall back to the raw value
+        }
+
+        try {
+            return message.getHeader("Date", null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static List<String> trim(String[] recipients) {
+        String[] result = new String[recipients.length];
+        for (int i = 0; i < recipients.length; i++) {
+            result[i] = recipients[i].trim();
+        }
+
+        return Collections.unmodifiableList(Arrays.asList(result));
+    }
+
+    /**
+     * @return the Message-ID header including the angle brackets, may be null
+     */
+    public String getMessageId() {
+        return messageId;
+    }
+
+    /**
+     * @return the decoded From header, or the Sender header if there is no From header, may be null
+     */
+    public String getFrom() {
+        return from;
+    }
+
+    public List<String> getTo() {
+        return to;
+    }
+
+    public List<String> getCc() {
+        return cc;
+    }
+
+    /**
+     * @return the decoded subject, empty if the email has none
+     */
+    public String getSubject() {
+        return subject;
+    }
+
+    /**
+     * @return the sent date as ISO-8601 instant (e.g. "2016-03-14T09:26:53Z"), the raw header value if it could not
+     *         be parsed, or null if the email has no date
+     */
+    public String getDate() {
+        return date;
+    }
+
+    /**
+     * @return size of the email file in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    public List<String> getAttachmentNames() {
+        return attachmentNames;
+    }
+}
@@ -0,0 +1,390 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import util.Logger;
+
+/**
+ * Rewrites a html document in a single linear pass over its tags.
+ *
+ * Attribute values that reference an inline image ("cid:...", e.g. in src or background attributes and in css url()
+ * of style attributes and style elements) are replaced with the resolved data uri, and the charset declared by meta
+ * tags in the document head is replaced with utf-8.
+ *
+ * The scanner never backtracks, so malformed html (unterminated quotes, comments or tags) can not cause quadratic
+ * runtime.
+ *
+ * The rewritten document can be written to a writer, then the data uris are streamed by the {@link CidResolver} and
+ * the images are never copied into the document.
+ *
+ * @author Nick Russler
+ */
+public class HtmlRewriter {
+    private static final String UTF_8 = "utf-8";
+
+    private final String html;
+    private final CidResolver cidResolver;
+    private final int length;
+
+    // created lazily when the first replacement happens, unless the document is written to a writer
+    private Writer out;
+
+    private boolean replaced = false;
+
+    // html[0, copied) has been written to out
+    private int copied = 0;
+
+    private boolean inHead = true;
+
+    private HtmlRewriter(String html, CidResolver cidResolver, Writer out) {
+        this.html = html;
+        this.cidResolver = cidResolver;
+        this.length = html.length();
+        this.out = out;
+    }
+
+    /**
+     * Replace cid references with data uris and declare utf-8 as charset.
+     *
+     * @param html        html document
+     * @param cidResolver resolves cid references to data uris
+     * @return rewritten html document, or the document itself if nothing had to be replaced
+     */
+    public static String rewrite(String html, CidResolver cidResolver) {
+        HtmlRewriter rewriter = new HtmlRewriter(html, cidResolver, null);
+        try {
+            rewriter.scan();
+
+            if (!rewriter.replaced) {
+                return html;
+            }
+
+            rewriter.out.write(html, rewriter.copied, html.length() - rewriter.copied);
+        } catch (IOException e) {
+            // a StringWriter does not throw, only the resolver may fail to read an image
+            Logger.error("Could not embed the inline images: %s", e.getMessage());
+            return html;
+        }
+
+        return rewriter.out.toString();
+    }
+
+    /**
+     * Replace cid references with data uris and declare utf-8 as charset while writing the document.
+     *
+     * @param html        html document
+     * @param cidResolver resolves cid references, the data uris are written by {@link CidResolver#writeDataUri}
+     * @param out         writer for the rewritten html document
+     * @throws IOException if writing or reading an inline image failed
+     */
+    public static void rewrite(String html, CidResolver cidResolver, Writer out) throws IOException {
+        HtmlRewriter rewriter = new HtmlRewriter(html, cidResolver, out);
+        rewriter.scan();
+
+        out.write(html, rewriter.copied, html.length() - rewriter.copied);
+    }
+
+    private void scan() throws IOException {
+        int i = html.indexOf('<');
+
+        while (i >= 0 && i < length) {
+            if (html.startsWith("<!--", i)) {
+                int commentEnd = html.indexOf("-->", i + 4);
+                if (commentEnd < 0) {
+                    return;
+                }
+
+                i = html.indexOf('<', commentEnd + 3);
+                continue;
+            }
+
+            i = scanTag(i);
+
+            if (i < length) {
+                i = html.indexOf('<', i);
+            }
+        }
+    }
+
+    /**
+     * Scan the tag starting at the given '&lt;'.
+     *
+     * @return index after the tag
+     */
+    private int scanTag(int tagStart) throws IOException {
+        int p = tagStart + 1;
+
+        boolean closing = p < length && html.charAt(p) == '/';
+        if (closing) {
+            p++;
+        }
+
+        if (p >= length || !Character.isLetter(html.charAt(p))) {
+            return tagStart + 1;
+        }
+
+        int nameStart = p;
+        while (p < length && isTagNameChar(html.charAt(p))) {
+            p++;
+        }
+
+        if (closing) {
+            if (isName(nameStart, p, "head")) {
+                inHead = false;
+            }
+
+            return p;
+        }
+
+        if (isName(nameStart, p, "body")) {
+            inHead = false;
+        }
+
+        boolean isMeta = inHead && isName(nameStart, p, "meta");
+        boolean isStyle = isName(nameStart, p, "style");
+        boolean isScript = isName(nameStart, p, "script");
+
+        p = scanAttributes(p, isMeta);
+
+        // the content of style elements may reference inline images via url(), script content is skipped
+        if (isStyle || isScript) {
+            int end = indexOfClosingTag(p, isStyle ? "style" : "script");
+
+            if (isStyle) {
+                rewriteCssUrls(p, end);
+            }
+
+            return end;
+        }
+
+        return p;
+    }
+
+    /**
+     * Scan the attributes of a tag.
+     *
+     * @return index after the tag
+     */
+    private int scanAttributes(int p, boolean isMeta) throws IOException {
+        while (p < length) {
+            char c = html.charAt(p);
+
+            if (c == '>') {
+                return p + 1;
+            }
+
+            if (Character.isWhitespace(c) || c == '/') {
+                p++;
+                continue;
+            }
+
+            int attrNameStart = p;
+            while (p < length && !isAttributeNameEnd(html.charAt(p))) {
+                p++;
+            }
+            int attrNameEnd = p;
+
+            // stray '=' or quote, skip it
+            if (attrNameStart == attrNameEnd) {
+                p++;
+                continue;
+            }
+
+            p = skipWhitespace(p);
+            if (p >= length || html.charAt(p) != '=') {
+                continue;
+            }
+
+            p = skipWhitespace(p + 1);
+            if (p >= length) {
+                return p;
+            }
+
+            int valueStart;
+            int valueEnd;
+            char quote = html.charAt(p);
+            if (quote == '"' || quote == '\'') {
+                valueStart = p + 1;
+                valueEnd = html.indexOf(quote, valueStart);
+                if (valueEnd < 0) {
+                    valueEnd = length;
+                }
+                p = Math.min(valueEnd + 1, length);
+            } else {
+                valueStart = p;
+                while (p < length && !Character.isWhitespace(html.charAt(p)) && html.charAt(p) != '>') {
+                    p++;
+                }
+                valueEnd = p;
+            }
+
+            rewriteAttribute(attrNameStart, attrNameEnd, valueStart, valueEnd, isMeta);
+        }
+
+        return p;
+    }
+
+    private void rewriteAttribute(int nameStart, int nameEnd, int valueStart, int valueEnd, boolean isMeta) throws IOException {
+        int v = skipWhitespace(valueStart);
+
+        if (v + 4 <= valueEnd && html.regionMatches(true, v, "cid:", 0, 4)) {
+            replaceCid(v, valueEnd, html.substring(v + 4, valueEnd).trim());
+        } else if (isName(nameStart, nameEnd, "style")) {
+            rewriteCssUrls(valueStart, valueEnd);
+        } else if (isMeta && isName(nameStart, nameEnd, "charset")) {
+            replaceCharset(valueStart, valueEnd);
+        } else if (isMeta && isName(nameStart, nameEnd, "content")) {
+            // e.g. <meta http-equiv="Content-Type" content="text/html; charset=iso-8859-1">
+            int charset = indexOfIgnoreCase("charset", valueStart, valueEnd);
+            if (charset < 0) {
+                return;
+            }
+
+            int p = skipWhitespace(charset + 7);
+            if (p >= valueEnd || html.charAt(p) != '=') {
+                return;
+            }
+
+            p = skipWhitespace(p + 1);
+            int charsetEnd = p;
+            while (charsetEnd < valueEnd && !isCharsetEnd(html.charAt(charsetEnd))) {
+                charsetEnd++;
+            }
+
+            replaceCharset(p, charsetEnd);
+        }
+    }
+
+    /**
+     * Replace references like url(cid:x), url('cid:x') or url("cid:x") in the css between start and end.
+     */
+    private void rewriteCssUrls(int start, int end) throws IOException {
+        int p = indexOfIgnoreCase("url(", start, end);
+
+        while (p >= 0) {
+            int v = skipWhitespace(p + 4);
+            char quote = v < end ? html.charAt(v) : 0;
+            if (quote == '"' || quote == '\'') {
+                v++;
+            } else {
+                quote = ')';
+            }
+
+            int refEnd = v;
+            if (v + 4 <= end && html.regionMatches(true, v, "cid:", 0, 4)) {
+                while (refEnd < end && html.charAt(refEnd) != quote && html.charAt(refEnd) != ')') {
+                    refEnd++;
+                }
+
+                replaceCid(v, refEnd, html.substring(v + 4, refEnd).trim());
+            }
+
+            p = indexOfIgnoreCase("url(", Math.max(refEnd, p + 4), end);
+        }
+    }
+
+    private void replaceCid(int start, int end, String cid) throws IOException {
+        // a Content-ID is a header value, longer references are malformed html
+        if (cid.length() > PlainTextHtmlEncoder.MAX_CID_LENGTH) {
+            return;
+        }
+
+        copyTo(start);
+
+        // found no image for this cid, leave the reference as it is
+        if (!cidResolver.writeDataUri(cid, out)) {
+            Logger.error("Found no inline image for cid: %s", cid);
+            return;
+        }
+
+        copied = end;
+        replaced = true;
+    }
+
+    private void replaceCharset(int start, int end) throws IOException {
+        if (!html.regionMatches(true, start, UTF_8, 0, UTF_8.length()) || end - start != UTF_8.length()) {
+            Logger.debug("Html declared charset %s, override with utf-8", html.substring(start, end));
+
+            copyTo(start);
+            out.write(UTF_8);
+            copied = end;
+            replaced = true;
+        }
+    }
+
+    /**
+     * Write the html up to the given index.
+     */
+    private void copyTo(int end) throws IOException {
+        if (out == null) {
+            out = new StringWriter(length + 1024);
+        }
+
+        out.write(html, copied, end - copied);
+        copied = end;
+    }
+
+    private int indexOfClosingTag(int start, String name) {
+        for (int i = html.indexOf("</", start); i >= 0; i = html.indexOf("</", i + 2)) {
+            if (html.regionMatches(true, i + 2, name, 0, name.length())) {
+                return i;
+            }
+        }
+
+        return length;
+    }
+
+    private int indexOfIgnoreCase(String s, int start, int end) {
+        char first = s.charAt(0);
+
+        for (int i = start; i + s.length() <= end; i++) {
+            char c = html.charAt(i);
+            if ((c == first || Character.toLowerCase(c) == first) && html.regionMatches(true, i, s, 0, s.length())) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private boolean isName(int start, int end, String name) {
+        return end - start == name.length() && html.regionMatches(true, start, name, 0, name.length());
+    }
+
+    private int skipWhitespace(int p) {
+        while (p < length && Character.isWhitespace(html.charAt(p))) {
+            p++;
+        }
+
+        return p;
+    }
+
+    private static boolean isTagNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '-' || c == ':' || c == '_';
+    }
+
+    private static boolean isAttributeNameEnd(char c) {
+        return Character.isWhitespace(c) || c == '=' || c == '>' || c == '/' || c == '"' || c == '\'';
+    }
+
+    private static boolean isCharsetEnd(char c) {
+        return Character.isWhitespace(c) || c == ';' || c == '"' || c == '\'';
+    }
+}
@@ -14,13 +14,15 @@
  * limitations under the License.
  */
 
-package util;
+package mimeparser;
 
-import java.util.regex.Matcher;
+import java.io.OutputStream;
 
 /**
- * Interface for the Recursive Callback.
+ * Callback that writes a html document, so it can be streamed into the renderer without being buffered first.
+ *
+ * @author Nick Russler
  */
-public interface StringReplacerCallback {
-    String replace(Matcher match) throws Exception;
+public interface HtmlSource {
+    void writeTo(OutputStream out) throws Exception;
 }
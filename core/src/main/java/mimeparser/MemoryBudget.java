@@ -0,0 +1,163 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Semaphore;
+import util.Logger;
+
+/**
+ * Global heap budget for concurrent conversions. Every conversion reserves its estimated heap footprint before it
+ * reads the email and blocks while the budget is exhausted.
+ *
+ * The budget is fair, so a large conversion is not starved by a stream of small ones. A conversion that needs more
+ * than the whole budget runs alone.
+ *
+ * @author Nick Russler
+ */
+public class MemoryBudget {
+    // share of the available memory that conversions may use, the rest is left for everything else in the jvm
+    private static final double HEAP_SHARE = 0.75;
+
+    // fallback if neither the jvm nor the container limit the memory
+    private static final long UNLIMITED_FALLBACK = 1024L * 1024 * 1024;
+
+    // cgroup v1 reports "no limit" as a huge number
+    private static final long CGROUP_UNLIMITED = 1L << 60;
+
+    private static final String[] CGROUP_LIMIT_FILES = {
+            "/sys/fs/cgroup/memory.max", // cgroup v2
+            "/sys/fs/cgroup/memory/memory.limit_in_bytes" // cgroup v1
+    };
+
+    // the semaphore counts KiB, so budgets up to 2 TiB fit into its int permits
+    private static final int UNIT = 1024;
+
+    private final Semaphore permits;
+    private final int capacity;
+
+    /**
+     * @param capacityBytes size of the budget in bytes
+     */
+    public MemoryBudget(long capacityBytes) {
+        this.capacity = (int) Math.max(1, Math.min(Integer.MAX_VALUE, capacityBytes / UNIT));
+        this.permits = new Semaphore(capacity, true);
+    }
+
+    /**
+     * @return a budget sized from the maximum heap of the jvm and the memory limit of the container
+     */
+    public static MemoryBudget createDefault() {
+        long capacity = getDefaultCapacity();
+        Logger.debug("Memory budget for conversions is %d MiB", capacity / (1024 * 1024));
+
+        return new MemoryBudget(capacity);
+    }
+
+    static long getDefaultCapacity() {
+        long limit = Runtime.getRuntime().maxMemory();
+
+        long containerLimit = getContainerMemoryLimit();
+        if (containerLimit > 0) {
+            limit = Math.min(limit, containerLimit);
+        }
+
+        if (limit == Long.MAX_VALUE) {
+            limit = UNLIMITED_FALLBACK;
+        }
+
+        return (long) (limit * HEAP_SHARE);
+    }
+
+    /**
+     * @return the memory limit of the cgroup the jvm runs in, or -1 if there is none
+     */
+    static long getContainerMemoryLimit() {
+        for (String path : CGROUP_LIMIT_FILES) {
+            File file = new File(path);
+            if (!file.isFile()) {
+                continue;
+            }
+
+            try {
+                String value = Files.asCharSource(file, StandardCharsets.US_ASCII).read().trim();
+                if (!"max".equals(value)) {
+                    long limit = Long.parseLong(value);
+                    if (limit > 0 && limit < CGROUP_UNLIMITED) {
+                        return limit;
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                Logger.debug("Could not read the container memory limit from %s: %s", path, e.getMessage());
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Reserve memory, blocks until enough of the budget is free.
+     *
+     * @param bytes estimated memory
+     * @return the reservation, it has to be released when the conversion is finished
+     * @throws InterruptedException
+     */
+    public Reservation reserve(long bytes) throws InterruptedException {
+        int units = (int) Math.max(1, Math.min(capacity, (bytes + UNIT - 1) / UNIT));
+
+        if (!permits.tryAcquire(units)) {
+            Logger.debug("Memory budget exhausted, wait for %d MiB", bytes / (1024 * 1024));
+            permits.acquire(units);
+        }
+
+        return new Reservation(units);
+    }
+
+    /**
+     * @return the free part of the budget in bytes
+     */
+    public long getAvailable() {
+        return (long) permits.availablePermits() * UNIT;
+    }
+
+    public long getCapacity() {
+        return (long) capacity * UNIT;
+    }
+
+    /**
+     * Reserved part of the budget.
+     */
+    public final class Reservation implements AutoCloseable {
+        private int units;
+
+        private Reservation(int units) {
+            this.units = units;
+        }
+
+        /**
+         * Give the memory back to the budget, releasing a reservation twice has no effect.
+         */
+        @Override
+        public synchronized void close() {
+            permits.release(units);
+            units = 0;
+        }
+    }
+}
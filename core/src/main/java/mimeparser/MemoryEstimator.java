@@ -0,0 +1,175 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Estimates the heap footprint of converting an email from its size and its mime structure.
+ *
+ * The whole email is held in memory while it is converted. On top of that the html body is decoded into Strings and
+ * copied when it is rewritten, inline images are held as base64 Strings and copied into the html as data uris, and
+ * attachments are decoded into byte arrays when they are listed or extracted. The structure is found with a single
+ * scan over the lines of the email, without parsing it.
+ *
+ * @author Nick Russler
+ */
+final class MemoryEstimator {
+    // templates, buffers and the parsed structure of a message
+    static final long BASE_FOOTPRINT = 8 * 1024 * 1024;
+
+    // msg files and other formats are converted into an eml first
+    private static final int CONVERTED_FORMAT_FACTOR = 6;
+
+    // decoded body, the rewritten html and the parts of the html that are written to the renderer
+    private static final int TEXT_FACTOR = 4;
+
+    // base64 String of the image, the data uri and the html it is embedded in
+    private static final int INLINE_IMAGE_FACTOR = 5;
+
+    // attachments are decoded into byte arrays when they are listed or extracted
+    private static final int ATTACHMENT_FACTOR = 2;
+
+    private static final int MAX_HEADER_LINE = 128;
+
+    private MemoryEstimator() {
+    }
+
+    /**
+     * @param request email that is converted
+     * @param options conversion options, attachments only cost memory if they are listed or extracted
+     * @return the estimated heap footprint in bytes
+     */
+    static long estimate(ConversionRequest request, ConversionOptions options) {
+        // streamed emails are already in memory of the caller, only their processing is counted
+        if (request.getEmailFilePath() == null) {
+            return BASE_FOOTPRINT;
+        }
+
+        File emailFile = new File(request.getEmailFilePath());
+        long size = emailFile.length();
+
+        if (request.getMessageFormat() != null) {
+            return BASE_FOOTPRINT + CONVERTED_FORMAT_FACTOR * size;
+        }
+
+        try {
+            return estimate(scan(emailFile), options);
+        } catch (IOException e) {
+            return BASE_FOOTPRINT + (TEXT_FACTOR + INLINE_IMAGE_FACTOR) * size;
+        }
+    }
+
+    static long estimate(Structure structure, ConversionOptions options) {
+        long attachmentFactor = (options.isAddAttachmentNames() || options.isExtractAttachments()) ? ATTACHMENT_FACTOR : 0;
+
+        return BASE_FOOTPRINT + structure.size
+                + TEXT_FACTOR * structure.textBytes
+                + INLINE_IMAGE_FACTOR * structure.inlineBytes
+                + attachmentFactor * structure.attachmentBytes;
+    }
+
+    /**
+     * Sizes of the kinds of parts of an email.
+     */
+    static final class Structure {
+        long size;
+        long textBytes;
+        long inlineBytes;
+        long attachmentBytes;
+    }
+
+    /**
+     * Sort the bytes of every part body into text, inline images (parts with a Content-ID) and attachments.
+     */
+    static Structure scan(File emailFile) throws IOException {
+        try (InputStream in = new FileInputStream(emailFile)) {
+            return scan(in);
+        }
+    }
+
+    static Structure scan(InputStream in) throws IOException {
+        Structure structure = new Structure();
+
+        byte[] buffer = new byte[64 * 1024];
+        byte[] line = new byte[MAX_HEADER_LINE];
+        int lineLength = 0;
+        long fullLineLength = 0;
+
+        boolean inHeaders = true;
+        boolean inline = false;
+        boolean attachment = false;
+
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            structure.size += read;
+
+            for (int i = 0; i < read; i++) {
+                byte b = buffer[i];
+                fullLineLength++;
+
+                if (b != '\n') {
+                    if (lineLength < line.length) {
+                        line[lineLength++] = b;
+                    }
+                    continue;
+                }
+
+                if (lineLength > 2 && line[0] == '-' && line[1] == '-') {
+                    // a boundary, the headers of the next part follow
+                    inHeaders = true;
+                    inline = false;
+                    attachment = false;
+                } else if (inHeaders) {
+                    if (lineLength == 0 || (lineLength == 1 && line[0] == '\r')) {
+                        inHeaders = false;
+                    } else if (line[0] == 'C' || line[0] == 'c') {
+                        String header = new String(line, 0, lineLength, StandardCharsets.ISO_8859_1).toLowerCase(Locale.ROOT);
+                        inline |= header.startsWith("content-id:");
+                        attachment |= header.startsWith("content-disposition:") && header.contains("attachment");
+                    }
+                } else if (attachment) {
+                    structure.attachmentBytes += fullLineLength;
+                } else if (inline) {
+                    structure.inlineBytes += fullLineLength;
+                } else {
+                    structure.textBytes += fullLineLength;
+                }
+
+                lineLength = 0;
+                fullLineLength = 0;
+            }
+        }
+
+        if (!inHeaders) {
+            if (attachment) {
+                structure.attachmentBytes += fullLineLength;
+            } else if (inline) {
+                structure.inlineBytes += fullLineLength;
+            } else {
+                structure.textBytes += fullLineLength;
+            }
+        }
+
+        return structure;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import java.io.InputStream;
+
+/**
+ * An email format that is not MIME, e.g. outlook msg files. Emails in such a format are converted to eml before they
+ * are parsed.
+ *
+ * Formats are plugins: implementations are found with the {@link java.util.ServiceLoader}, so a format is supported
+ * as soon as the module that registers it in {@code META-INF/services/mimeparser.MessageFormat} is on the classpath.
+ * Without any plugin only eml files are supported, which keeps the libraries of the other formats out of services
+ * that do not need them.
+ *
+ * @author Nick Russler
+ */
+public interface MessageFormat {
+    /**
+     * @return file extension of the format without the dot, e.g. "msg"
+     */
+    String getFileExtension();
+
+    /**
+     * Convert the email to eml.
+     *
+     * @param in email in this format, it is closed by the caller
+     * @return stream of the eml
+     * @throws Exception
+     */
+    InputStream toEml(InputStream in) throws Exception;
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.ServiceLoader;
+import util.Logger;
+
+/**
+ * The email formats that are supported, eml and every {@link MessageFormat} plugin on the classpath.
+ *
+ * @author Nick Russler
+ */
+public final class MessageFormats {
+    /**
+     * File extension of MIME emails, they are parsed without conversion.
+     */
+    public static final String EML_EXTENSION = "eml";
+
+    // the plugins are looked up on first use
+    private static final Supplier<List<MessageFormat>> PLUGINS = Suppliers.memoize(new Supplier<List<MessageFormat>>() {
+        @Override
+        public List<MessageFormat> get() {
+            List<MessageFormat> result = new ArrayList<>();
+            for (MessageFormat format : ServiceLoader.load(MessageFormat.class, MessageFormat.class.getClassLoader())) {
+                Logger.debug("Found %s plugin %s", format.getFileExtension(), format.getClass().getName());
+                result.add(format);
+            }
+
+            return Collections.unmodifiableList(result);
+        }
+    });
+
+    private MessageFormats() {
+    }
+
+    /**
+     * Find the plugin that reads the email.
+     *
+     * @param emailFileName name of the email, may be null
+     * @return the format of the email, or null if it is read as eml
+     */
+    public static MessageFormat forFileName(String emailFileName) {
+        if (emailFileName == null) {
+            return null;
+        }
+
+        String name = emailFileName.toLowerCase(Locale.ROOT);
+        for (MessageFormat format : PLUGINS.get()) {
+            if (name.endsWith("." + format.getFileExtension().toLowerCase(Locale.ROOT))) {
+                return format;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the file extensions of all supported formats without the dot, eml comes first
+     */
+    public static List<String> getFileExtensions() {
+        List<String> result = new ArrayList<>();
+        result.add(EML_EXTENSION);
+
+        for (MessageFormat format : PLUGINS.get()) {
+            result.add(format.getFileExtension().toLowerCase(Locale.ROOT));
+        }
+
+        return result;
+    }
+
+    /**
+     * @param fileName name of a file
+     * @return true if the file has the extension of a supported format, e.g. to pick the emails of a directory
+     */
+    public static boolean isSupported(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+
+        for (String extension : getFileExtensions()) {
+            if (name.endsWith("." + extension)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import com.google.common.base.Strings;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeUtility;
+import java.io.UnsupportedEncodingException;
+import java.util.List;
+
+/**
+ * Converts email (eml, msg) files into pdf files.
+ *
+ * @author Nick Russler
+ * @see Converter
+ */
+public class MimeMessageConverter {
+    static {
+        Converter.configureMimeParser();
+    }
+
+    /**
+     * Convert an email (eml, msg) file to PDF.
+     * This is a shortcut that builds a new {@link Converter} on every call, reuse a Converter for multiple emails instead.
+     *
+     * @throws Exception
+     */
+    public static void convertToPdf(String emailFilePath, String pdfOutputPath, boolean hideHeaders, boolean addAttachmentNames, boolean extractAttachments, String attachmentsdir, List<String> extParams) throws Exception {
+        ConversionOptions options = ConversionOptions.builder()
+                .hideHeaders(hideHeaders)
+                .addAttachmentNames(addAttachmentNames)
+                .extractAttachments(extractAttachments)
+                .pageSize(null)
+                .dpi(null)
+                .rendererArgs(extParams)
+                .build();
+
+        new Converter(options).convert(new ConversionRequest(emailFilePath, pdfOutputPath, attachmentsdir));
+    }
+
+    /**
+     * @return the decoded From header, or the Sender header if there is no From header, may be null
+     */
+    static String getFrom(MimeMessage message) throws MessagingException {
+        String from = message.getHeader("From", null);
+        if (from == null) {
+            from = message.getHeader("Sender", null);
+        }
+
+        try {
+            from = MimeUtility.decodeText(MimeUtility.unfold(from));
+        } catch (Exception e) {
+            // ignore this error
+        }
+
+        return from;
+    }
+
+    static String[] getRecipients(final MimeMessage message, String header) throws MessagingException {
+        String[] recipients = new String[0];
+        String recipientsRaw = message.getHeader(header, null);
+        if (!Strings.isNullOrEmpty(recipientsRaw)) {
+            try {
+                recipientsRaw = MimeUtility.unfold(recipientsRaw);
+                recipients = recipientsRaw.split(",");
+                for (int i = 0; i < recipients.length; i++) {
+                    recipients[i] = MimeUtility.decodeText(recipients[i]);
+                }
+            } catch (Exception e) {
+                // ignore this error
+            }
+        }
+        return recipients;
+    }
+
+    public static String parseSubject(MimeMessage message) {
+        String subject;
+        try {
+            subject = message.getSubject();
+        } catch (MessagingException e) {
+            return ""; // fallback to empty subject
+        }
+
+        if (subject == null) {
+            subject = "";
+        }
+
+        // heuristically decoding of malformed encoded subjects (see https://stackoverflow.com/a/4725175)
+        if (subject.startsWith("=?") && subject.endsWith("?=") && subject.contains(" ")) {
+            try {
+                subject = MimeUtility.decodeText(MimeUtility.unfold(subject.replaceAll(" ", "=20")));
+            } catch (UnsupportedEncodingException ex) {
+                // ignore this error
+            }
+        }
+
+        return subject;
+    }
+}
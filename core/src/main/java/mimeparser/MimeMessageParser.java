@@ -0,0 +1,476 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Multipart;
+import jakarta.mail.Part;
+import jakarta.mail.internet.ContentDisposition;
+import jakarta.mail.internet.ContentType;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimePart;
+import jakarta.mail.internet.MimeUtility;
+import util.Logger;
+
+/**
+ * Utility class to parse a MimeMessage.
+ *
+ * @author Nick Russler
+ */
+public class MimeMessageParser {
+    /***
+     * Walk the Mime Structure recursivly and execute the callback on every part.
+     *
+     * @param p        mime object
+     * @param level    of current depth of the part
+     * @param callback Object holding the callback function
+     * @throws Exception
+     */
+    private static void walkMimeStructure(Part p, int level, WalkMimeCallback callback) throws Exception {
+        callback.walkMimeCallback(p, level);
+
+        if (p.isMimeType("multipart/*")) {
+            Multipart mp = (Multipart) p.getContent();
+            for (int i = 0; i < mp.getCount(); i++) {
+                walkMimeStructure(mp.getBodyPart(i), level + 1, callback);
+            }
+        }
+    }
+
+    /***
+     * Print the structure of the Mime object.
+     *
+     * @param p Mime object
+     * @throws Exception
+     */
+    public static String printStructure(Part p) throws Exception {
+        final StringBuilder result = new StringBuilder();
+
+        result.append("-----------Mime Message-----------\n");
+        walkMimeStructure(p, 0, new WalkMimeCallback() {
+            @Override
+            public void walkMimeCallback(Part p, int level) throws Exception {
+                String s = "> " + Strings.repeat("|  ", level) + new ContentType(p.getContentType()).getBaseType();
+
+                String[] contentDispositionArr = p.getHeader("Content-Disposition");
+                if (contentDispositionArr != null) {
+                    s += "; " + new ContentDisposition(contentDispositionArr[0]).getDisposition();
+                }
+
+                result.append(s);
+                result.append("\n");
+            }
+        });
+        result.append("----------------------------------");
+
+        return result.toString();
+    }
+
+    /**
+     * Get the String Content of a MimePart.
+     *
+     * @param p MimePart
+     * @return Content as String
+     * @throws IOException
+     * @throws MessagingException
+     */
+    public static String getStringContent(Part p) throws IOException, MessagingException {
+        Object content;
+
+        try {
+            content = p.getContent();
+        } catch (Exception e) {
+            Logger.debug("Email body could not be read automatically (%s), we try to read it anyway.", e.toString());
+
+            // most likely the specified charset could not be found
+            content = p.getInputStream();
+        }
+
+        String stringContent = null;
+
+        if (content instanceof String) {
+            stringContent = (String) content;
+        } else if (content instanceof InputStream) {
+            stringContent = new String(ByteStreams.toByteArray((InputStream) content), "utf-8");
+        }
+
+        return stringContent;
+    }
+
+    /**
+     * Get the charset of a text part, falling back to utf-8 if it is missing or not supported.
+     *
+     * @param contentType ContentType of the part
+     * @return charset of the part
+     */
+    public static Charset getCharset(ContentType contentType) {
+        String charsetName = contentType.getParameter("charset");
+
+        try {
+            return Charset.forName(MimeUtility.javaCharset(charsetName));
+        } catch (Exception e) {
+            Logger.debug("Charset %s is not supported, fall back to utf-8", charsetName);
+            return StandardCharsets.UTF_8;
+        }
+    }
+
+    /**
+     * Open a Reader that decodes the content of a text part while it is read, instead of decoding it into a String.
+     *
+     * @param p           MimePart
+     * @param contentType ContentType of the part
+     * @return Reader of the decoded content
+     * @throws IOException
+     * @throws MessagingException
+     */
+    public static Reader getContentReader(Part p, ContentType contentType) throws IOException, MessagingException {
+        return new InputStreamReader(p.getInputStream(), getCharset(contentType));
+    }
+
+    /**
+     * Estimate the decoded size of a part from its encoded size, without decoding it.
+     *
+     * @param p MimePart
+     * @return estimated size in bytes
+     * @throws IOException
+     * @throws MessagingException
+     */
+    private static long estimateDecodedSize(Part p) throws IOException, MessagingException {
+        int size = p.getSize();
+
+        // size is unknown, count the decoded bytes instead
+        if (size < 0) {
+            try (InputStream in = p.getInputStream()) {
+                return ByteStreams.exhaust(in);
+            }
+        }
+
+        String encoding = (p instanceof MimePart) ? ((MimePart) p).getEncoding() : null;
+        if ("base64".equalsIgnoreCase(encoding)) {
+            return size * 3L / 4L;
+        }
+
+        return size;
+    }
+
+    /**
+     * Check if a text part has content other than whitespace, by reading its decoded bytes until the first
+     * non-whitespace byte is found instead of decoding the whole part into a String.
+     *
+     * @param p MimePart
+     * @return true if the part is empty or only contains whitespace
+     * @throws IOException
+     * @throws MessagingException
+     */
+    private static boolean isBlank(Part p) throws IOException, MessagingException {
+        InputStream in;
+        try {
+            in = p.getInputStream();
+        } catch (Exception e) {
+            return Strings.nullToEmpty(getStringContent(p)).trim().isEmpty();
+        }
+
+        try {
+            byte[] buffer = new byte[256];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    if ((buffer[i] & 0xff) > ' ') {
+                        return false;
+                    }
+                }
+            }
+
+            return true;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Find the part holding the main message body, prefering html over plain.
+     * The parts are compared by their estimated size, so no part has to be decoded.
+     *
+     * @param p mime object
+     * @return the main message body part and the corresponding contentType or null if there is no body
+     * @throws Exception
+     */
+    public static MimeObjectEntry<Part> findBodyPartWithoutDecoding(Part p) throws Exception {
+        final MimeObjectEntry<Part> result = new MimeObjectEntry<Part>(null, new ContentType("text/plain; charset=\"utf-8\""));
+        final long[] resultSize = {-1};
+
+        walkMimeStructure(p, 0, new WalkMimeCallback() {
+            @Override
+            public void walkMimeCallback(Part p, int level) throws Exception {
+                // only process text/plain and text/html
+                if (!p.isMimeType("text/plain") && !p.isMimeType("text/html")) {
+                    return;
+                }
+
+                // ignore attachments
+                if (Part.ATTACHMENT.equalsIgnoreCase(p.getDisposition())) {
+                    return;
+                }
+
+                // ignore text/plain part if we already found a text/html part
+                if (result.getContentType().match("text/html") && p.isMimeType("text/plain")) {
+                    return;
+                }
+
+                // ignore parts of same type and smaller size
+                long size = estimateDecodedSize(p);
+                boolean partAndResultHaveSameContentType = result.getContentType().match(p.getContentType());
+                if (partAndResultHaveSameContentType && size < resultSize[0]) {
+                    return;
+                }
+
+                // ignore empty parts
+                if (isBlank(p)) {
+                    return;
+                }
+
+                result.setEntry(p);
+                result.setContentType(new ContentType(p.getContentType()));
+                resultSize[0] = size;
+            }
+        });
+
+        if (result.getEntry() == null) {
+            return null;
+        }
+
+        return result;
+    }
+
+    /**
+     * Find the main message body, prefering html over plain. Only the selected part is decoded.
+     *
+     * @param p mime object
+     * @return the main message body and the corresponding contentType or an empty text/plain
+     * @throws Exception
+     */
+    public static MimeObjectEntry<String> findBodyPart(Part p) throws Exception {
+        MimeObjectEntry<Part> bodyPart = findBodyPartWithoutDecoding(p);
+
+        if (bodyPart == null) {
+            return new MimeObjectEntry<String>("", new ContentType("text/plain; charset=\"utf-8\""));
+        }
+
+        return new MimeObjectEntry<String>(Strings.nullToEmpty(getStringContent(bodyPart.getEntry())), bodyPart.getContentType());
+    }
+
+    /**
+     * Get all inline images (images with an Content-Id) as a Hashmap.
+     * The key is the Content-Id and all images in all multipart containers are included in the map.
+     *
+     * @param p mime object
+     * @return Hashmap&lt;Content-Id, &lt;Base64Image, ContentType&gt;&gt;
+     * @throws Exception
+     */
+    public static HashMap<String, MimeObjectEntry<String>> getInlineImageMap(Part p) throws Exception {
+        HashMap<String, MimeObjectEntry<String>> result = new HashMap<String, MimeObjectEntry<String>>();
+
+        for (Map.Entry<String, MimeObjectEntry<Part>> image : getInlineImageParts(p).entrySet()) {
+            result.put(image.getKey(), new MimeObjectEntry<String>(getBase64Content(image.getValue().getEntry()), image.getValue().getContentType()));
+        }
+
+        return result;
+    }
+
+    /**
+     * Get all inline images (images with an Content-Id) as a Hashmap without reading their content.
+     * The key is the Content-Id and all images in all multipart containers are included in the map.
+     *
+     * @param p mime object
+     * @return Hashmap&lt;Content-Id, &lt;Part, ContentType&gt;&gt;
+     * @throws Exception
+     */
+    public static HashMap<String, MimeObjectEntry<Part>> getInlineImageParts(Part p) throws Exception {
+        final HashMap<String, MimeObjectEntry<Part>> result = new HashMap<String, MimeObjectEntry<Part>>();
+
+        walkMimeStructure(p, 0, new WalkMimeCallback() {
+            @Override
+            public void walkMimeCallback(Part p, int level) throws Exception {
+                if (p.isMimeType("image/*") && (p.getHeader("Content-Id") != null)) {
+                    String id = p.getHeader("Content-Id")[0];
+
+                    result.put(id, new MimeObjectEntry<Part>(p, new ContentType(p.getContentType())));
+                }
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Get the content of the part encoded as base64 without line breaks.
+     *
+     * @param p mime object
+     * @return the base64 encoded content
+     * @throws Exception
+     * @see #writeBase64Content(Part, Writer)
+     */
+    static String getBase64Content(Part p) throws Exception {
+        StringWriter out = new StringWriter(Math.max(p.getSize(), 16));
+        writeBase64Content(p, out);
+
+        return out.toString();
+    }
+
+    /**
+     * Write the content of the part encoded as base64 without line breaks. If the part is transferred as valid base64
+     * the raw content is copied as is, otherwise the decoded content is encoded. Nothing is buffered beyond a fixed
+     * size block, so large images are never held in memory as a whole.
+     *
+     * @param p   mime object
+     * @param out writer for the base64 content
+     * @throws Exception
+     */
+    public static void writeBase64Content(Part p, final Writer out) throws Exception {
+        if (p instanceof MimeBodyPart && "base64".equalsIgnoreCase(((MimeBodyPart) p).getEncoding())) {
+            MimeBodyPart mimePart = (MimeBodyPart) p;
+
+            // the raw content is read twice, once to validate it and once to copy it
+            Base64Check check = new Base64Check();
+            try (InputStream in = mimePart.getRawInputStream()) {
+                stripBase64(in, check);
+            }
+
+            if (check.isValid()) {
+                try (InputStream in = mimePart.getRawInputStream()) {
+                    stripBase64(in, out);
+                }
+                return;
+            }
+
+            Logger.debug("Invalid base64 content with %d characters, decoding it", check.length);
+        }
+
+        OutputStream asciiOut = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                for (int i = off; i < off + len; i++) {
+                    out.write(b[i]);
+                }
+            }
+        };
+
+        // close() of the encoder writes the last group, the writer itself stays open
+        try (InputStream in = p.getInputStream(); OutputStream encoder = Base64.getEncoder().wrap(asciiOut)) {
+            ByteStreams.copy(in, encoder);
+        }
+    }
+
+    /**
+     * Read transfer encoded base64 and drop the line breaks and every other character that is not part of the base64
+     * alphabet, like the decoder does.
+     */
+    private static void stripBase64(InputStream in, Writer out) throws IOException {
+        byte[] buffer = new byte[8192];
+        char[] chars = new char[buffer.length];
+
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            int length = 0;
+            for (int i = 0; i < n; i++) {
+                char c = (char) buffer[i];
+                if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '+' || c == '/' || c == '=') {
+                    chars[length++] = c;
+                }
+            }
+
+            out.write(chars, 0, length);
+        }
+    }
+
+    /**
+     * Checks the stripped base64 written to it without keeping it.
+     */
+    private static class Base64Check extends Writer {
+        private long length = 0;
+        private long padding = -1;
+        private char last = 0;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                if (cbuf[i] == '=' && padding == -1) {
+                    padding = length;
+                }
+
+                length++;
+            }
+
+            if (len > 0) {
+                last = cbuf[off + len - 1];
+            }
+        }
+
+        /**
+         * Padding in the middle or a missing end, e.g. of a truncated part, is only tolerated by the decoder. At most
+         * two '=' may end the text, so if the first one is the second to last character the last one must be '='.
+         */
+        boolean isValid() {
+            boolean paddedAtEnd = padding == -1 || (padding >= length - 2 && last == '=');
+            return length % 4 == 0 && paddedAtEnd;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    public static List<Part> getAttachments(Part p) throws Exception {
+        final List<Part> result = new ArrayList<Part>();
+
+        walkMimeStructure(p, 0, new WalkMimeCallback() {
+            @Override
+            public void walkMimeCallback(Part p, int level) throws Exception {
+                if (Part.ATTACHMENT.equalsIgnoreCase(p.getDisposition()) || ((p.getDisposition() == null) && !Strings.isNullOrEmpty(p.getFileName()))) {
+                    result.add(p);
+                }
+            }
+        });
+
+        return result;
+    }
+}
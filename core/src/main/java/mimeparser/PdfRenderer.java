@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Renders a html document into a pdf. Implementations must be safe to use from multiple threads.
+ *
+ * @author Nick Russler
+ */
+public interface PdfRenderer {
+    /**
+     * Render the html document into the pdf stream.
+     *
+     * @param html source of the utf-8 encoded html document
+     * @param pdf  stream the pdf is written to, it is not closed by the renderer
+     * @throws Exception
+     */
+    void render(HtmlSource html, OutputStream pdf) throws Exception;
+
+    /**
+     * Render the html document into the pdf file, it is overwritten if it exists.
+     *
+     * @param html source of the utf-8 encoded html document
+     * @param pdf  file the pdf is written to
+     * @return true if the pdf is complete, false if the renderer wrote it but reported problems, e.g. resources that
+     * could not be loaded
+     * @throws Exception
+     */
+    default boolean render(HtmlSource html, File pdf) throws Exception {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(pdf))) {
+            render(html, out);
+        }
+
+        return true;
+    }
+
+    /**
+     * Render multiple html documents into one pdf, every document starts on a new page.
+     * The pages are requested one after another, so only one of them has to be held in memory.
+     *
+     * @param pages sources of the utf-8 encoded html documents
+     * @param pdf   stream the pdf is written to, it is not closed by the renderer
+     * @throws Exception
+     */
+    default void render(List<HtmlSource> pages, OutputStream pdf) throws Exception {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " can not render multiple documents into one pdf");
+    }
+
+    /**
+     * Key of the settings that influence the rendered pdf, two renderers with the same key render the same html to
+     * the same pdf.
+     *
+     * @return the key, or null if the pdfs of this renderer must not be cached
+     */
+    default String getSettingsKey() {
+        return null;
+    }
+}
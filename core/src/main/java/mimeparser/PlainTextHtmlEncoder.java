@@ -0,0 +1,187 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * Converts plain text into html in a single pass.
+ *
+ * Html special chars are escaped, line breaks are replaced with &lt;br&gt; and "[cid:...]" references are replaced
+ * with the referenced inline image. The text is read and written in chunks, so the memory usage does not depend on
+ * the size of the text.
+ *
+ * @author Nick Russler
+ */
+public class PlainTextHtmlEncoder {
+    private static final String CID_PREFIX = "[cid:";
+
+    // longer "[cid:..." sequences can not be references and are written as text
+    static final int MAX_CID_LENGTH = 998;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Writer out;
+    private final CidIndex cidIndex;
+
+    // holds the chars of a possible "[cid:...]" reference until it is complete
+    private final StringBuilder pending = new StringBuilder();
+
+    private PlainTextHtmlEncoder(Writer out, CidIndex cidIndex) {
+        this.out = out;
+        this.cidIndex = cidIndex;
+    }
+
+    /**
+     * Read the plain text and write it as html.
+     *
+     * @param in             plain text
+     * @param out            html output, it is neither flushed nor closed
+     * @param cidIndex       inline images of the message
+     * @throws IOException
+     */
+    public static void encode(Reader in, Writer out, CidIndex cidIndex) throws IOException {
+        PlainTextHtmlEncoder encoder = new PlainTextHtmlEncoder(out, cidIndex);
+
+        char[] buffer = new char[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            encoder.encode(buffer, read);
+        }
+
+        encoder.writePending();
+    }
+
+    private void encode(char[] buffer, int length) throws IOException {
+        // start of the current run of chars that can be written as they are
+        int runStart = 0;
+
+        for (int i = 0; i < length; i++) {
+            char c = buffer[i];
+
+            if (pending.length() > 0) {
+                if (consumePending(c)) {
+                    runStart = i + 1;
+                    continue;
+                }
+
+                runStart = i;
+            }
+
+            String replacement = getReplacement(c);
+            if (replacement == null) {
+                continue;
+            }
+
+            out.write(buffer, runStart, i - runStart);
+            runStart = i + 1;
+
+            if (c == '[') {
+                pending.append(c);
+            } else {
+                out.write(replacement);
+            }
+        }
+
+        out.write(buffer, runStart, length - runStart);
+    }
+
+    /**
+     * Feed the char into the pending reference.
+     *
+     * @return true if the char was consumed, false if the pending chars were written as text and the char still has to
+     *         be processed
+     */
+    private boolean consumePending(char c) throws IOException {
+        if (pending.length() < CID_PREFIX.length()) {
+            if (c == CID_PREFIX.charAt(pending.length())) {
+                pending.append(c);
+                return true;
+            }
+        } else if (c == ']') {
+            writeReference(pending.substring(CID_PREFIX.length()));
+            pending.setLength(0);
+            return true;
+        } else if (pending.length() < CID_PREFIX.length() + MAX_CID_LENGTH) {
+            pending.append(c);
+            return true;
+        }
+
+        writePending();
+        return false;
+    }
+
+    private void writeReference(String cid) throws IOException {
+        MimeObjectEntry<?> image = cidIndex.get(cid);
+
+        // found no image for this cid, just write the reference as text
+        if (image == null) {
+            pending.append(']');
+            writePending();
+            return;
+        }
+
+        // the base64 of the image is streamed into the html
+        out.write("<img src=\"");
+        CidIndex.writeDataUri(image, out);
+        out.write("\" />");
+    }
+
+    private void writePending() throws IOException {
+        for (int i = 0; i < pending.length(); i++) {
+            char c = pending.charAt(i);
+            String replacement = getReplacement(c);
+
+            if (replacement == null || c == '[') {
+                out.write(c);
+            } else {
+                out.write(replacement);
+            }
+        }
+
+        pending.setLength(0);
+    }
+
+    /**
+     * @return the html for the char, or null if the char can be written as it is. '[' is returned as it is, because
+     *         it may start a reference.
+     */
+    private static String getReplacement(char c) {
+        switch (c) {
+            case '&':
+                return "&amp;";
+            case '<':
+                return "&lt;";
+            case '>':
+                return "&gt;";
+            case '"':
+                return "&quot;";
+            case '\'':
+                return "&#39;";
+            case '\n':
+                return "<br>";
+            case '\r':
+                return "";
+            case '[':
+                return "[";
+            default:
+                return null;
+        }
+    }
+}
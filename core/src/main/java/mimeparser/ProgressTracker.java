@@ -0,0 +1,198 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package mimeparser;
+
+import com.google.common.base.Ticker;
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listener that forwards all events to other listeners and additionally emits the overall progress with the
+ * throughput and the estimated remaining time whenever an email is finished.
+ *
+ * The throughput is averaged over a rolling window, so the estimate follows changes of the speed, e.g. when the large
+ * emails of a batch are converted first.
+ *
+ * @author Nick Russler
+ */
+public class ProgressTracker implements ConversionListener {
+    static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final List<ConversionListener> listeners;
+    private final Ticker ticker;
+
+    // sizes of the emails that are currently converted
+    private final Map<ConversionRequest, Long> pendingBytes = new IdentityHashMap<>();
+
+    // finished emails of the rolling window, oldest first
+    private final ArrayDeque<Sample> window = new ArrayDeque<>();
+    private long windowBytes;
+
+    private int totalItems;
+    private long totalBytes;
+    private int completedItems;
+    private int failedItems;
+    private long processedBytes;
+    private long startNanos;
+
+    public ProgressTracker(List<ConversionListener> listeners) {
+        this(listeners, Ticker.systemTicker());
+    }
+
+    ProgressTracker(List<ConversionListener> listeners, Ticker ticker) {
+        this.listeners = Collections.unmodifiableList(new ArrayList<>(listeners));
+        this.ticker = ticker;
+        this.startNanos = ticker.read();
+    }
+
+    /**
+     * Reset the progress and start the clock.
+     *
+     * @param totalItems number of emails that will be converted
+     * @param totalBytes size of these emails, or 0 if unknown, then the remaining time is estimated from the number of
+     *                   emails only
+     */
+    public synchronized void start(int totalItems, long totalBytes) {
+        this.totalItems = totalItems;
+        this.totalBytes = totalBytes;
+        this.completedItems = 0;
+        this.failedItems = 0;
+        this.processedBytes = 0;
+        this.pendingBytes.clear();
+        this.window.clear();
+        this.windowBytes = 0;
+        this.startNanos = ticker.read();
+    }
+
+    @Override
+    public void phaseStarted(ConversionRequest request, ConversionPhase phase) {
+        for (ConversionListener listener : listeners) {
+            listener.phaseStarted(request, phase);
+        }
+    }
+
+    @Override
+    public void phaseFinished(ConversionRequest request, ConversionPhase phase, long nanos) {
+        for (ConversionListener listener : listeners) {
+            listener.phaseFinished(request, phase, nanos);
+        }
+    }
+
+    @Override
+    public void bytesProcessed(ConversionRequest request, long bytes) {
+        synchronized (this) {
+            pendingBytes.put(request, bytes);
+        }
+
+        for (ConversionListener listener : listeners) {
+            listener.bytesProcessed(request, bytes);
+        }
+    }
+
+    /**
+     * The events are delivered while the tracker is locked, so the listeners receive the progress of parallel
+     * conversions in order.
+     */
+    @Override
+    public synchronized void itemFinished(ConversionRequest request, Exception error, long nanos) {
+        Long bytes = pendingBytes.remove(request);
+        if (bytes == null) {
+            // the email failed before it was read, the size of the file is still needed for the estimate
+            bytes = request.getEmailFilePath() != null ? new File(request.getEmailFilePath()).length() : 0;
+        }
+
+        if (error == null) {
+            completedItems++;
+        } else {
+            failedItems++;
+        }
+
+        processedBytes += bytes;
+        ConversionProgress progress = record(bytes);
+
+        for (ConversionListener listener : listeners) {
+            listener.itemFinished(request, error, nanos);
+        }
+
+        for (ConversionListener listener : listeners) {
+            listener.progress(progress);
+        }
+    }
+
+    /**
+     * @return the current progress
+     */
+    public synchronized ConversionProgress getProgress() {
+        return snapshot(ticker.read());
+    }
+
+    private ConversionProgress record(long bytes) {
+        long now = ticker.read();
+
+        window.addLast(new Sample(now, bytes));
+        windowBytes += bytes;
+
+        while (now - window.peekFirst().nanos > WINDOW_NANOS) {
+            windowBytes -= window.removeFirst().bytes;
+        }
+
+        return snapshot(now);
+    }
+
+    private ConversionProgress snapshot(long now) {
+        long elapsed = now - startNanos;
+        long span = Math.min(elapsed, WINDOW_NANOS);
+
+        double itemsPerSecond = 0;
+        double bytesPerSecond = 0;
+        if (span > 0) {
+            itemsPerSecond = window.size() * 1e9 / span;
+            bytesPerSecond = windowBytes * 1e9 / span;
+        }
+
+        int remainingItems = Math.max(0, totalItems - completedItems - failedItems);
+
+        long eta = -1;
+        if (remainingItems == 0) {
+            eta = 0;
+        } else if (totalBytes > 0 && bytesPerSecond > 0) {
+            eta = (long) (Math.max(0, totalBytes - processedBytes) / bytesPerSecond * 1e9);
+        } else if (itemsPerSecond > 0) {
+            eta = (long) (remainingItems / itemsPerSecond * 1e9);
+        }
+
+        return new ConversionProgress(totalItems, completedItems, failedItems, totalBytes, processedBytes, elapsed,
+                itemsPerSecond, bytesPerSecond, eta);
+    }
+
+    private static final class Sample {
+        private final long nanos;
+        private final long bytes;
+
+        Sample(long nanos, long bytes) {
+            this.nanos = nanos;
+            this.bytes = bytes;
+        }
+    }
+}
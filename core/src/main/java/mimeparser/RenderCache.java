@@ -0,0 +1,228 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+import util.Logger;
+
+/**
+ * Disk cache of rendered pdfs with a size limit, the least recently used pdfs are evicted first. The recency is kept
+ * in the modification time of the files, so it survives across runs.
+ *
+ * The cache is safe to use from multiple threads. Entries are added by atomically moving a finished file into the
+ * cache directory, so other processes never see a partial pdf.
+ *
+ * @author Nick Russler
+ */
+public final class RenderCache {
+    private static final Pattern ENTRY_NAME_REGEX = Pattern.compile("[0-9a-f]{64}\\.pdf");
+    private static final String ENTRY_EXTENSION = ".pdf";
+    private static final long STALE_TMP_FILE_MILLIS = 60 * 60 * 1000;
+
+    private final File directory;
+    private final long maxBytes;
+
+    // key to size of the entry, iterates from the least to the most recently used entry
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    private RenderCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Open the cache in the directory, it is created if it does not exist.
+     *
+     * @param directory cache directory
+     * @param maxBytes  size limit of all cached pdfs
+     * @return the cache
+     * @throws IOException
+     */
+    public static RenderCache open(File directory, long maxBytes) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+            throw new IOException("Could not create the render cache directory " + directory);
+        }
+
+        RenderCache cache = new RenderCache(directory, maxBytes);
+
+        File[] files = directory.listFiles();
+        if (files != null) {
+            Arrays.sort(files, new Comparator<File>() {
+                @Override
+                public int compare(File a, File b) {
+                    return Long.compare(a.lastModified(), b.lastModified());
+                }
+            });
+
+            for (File file : files) {
+                if (ENTRY_NAME_REGEX.matcher(file.getName()).matches()) {
+                    cache.entries.put(file.getName().substring(0, 64), file.length());
+                    cache.totalBytes += file.length();
+                } else if (file.getName().startsWith(CachingPdfRenderer.TMP_FILE_PREFIX) && System.currentTimeMillis() - file.lastModified() > STALE_TMP_FILE_MILLIS) {
+                    // left behind by a crashed run, younger files may belong to a run of another process
+                    if (!file.delete()) {
+                        Logger.debug("Could not delete %s", file);
+                    }
+                }
+            }
+        }
+
+        synchronized (cache) {
+            cache.evict();
+        }
+
+        Logger.debug("Opened render cache %s with %d pdfs, %d bytes", directory, cache.entries.size(), cache.totalBytes);
+        return cache;
+    }
+
+    /**
+     * Look up the pdf of the key, a hit marks the pdf as most recently used.
+     *
+     * @param key hex encoded sha-256 hash of the rendered document and the renderer settings
+     * @return the cached pdf, or null if it is not cached
+     */
+    public synchronized File lookup(String key) {
+        if (entries.get(key) == null) {
+            misses++;
+            return null;
+        }
+
+        File file = getFile(key);
+        if (!file.isFile()) {
+            // deleted by someone else
+            totalBytes -= entries.remove(key);
+            misses++;
+            return null;
+        }
+
+        hits++;
+        if (!file.setLastModified(System.currentTimeMillis())) {
+            Logger.debug("Could not update the modification time of %s", file);
+        }
+
+        return file;
+    }
+
+    /**
+     * Move the pdf into the cache. Pdfs larger than the whole cache are not stored.
+     *
+     * @param key hex encoded sha-256 hash of the rendered document and the renderer settings
+     * @param pdf finished pdf in the cache directory
+     * @return the cached pdf, or null if the pdf is too large and was left in place
+     * @throws IOException
+     */
+    public synchronized File store(String key, File pdf) throws IOException {
+        long size = pdf.length();
+        if (size > maxBytes) {
+            return null;
+        }
+
+        File file = getFile(key);
+        Files.move(pdf.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        Long previousSize = entries.put(key, size);
+        totalBytes += size - (previousSize != null ? previousSize : 0);
+
+        // the new pdf is the most recently used one, so it is evicted last
+        evict();
+
+        return file;
+    }
+
+    File getDirectory() {
+        return directory;
+    }
+
+    private File getFile(String key) {
+        return new File(directory, key + ENTRY_EXTENSION);
+    }
+
+    /**
+     * Delete the least recently used pdfs until the cache fits its limit.
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            File file = getFile(eldest.getKey());
+
+            if (!file.delete() && file.exists()) {
+                Logger.debug("Could not evict %s", file);
+                continue;
+            }
+
+            totalBytes -= eldest.getValue();
+            evictions++;
+            it.remove();
+        }
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return share of the lookups that were hits, 0 if there were no lookups
+     */
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * @return size of all cached pdfs in bytes
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return number of cached pdfs
+     */
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d hits, %d misses (%.1f%% hit rate), %d evictions, %d pdfs with %d KiB cached",
+                hits, misses, getHitRate() * 100, evictions, entries.size(), totalBytes / 1024);
+    }
+}
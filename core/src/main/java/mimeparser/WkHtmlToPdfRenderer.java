@@ -0,0 +1,267 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.io.ByteStreams;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import util.LogLevel;
+import util.Logger;
+
+/**
+ * Renders html to pdf by executing the wkhtmltopdf binary, which needs to be in the PATH.
+ *
+ * @author Nick Russler
+ */
+public class WkHtmlToPdfRenderer implements PdfRenderer {
+    private static final String VIEWPORT_SIZE = "2480x3508";
+    private static final int IMAGE_QUALITY = 100;
+
+    // bundles use two outline levels, the group and the email
+    private static final int OUTLINE_DEPTH = 2;
+
+    // exit codes of wkhtmltopdf for network and http errors, it writes the pdf nevertheless
+    private static final int LOAD_ERROR_EXIT_CODE = 1;
+    private static final int HTTP_ERROR_EXIT_CODE = 2;
+
+    // used to discard the renderer output, ProcessBuilder.Redirect.DISCARD is not available in Java 8
+    private static final File NULL_FILE = new File(System.getProperty("os.name").startsWith("Windows") ? "NUL" : "/dev/null");
+
+    private final List<String> args;
+
+    public WkHtmlToPdfRenderer(ConversionOptions options) {
+        List<String> tmp = new ArrayList<>(Arrays.asList(
+                "wkhtmltopdf", "--viewport-size", VIEWPORT_SIZE, "--enable-local-file-access",
+                // "--disable-smart-shrinking",
+                "--image-quality", String.valueOf(IMAGE_QUALITY), "--encoding", "utf-8"));
+
+        if (!Strings.isNullOrEmpty(options.getProxy())) {
+            tmp.add("--proxy");
+            tmp.add(options.getProxy());
+        }
+
+        if (!Strings.isNullOrEmpty(options.getPageSize())) {
+            tmp.add("--page-size");
+            tmp.add(options.getPageSize());
+        }
+
+        if (!Strings.isNullOrEmpty(options.getDpi())) {
+            tmp.add("--dpi");
+            tmp.add(options.getDpi());
+        }
+
+        tmp.addAll(options.getRendererArgs());
+
+        this.args = Collections.unmodifiableList(tmp);
+    }
+
+    @Override
+    public void render(HtmlSource html, OutputStream pdf) throws Exception {
+        renderStdin(html, pdf);
+    }
+
+    @Override
+    public boolean render(HtmlSource html, File pdf) throws Exception {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(pdf))) {
+            return renderStdin(html, out);
+        }
+    }
+
+    private boolean renderStdin(HtmlSource html, OutputStream pdf) throws Exception {
+        List<String> cmd = new ArrayList<>(args);
+
+        // read the html from stdin and write the pdf to stdout
+        cmd.add("-");
+        cmd.add("-");
+
+        return execute(cmd, html, pdf);
+    }
+
+    /**
+     * The command line contains all settings. The version of wkhtmltopdf is not part of the key.
+     */
+    @Override
+    public String getSettingsKey() {
+        return Joiner.on(' ').join(args);
+    }
+
+    /**
+     * The pages are written to temporary files, because wkhtmltopdf can only read one document from stdin.
+     */
+    @Override
+    public void render(List<HtmlSource> pages, OutputStream pdf) throws Exception {
+        File pageDir = Files.createTempDirectory("emailconverter-bundle").toFile();
+
+        try {
+            List<String> cmd = new ArrayList<>(args);
+            cmd.add("--outline");
+            cmd.add("--outline-depth");
+            cmd.add(String.valueOf(OUTLINE_DEPTH));
+
+            for (int i = 0; i < pages.size(); i++) {
+                File pageFile = new File(pageDir, String.format("page-%05d.html", i));
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(pageFile))) {
+                    pages.get(i).writeTo(out);
+                }
+
+                cmd.add("page");
+                cmd.add(pageFile.getAbsolutePath());
+            }
+
+            // write the pdf to stdout
+            cmd.add("-");
+
+            execute(cmd, null, pdf);
+        } finally {
+            File[] pageFiles = pageDir.listFiles();
+            if (pageFiles != null) {
+                for (File pageFile : pageFiles) {
+                    if (!pageFile.delete()) {
+                        Logger.debug("Could not delete %s", pageFile);
+                    }
+                }
+            }
+
+            if (!pageDir.delete()) {
+                Logger.debug("Could not delete %s", pageDir);
+            }
+        }
+    }
+
+    /**
+     * Execute wkhtmltopdf and copy its stdout to the pdf stream.
+     *
+     * @param cmd  command line
+     * @param html html that is written to stdin, or null if the command does not read stdin
+     * @param pdf  stream the pdf is written to
+     * @return true if wkhtmltopdf succeeded, false if it wrote the pdf but reported errors loading resources
+     * @throws IOException if wkhtmltopdf could not be started or failed without pdf
+     * @throws Exception
+     */
+    private static boolean execute(List<String> cmd, HtmlSource html, final OutputStream pdf) throws Exception {
+        Logger.debug("Execute: %s", Joiner.on(' ').join(cmd));
+
+        ProcessBuilder pb = new ProcessBuilder(cmd);
+
+        // stderr is copied to System.err instead of inherited, so it reaches the client of a daemon call
+        boolean showErrors = Logger.getLevel().compareTo(LogLevel.Info) >= 0;
+        if (!showErrors) {
+            pb.redirectError(ProcessBuilder.Redirect.to(NULL_FILE));
+        }
+
+        final Process p;
+        try {
+            p = pb.start();
+        } catch (IOException e) {
+            throw new IOException("Could not execute wkhtmltopdf, make sure it is in the PATH", e);
+        }
+
+        // stdout has to be drained while the html is written, otherwise both processes could block
+        FutureTask<Long> stdoutPump = new FutureTask<>(new Callable<Long>() {
+            @Override
+            public Long call() throws IOException {
+                try (InputStream stdout = p.getInputStream()) {
+                    return ByteStreams.copy(stdout, pdf);
+                }
+            }
+        });
+
+        Thread stdoutPumpThread = new Thread(stdoutPump, "wkhtmltopdf-stdout");
+        stdoutPumpThread.setDaemon(true);
+        stdoutPumpThread.start();
+
+        FutureTask<Long> stderrPump = null;
+        if (showErrors) {
+            stderrPump = new FutureTask<>(new Callable<Long>() {
+                @Override
+                public Long call() throws IOException {
+                    try (InputStream stderr = p.getErrorStream()) {
+                        long copied = ByteStreams.copy(stderr, System.err);
+                        System.err.flush();
+                        return copied;
+                    }
+                }
+            });
+
+            Thread stderrPumpThread = new Thread(stderrPump, "wkhtmltopdf-stderr");
+            stderrPumpThread.setDaemon(true);
+            stderrPumpThread.start();
+        }
+
+        try (OutputStream stdin = new BufferedOutputStream(p.getOutputStream())) {
+            if (html != null) {
+                html.writeTo(stdin);
+            }
+        } catch (Exception e) {
+            p.destroy();
+            throw e;
+        }
+
+        int exitCode;
+        try {
+            exitCode = p.waitFor();
+        } catch (InterruptedException e) {
+            // the conversion was cancelled, the renderer must not outlive it
+            p.destroy();
+            throw e;
+        }
+
+        long pdfSize;
+        try {
+            pdfSize = stdoutPump.get();
+            Logger.debug("Received %d bytes of pdf", pdfSize);
+        } catch (ExecutionException e) {
+            Throwables.throwIfInstanceOf(e.getCause(), IOException.class);
+            throw e;
+        }
+
+        if (stderrPump != null) {
+            try {
+                stderrPump.get();
+            } catch (ExecutionException e) {
+                Logger.debug("Could not copy the output of wkhtmltopdf: %s", e.getCause());
+            }
+        }
+
+        if (exitCode == 0) {
+            return true;
+        }
+
+        // wkhtmltopdf still writes the pdf if resources could not be loaded
+        if ((exitCode == LOAD_ERROR_EXIT_CODE || exitCode == HTTP_ERROR_EXIT_CODE) && pdfSize > 0) {
+            Logger.error("wkhtmltopdf exited with code %d, the pdf may lack content that could not be loaded", exitCode);
+            return false;
+        }
+
+        throw new IOException(String.format("wkhtmltopdf exited with code %d after writing %d bytes of pdf", exitCode, pdfSize));
+    }
+}
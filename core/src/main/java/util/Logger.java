@@ -28,6 +28,33 @@ import java.util.Date;
 public class Logger {
     public static LogLevel level = LogLevel.Info;
 
+    // the level of the current call, overrides the global level in the threads the call starts as well
+    private static final InheritableThreadLocal<LogLevel> callLevel = new InheritableThreadLocal<>();
+
+    /**
+     * Get the level of the current thread.
+     *
+     * @return the level set by {@link #setCallLevel(LogLevel)}, the global level otherwise
+     */
+    public static LogLevel getLevel() {
+        LogLevel l = callLevel.get();
+
+        return l != null ? l : level;
+    }
+
+    /**
+     * Set the level of the current thread and of the threads it starts afterwards.
+     *
+     * @param l level of the call, null to use the global level again
+     */
+    public static void setCallLevel(LogLevel l) {
+        if (l == null) {
+            callLevel.remove();
+        } else {
+            callLevel.set(l);
+        }
+    }
+
     /**
      * Log a string. Message is formatted with the supplied params using the String.format function.
      *
@@ -35,7 +62,7 @@ public class Logger {
      * @param params  params to insert into the message
      */
     public static void debug(String message, Object... params) {
-        if (level.compareTo(LogLevel.Debug) < 0) {
+        if (getLevel().compareTo(LogLevel.Debug) < 0) {
             return;
         }
 
@@ -55,7 +82,7 @@ public class Logger {
      * @param params  params to insert into the message
      */
     public static void info(String message, Object... params) {
-        if (level.compareTo(LogLevel.Info) < 0) {
+        if (getLevel().compareTo(LogLevel.Info) < 0) {
             return;
         }
 
@@ -70,7 +97,7 @@ public class Logger {
      * @param params  params to insert into the message
      */
     public static void error(String message, Object... params) {
-        if (level.compareTo(LogLevel.Error) < 0) {
+        if (getLevel().compareTo(LogLevel.Error) < 0) {
             return;
         }
 
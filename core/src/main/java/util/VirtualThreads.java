@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates executors that run every task on its own virtual thread (Java 21+). The project targets Java 8, so the
+ * factory is looked up reflectively and a pool of platform threads is used on older runtimes.
+ *
+ * @author Nick Russler
+ */
+public final class VirtualThreads {
+    private static final Method VIRTUAL_THREAD_PER_TASK_EXECUTOR = findVirtualThreadPerTaskExecutor();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return true if the running JVM supports virtual threads
+     */
+    public static boolean isAvailable() {
+        return VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Create an executor that starts a new virtual thread for every task. Blocked virtual threads are cheap, so
+     * thousands of tasks can wait for a limited resource at the same time.
+     *
+     * @param fallbackThreads number of platform threads used if the JVM does not support virtual threads
+     * @return executor that has to be shut down by the caller
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor(int fallbackThreads) {
+        if (VIRTUAL_THREAD_PER_TASK_EXECUTOR != null) {
+            try {
+                return (ExecutorService) VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                Logger.debug("Could not create a virtual thread executor: %s", e);
+            }
+        }
+
+        Logger.info("Virtual threads need Java 21 or newer, use %d platform threads instead", fallbackThreads);
+        return Executors.newFixedThreadPool(fallbackThreads);
+    }
+
+    private static Method findVirtualThreadPerTaskExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
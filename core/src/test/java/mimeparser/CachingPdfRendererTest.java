@@ -0,0 +1,188 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import com.google.common.base.Strings;
+import com.google.common.io.Files;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+/**
+ * TestClass.
+ *
+ * @author Nick Russler
+ */
+public class CachingPdfRendererTest {
+    /**
+     * Renderer that writes the html with a prefix as pdf and counts its renderings.
+     */
+    private static class CountingRenderer implements PdfRenderer {
+        private final String settingsKey;
+        private final AtomicInteger renderings = new AtomicInteger();
+
+        CountingRenderer(String settingsKey) {
+            this.settingsKey = settingsKey;
+        }
+
+        @Override
+        public void render(HtmlSource html, OutputStream pdf) throws Exception {
+            renderings.incrementAndGet();
+            pdf.write(("pdf of " + settingsKey + ": ").getBytes(StandardCharsets.UTF_8));
+            html.writeTo(pdf);
+        }
+
+        @Override
+        public String getSettingsKey() {
+            return settingsKey;
+        }
+    }
+
+    private static HtmlSource html(final String html) {
+        return new HtmlSource() {
+            @Override
+            public void writeTo(OutputStream out) throws Exception {
+                out.write(html.getBytes(StandardCharsets.UTF_8));
+            }
+        };
+    }
+
+    private static String render(PdfRenderer renderer, String html) throws Exception {
+        ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+        renderer.render(html(html), pdf);
+
+        return new String(pdf.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void render_rendersEqualHtmlOnce() throws Exception {
+        RenderCache cache = RenderCache.open(Files.createTempDir(), 1024 * 1024);
+        CountingRenderer delegate = new CountingRenderer("a4");
+        CachingPdfRenderer renderer = new CachingPdfRenderer(delegate, cache, false);
+
+        assertThat(render(renderer, "<p>1</p>"), equalTo("pdf of a4: <p>1</p>"));
+        assertThat(render(renderer, "<p>1</p>"), equalTo("pdf of a4: <p>1</p>"));
+        assertThat(render(renderer, "<p>2</p>"), equalTo("pdf of a4: <p>2</p>"));
+
+        // other settings render other pdfs
+        CachingPdfRenderer letter = new CachingPdfRenderer(new CountingRenderer("letter"), cache, false);
+        assertThat(render(letter, "<p>1</p>"), equalTo("pdf of letter: <p>1</p>"));
+
+        assertThat(delegate.renderings.get(), equalTo(2));
+        assertThat(cache.getHits(), equalTo(1L));
+        assertThat(cache.getMisses(), equalTo(3L));
+        assertThat(cache.getEntryCount(), equalTo(3));
+    }
+
+    @Test
+    public void render_linksCachedPdfsToFiles() throws Exception {
+        RenderCache cache = RenderCache.open(Files.createTempDir(), 1024 * 1024);
+        CountingRenderer delegate = new CountingRenderer("a4");
+        CachingPdfRenderer renderer = new CachingPdfRenderer(delegate, cache, true);
+
+        File outDir = Files.createTempDir();
+        File first = new File(outDir, "first.pdf");
+        File second = new File(outDir, "second.pdf");
+        renderer.render(html("<p>1</p>"), first);
+        renderer.render(html("<p>1</p>"), second);
+
+        assertThat(Files.asCharSource(second, StandardCharsets.UTF_8).read(), equalTo("pdf of a4: <p>1</p>"));
+        assertThat(Files.asCharSource(first, StandardCharsets.UTF_8).read(), equalTo("pdf of a4: <p>1</p>"));
+        assertThat(delegate.renderings.get(), equalTo(1));
+    }
+
+    @Test
+    public void render_doesNotCacheIncompletePdfs() throws Exception {
+        RenderCache cache = RenderCache.open(Files.createTempDir(), 1024 * 1024);
+        CountingRenderer delegate = new CountingRenderer("a4") {
+            @Override
+            public boolean render(HtmlSource html, File pdf) throws Exception {
+                super.render(html, pdf);
+
+                // e.g. an image could not be loaded
+                return false;
+            }
+        };
+        CachingPdfRenderer renderer = new CachingPdfRenderer(delegate, cache, false);
+
+        File pdf = new File(Files.createTempDir(), "out.pdf");
+        assertThat(renderer.render(html("<p>1</p>"), pdf), equalTo(false));
+        assertThat(renderer.render(html("<p>1</p>"), pdf), equalTo(false));
+
+        assertThat(Files.asCharSource(pdf, StandardCharsets.UTF_8).read(), equalTo("pdf of a4: <p>1</p>"));
+        assertThat(delegate.renderings.get(), equalTo(2));
+        assertThat(cache.getEntryCount(), equalTo(0));
+    }
+
+    @Test
+    public void render_passesThroughRenderersWithoutSettingsKey() throws Exception {
+        File dir = Files.createTempDir();
+        CountingRenderer delegate = new CountingRenderer(null);
+        CachingPdfRenderer renderer = new CachingPdfRenderer(delegate, RenderCache.open(dir, 1024 * 1024), false);
+
+        render(renderer, "<p>1</p>");
+        render(renderer, "<p>1</p>");
+
+        assertThat(delegate.renderings.get(), equalTo(2));
+        assertThat(dir.list().length, equalTo(0));
+    }
+
+    @Test
+    public void store_evictsLeastRecentlyUsedPdfs() throws Exception {
+        File dir = Files.createTempDir();
+        RenderCache cache = RenderCache.open(dir, 250);
+        CachingPdfRenderer renderer = new CachingPdfRenderer(new CountingRenderer("a4"), cache, false);
+
+        String padding = Strings.repeat("x", 90);
+        render(renderer, "1" + padding);
+        render(renderer, "2" + padding);
+        // makes 2 the least recently used pdf
+        render(renderer, "1" + padding);
+        render(renderer, "3" + padding);
+
+        assertThat(cache.getEvictions(), equalTo(1L));
+        assertThat(cache.getEntryCount(), equalTo(2));
+
+        // the recency survives across runs
+        RenderCache reopened = RenderCache.open(dir, 250);
+        assertThat(reopened.getEntryCount(), equalTo(2));
+        CountingRenderer delegate = new CountingRenderer("a4");
+        CachingPdfRenderer rerun = new CachingPdfRenderer(delegate, reopened, false);
+        render(rerun, "1" + padding);
+        render(rerun, "3" + padding);
+        render(rerun, "2" + padding);
+
+        assertThat(delegate.renderings.get(), equalTo(1));
+        assertThat(reopened.getHitRate(), equalTo(2.0 / 3));
+    }
+
+    @Test
+    public void store_skipsPdfsLargerThanTheCache() throws Exception {
+        RenderCache cache = RenderCache.open(Files.createTempDir(), 10);
+        CachingPdfRenderer renderer = new CachingPdfRenderer(new CountingRenderer("a4"), cache, false);
+
+        assertThat(render(renderer, "<p>1</p>"), equalTo("pdf of a4: <p>1</p>"));
+        assertThat(cache.getEntryCount(), equalTo(0));
+        assertThat(cache.getDirectory().list().length, equalTo(0));
+    }
+}
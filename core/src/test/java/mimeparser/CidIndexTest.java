@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import jakarta.mail.internet.ContentType;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+/**
+ * TestClass.
+ *
+ * @author Nick Russler
+ */
+public class CidIndexTest {
+    private static CidIndex createIndex(String... contentIds) throws Exception {
+        Map<String, MimeObjectEntry<String>> inlineImageMap = new HashMap<>();
+        for (String contentId : contentIds) {
+            inlineImageMap.put(contentId, new MimeObjectEntry<>(contentId, new ContentType("image/png")));
+        }
+
+        return new CidIndex(inlineImageMap);
+    }
+
+    @Test
+    public void get_exactAndWithoutBrackets() throws Exception {
+        CidIndex index = createIndex("<image1@host>", " < image2 > ");
+
+        assertThat(index.get("image1@host").getEntry(), equalTo("<image1@host>"));
+        assertThat(index.get("<image1@host>").getEntry(), equalTo("<image1@host>"));
+        assertThat(index.get("image2").getEntry(), equalTo(" < image2 > "));
+    }
+
+    @Test
+    public void get_localPart() throws Exception {
+        CidIndex index = createIndex("<image1@host>");
+
+        assertThat(index.get("image1").getEntry(), equalTo("<image1@host>"));
+        assertThat(index.get("image1@otherhost"), nullValue());
+        assertThat(index.get("image"), nullValue());
+    }
+
+    @Test
+    public void get_urlDecoded() throws Exception {
+        CidIndex index = createIndex("<image 1%@host>", "<a+b@host>", "<%61@host>");
+
+        assertThat(index.get("image%201%25@host").getEntry(), equalTo("<image 1%@host>"));
+        assertThat(index.get("image%201%25").getEntry(), equalTo("<image 1%@host>"));
+        assertThat(index.get("a+b@host").getEntry(), equalTo("<a+b@host>"));
+        assertThat(index.get("a@host").getEntry(), equalTo("<%61@host>"));
+        assertThat(index.get("%zz"), nullValue());
+    }
+
+    @Test
+    public void resolve_dataUri() throws Exception {
+        CidIndex index = createIndex("<image1>");
+
+        assertThat(index.resolve("image1"), equalTo("data:image/png;base64,<image1>"));
+        assertThat(index.resolve("unknown"), nullValue());
+    }
+
+    @Test
+    public void writeDataUri_writesOnlyKnownImages() throws Exception {
+        CidIndex index = createIndex("<image1@host>");
+
+        StringWriter out = new StringWriter();
+        assertThat(index.writeDataUri("image1", out), equalTo(true));
+        assertThat(index.writeDataUri("unknown", out), equalTo(false));
+
+        assertThat(out.toString(), equalTo("data:image/png;base64,<image1@host>"));
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package mimeparser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Ticker;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+/**
+ * TestClass.
+ *
+ * @author Nick Russler
+ */
+public class ConversionSessionTest {
+    @Test
+    public void getDefaultProxyUrl_resolvedOncePerTtl() throws Exception {
+        final AtomicInteger lookups = new AtomicInteger();
+        final AtomicLong nanos = new AtomicLong();
+
+        ConversionSession session = new ConversionSession(new Supplier<String>() {
+            @Override
+            public String get() {
+                return "http://proxy-" + lookups.incrementAndGet() + ":81";
+            }
+        }, 10, TimeUnit.MINUTES, new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        });
+
+        assertThat(session.getDefaultProxyUrl(), equalTo("http://proxy-1:81"));
+
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(9));
+        assertThat(session.getDefaultProxyUrl(), equalTo("http://proxy-1:81"));
+
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        assertThat(session.getDefaultProxyUrl(), equalTo("http://proxy-2:81"));
+        assertThat(lookups.get(), equalTo(2));
+    }
+
+    @Test
+    public void create_preloadsTemplates() throws Exception {
+        ConversionSession session = ConversionSession.create();
+
+        assertThat(session.getHeaderTemplate(), containsString("%s"));
+        assertThat(session.getContentScript().isEmpty(), equalTo(false));
+        assertThat(ConversionSession.getDefault(), sameInstance(ConversionSession.getDefault()));
+    }
+
+    @Test
+    public void getProxyUrl_firstProxyOfTheSelector() throws Exception {
+        ProxySelector selector = new ProxySelector() {
+            @Override
+            public List<Proxy> select(URI uri) {
+                return Arrays.asList(Proxy.NO_PROXY, new Proxy(Proxy.Type.HTTP, InetSocketAddress.createUnresolved("Proxy.example.com", 81)));
+            }
+
+            @Override
+            public void connectFailed(URI uri, SocketAddress sa, IOException ioe) {
+            }
+        };
+
+        assertThat(ConversionSession.getProxyUrl(selector), equalTo("http://proxy.example.com:81"));
+        assertThat(ConversionSession.getProxyUrl(null), nullValue());
+    }
+}
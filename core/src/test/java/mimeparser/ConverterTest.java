@@ -0,0 +1,242 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import com.google.common.io.Files;
+import com.google.common.io.Resources;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import util.LogLevel;
+import util.Logger;
+import util.VirtualThreads;
+
+/**
+ * TestClass.
+ *
+ * @author Nick Russler
+ */
+public class ConverterTest {
+    /**
+     * Renderer that copies the html into the "pdf", so the tests do not depend on wkhtmltopdf.
+     */
+    private static class CopyRenderer implements PdfRenderer {
+        private final AtomicInteger invocations = new AtomicInteger();
+
+        @Override
+        public void render(HtmlSource html, OutputStream pdf) throws Exception {
+            invocations.incrementAndGet();
+            html.writeTo(pdf);
+        }
+
+        @Override
+        public void render(List<HtmlSource> pages, OutputStream pdf) throws Exception {
+            invocations.incrementAndGet();
+            for (HtmlSource page : pages) {
+                page.writeTo(pdf);
+            }
+        }
+    }
+
+    private static String getResourcePath(String name) throws Exception {
+        return new File(ConverterTest.class.getClassLoader().getResource(name).toURI()).getAbsolutePath();
+    }
+
+    @Test
+    public void convert_plainMessage() throws Exception {
+        CopyRenderer renderer = new CopyRenderer();
+        Converter converter = new Converter(ConversionOptions.builder().hideHeaders(true).build(), renderer);
+
+        File tmpPdf = File.createTempFile("emailtopdf", ".pdf");
+
+        LogLevel old = Logger.level;
+        Logger.level = LogLevel.Error;
+
+        converter.convert(new ConversionRequest(getResourcePath("eml/testPlain.eml"), tmpPdf.getAbsolutePath()));
+
+        Logger.level = old;
+
+        assertThat(renderer.invocations.get(), equalTo(1));
+        assertThat(Files.asCharSource(tmpPdf, StandardCharsets.UTF_8).read(), containsString("Hallo, Guten Tag!"));
+
+        if (!tmpPdf.delete()) {
+            tmpPdf.deleteOnExit();
+        }
+    }
+
+    @Test
+    public void convert_inMemory() throws Exception {
+        CopyRenderer renderer = new CopyRenderer();
+        Converter converter = new Converter(ConversionOptions.builder().build(), renderer);
+
+        byte[] eml = Resources.toByteArray(Resources.getResource("eml/testPlain.eml"));
+        ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+
+        LogLevel old = Logger.level;
+        Logger.level = LogLevel.Error;
+
+        converter.convert(new ConversionRequest(new ByteArrayInputStream(eml), "testPlain.eml", pdf));
+
+        Logger.level = old;
+
+        String html = new String(pdf.toByteArray(), StandardCharsets.UTF_8);
+        assertThat(html, containsString("Hallo, Guten Tag!"));
+        assertThat(html, containsString("data:text/html;charset=utf-8;base64,"));
+    }
+
+    @Test
+    public void convert_writesUtf8AndOverridesDeclaredCharset() throws Exception {
+        String eml = "Content-Type: text/html; charset=iso-8859-1\r\n"
+                + "\r\n"
+                + "<html><head><meta http-equiv=\"Content-Type\" content=\"text/html; charset=iso-8859-1\"></head>"
+                + "<body>Bananen sch\u00e4lt man <code>&lt;meta charset=\"latin1\"&gt;</code></body></html>\r\n";
+
+        CopyRenderer renderer = new CopyRenderer();
+        Converter converter = new Converter(ConversionOptions.builder().hideHeaders(true).build(), renderer);
+        ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+
+        LogLevel old = Logger.level;
+        Logger.level = LogLevel.Error;
+
+        converter.convert(new ConversionRequest(new ByteArrayInputStream(eml.getBytes(StandardCharsets.ISO_8859_1)), null, pdf));
+
+        Logger.level = old;
+
+        String html = new String(pdf.toByteArray(), StandardCharsets.UTF_8);
+        assertThat(html, containsString("content=\"text/html; charset=utf-8\""));
+        assertThat(html, containsString("Bananen sch\u00e4lt man"));
+        assertThat(html, containsString("&lt;meta charset=\"latin1\"&gt;"));
+    }
+
+    @Test
+    public void convertBundle_singleRendererInvocation() throws Exception {
+        CopyRenderer renderer = new CopyRenderer();
+        Converter converter = new Converter(ConversionOptions.builder().hideHeaders(true).build(), renderer);
+
+        File tmpPdf = File.createTempFile("emailtopdf", ".pdf");
+        String eml = getResourcePath("eml/testPlain.eml");
+
+        LogLevel old = Logger.level;
+        Logger.level = LogLevel.Error;
+
+        converter.convertBundle(new BundleRequest(Arrays.asList(eml, eml, eml), tmpPdf.getAbsolutePath(), BundleGrouping.FOLDER));
+
+        Logger.level = old;
+
+        String html = Files.asCharSource(tmpPdf, StandardCharsets.UTF_8).read();
+        assertThat(renderer.invocations.get(), equalTo(1));
+        assertThat(html.split("Hallo, Guten Tag!", -1).length, equalTo(4));
+        assertThat(html.split("<h1 ", -1).length, equalTo(2));
+        assertThat(html.split("<h2 ", -1).length, equalTo(4));
+
+        if (!tmpPdf.delete()) {
+            tmpPdf.deleteOnExit();
+        }
+    }
+
+    @Test
+    public void convertAsync_concurrentConversions() throws Exception {
+        CopyRenderer renderer = new CopyRenderer();
+        Converter converter = new Converter(ConversionOptions.builder().build(), renderer);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        LogLevel old = Logger.level;
+        Logger.level = LogLevel.Error;
+
+        List<File> pdfs = new ArrayList<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < 16; i++) {
+                File tmpPdf = File.createTempFile("emailtopdf", ".pdf");
+                pdfs.add(tmpPdf);
+
+                String eml = getResourcePath(i % 2 == 0 ? "eml/testPlain.eml" : "eml/testHtml.eml");
+                futures.add(converter.convertAsync(new ConversionRequest(eml, tmpPdf.getAbsolutePath()), executor));
+            }
+
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+        } finally {
+            executor.shutdown();
+            Logger.level = old;
+        }
+
+        assertThat(renderer.invocations.get(), equalTo(16));
+
+        for (File tmpPdf : pdfs) {
+            assertThat(Files.asCharSource(tmpPdf, StandardCharsets.UTF_8).read(), containsString("<html"));
+
+            if (!tmpPdf.delete()) {
+                tmpPdf.deleteOnExit();
+            }
+        }
+    }
+
+    @Test
+    public void convertAsync_limitsConcurrentRenders() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+
+        PdfRenderer slowRenderer = new PdfRenderer() {
+            @Override
+            public void render(HtmlSource html, OutputStream pdf) throws Exception {
+                int current = running.incrementAndGet();
+                synchronized (maxRunning) {
+                    maxRunning.set(Math.max(maxRunning.get(), current));
+                }
+                Thread.sleep(20);
+                html.writeTo(pdf);
+                running.decrementAndGet();
+            }
+        };
+
+        Converter converter = new Converter(ConversionOptions.builder().maxConcurrentRenders(2).maxConcurrentParses(3).build(), slowRenderer);
+        ExecutorService executor = VirtualThreads.newVirtualThreadPerTaskExecutor(16);
+        byte[] eml = Resources.toByteArray(Resources.getResource("eml/testPlain.eml"));
+
+        LogLevel old = Logger.level;
+        Logger.level = LogLevel.Error;
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < 16; i++) {
+                futures.add(converter.convertAsync(new ConversionRequest(new ByteArrayInputStream(eml), "testPlain.eml", new ByteArrayOutputStream()), executor));
+            }
+
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+        } finally {
+            executor.shutdown();
+            Logger.level = old;
+        }
+
+        assertThat(maxRunning.get(), lessThanOrEqualTo(2));
+    }
+}
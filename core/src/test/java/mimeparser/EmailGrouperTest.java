@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * TestClass.
+ *
+ * @author Nick Russler
+ */
+public class EmailGrouperTest {
+    @Test
+    public void getThreadKey() {
+        assertThat(EmailGrouper.getThreadKey("<root@host>\r\n <reply@host>", "<reply@host>", "<own@host>", "Re: Subject"), equalTo("<root@host>"));
+        assertThat(EmailGrouper.getThreadKey(null, "<root@host>", "<own@host>", "Re: Subject"), equalTo("<root@host>"));
+        assertThat(EmailGrouper.getThreadKey(null, null, " <root@host> ", "Subject"), equalTo("<root@host>"));
+        assertThat(EmailGrouper.getThreadKey("", "broken", null, "AW: Fwd: Subject"), equalTo("subject:subject"));
+    }
+
+    @Test
+    public void normalizeSubject() {
+        assertThat(EmailGrouper.normalizeSubject("Re: RE[2]: Fwd:  Subject "), equalTo("Subject"));
+        assertThat(EmailGrouper.normalizeSubject("Reply: Subject"), equalTo("Reply: Subject"));
+        assertThat(EmailGrouper.normalizeSubject(null), equalTo(""));
+    }
+
+    @Test
+    public void group_byFolder() throws Exception {
+        String a1 = new File("a", "1.eml").getPath();
+        String b1 = new File("b", "1.eml").getPath();
+        String a2 = new File("a", "2.eml").getPath();
+
+        List<EmailGrouper.EmailGroup> groups = EmailGrouper.group(Arrays.asList(a1, b1, a2), BundleGrouping.FOLDER);
+
+        assertThat(groups.size(), equalTo(2));
+        assertThat(groups.get(0).getTitle(), equalTo("a"));
+        assertThat(groups.get(0).getEmailFilePaths(), contains(a1, a2));
+        assertThat(groups.get(1).getTitle(), equalTo("b"));
+        assertThat(groups.get(1).getEmailFilePaths(), contains(b1));
+    }
+
+    @Test
+    public void group_none() throws Exception {
+        List<EmailGrouper.EmailGroup> groups = EmailGrouper.group(Arrays.asList("b.eml", "a.eml"), BundleGrouping.NONE);
+
+        assertThat(groups.size(), equalTo(1));
+        assertThat(groups.get(0).getEmailFilePaths(), contains("b.eml", "a.eml"));
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.File;
+import org.junit.Test;
+
+/**
+ * TestClass.
+ *
+ * @author Nick Russler
+ */
+public class EmailMetadataTest {
+    private static File getResourceFile(String name) throws Exception {
+        return new File(EmailMetadataTest.class.getClassLoader().getResource(name).toURI());
+    }
+
+    @Test
+    public void read_headersOfPlainMessage() throws Exception {
+        File eml = getResourceFile("eml/testPlainWithCC.eml");
+        EmailMetadata metadata = EmailMetadata.read(eml);
+
+        assertThat(metadata.getMessageId(), equalTo("<31959B35C53.000000FBy.aaaat@ibbx.com>"));
+        assertThat(metadata.getFrom(), equalTo("bolo yükselulupe <y.aaaat@ibbx.com>"));
+        assertThat(metadata.getTo(), contains("naaa.rddder@aaal.com"));
+        assertThat(metadata.getCc(), contains("naaa2.rddder2@aaal.com"));
+        assertThat(metadata.getSubject(), equalTo("FW: RE: yeni projeler"));
+        assertThat(metadata.getDate(), equalTo("2014-12-11T13:20:45Z"));
+        assertThat(metadata.getSize(), equalTo(eml.length()));
+        assertThat(metadata.getAttachmentNames(), empty());
+    }
+
+    @Test
+    public void read_attachmentNamesWithoutInlineImages() throws Exception {
+        EmailMetadata metadata = EmailMetadata.read(getResourceFile("eml/testHtml.eml"));
+
+        assertThat(metadata.getDate(), equalTo("2005-04-30T22:28:29Z"));
+        assertThat(metadata.getCc(), empty());
+        assertThat(metadata.getAttachmentNames(), contains("attachment.txt"));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+
+import com.google.common.base.Strings;
+import java.io.StringWriter;
+import org.junit.Test;
+
+/**
+ * TestClass.
+ *
+ * @author Nick Russler
+ */
+public class HtmlRewriterTest {
+    private static final CidResolver RESOLVER = new CidResolver() {
+        @Override
+        public String resolve(String cid) {
+            return cid.equals("image1") ? "data:image/png;base64,AAAA" : null;
+        }
+    };
+
+    private static String rewrite(String html) {
+        return HtmlRewriter.rewrite(html, RESOLVER);
+    }
+
+    @Test
+    public void rewrite_replacesCidAttributes() {
+        assertThat(rewrite("<img src=\"cid:image1\"><td background='CID:image1'><img src=cid:image1>"),
+                equalTo("<img src=\"data:image/png;base64,AAAA\"><td background='data:image/png;base64,AAAA'><img src=data:image/png;base64,AAAA>"));
+    }
+
+    @Test
+    public void rewrite_replacesCssUrls() {
+        assertThat(rewrite("<div style=\"background: url('cid:image1')\"></div><style>p { background: url(cid:image1) }</style>"),
+                equalTo("<div style=\"background: url('data:image/png;base64,AAAA')\"></div><style>p { background: url(data:image/png;base64,AAAA) }</style>"));
+    }
+
+    @Test
+    public void rewrite_keepsUnknownCidAndText() {
+        String html = "<p>cid:image1</p><img src=\"cid:unknown\"><!-- <img src=\"cid:image1\"> --><script>a = \"<img src='cid:image1'>\";</script>";
+
+        assertThat(rewrite(html), sameInstance(html));
+    }
+
+    @Test
+    public void rewrite_overridesCharsetInHead() {
+        assertThat(rewrite("<html><head><META charset=\"iso-8859-1\"><meta http-equiv=\"Content-Type\" content=\"text/html; charset=windows-1252\"></head>"
+                + "<body><meta charset=\"iso-8859-1\"></body></html>"),
+                equalTo("<html><head><META charset=\"utf-8\"><meta http-equiv=\"Content-Type\" content=\"text/html; charset=utf-8\"></head>"
+                        + "<body><meta charset=\"iso-8859-1\"></body></html>"));
+    }
+
+    @Test
+    public void rewrite_keepsUtf8Charset() {
+        String html = "<meta charset=\"UTF-8\"><p>text</p>";
+
+        assertThat(rewrite(html), sameInstance(html));
+    }
+
+    @Test
+    public void rewrite_toWriter() throws Exception {
+        String html = "<html><head><meta charset=\"iso-8859-1\"></head><body><img src=\"cid:image1\"><img src=\"cid:unknown\"></body></html>";
+
+        StringWriter out = new StringWriter();
+        HtmlRewriter.rewrite(html, RESOLVER, out);
+
+        assertThat(out.toString(), equalTo(rewrite(html)));
+        assertThat(out.toString(), equalTo("<html><head><meta charset=\"utf-8\"></head><body><img src=\"data:image/png;base64,AAAA\"><img src=\"cid:unknown\"></body></html>"));
+
+        out = new StringWriter();
+        HtmlRewriter.rewrite("<p>text</p>", RESOLVER, out);
+
+        assertThat(out.toString(), equalTo("<p>text</p>"));
+    }
+
+    /**
+     * Malformed html must not cause backtracking, these inputs took minutes with the former regular expressions.
+     */
+    @Test(timeout = 10000)
+    public void rewrite_adversarialInputs() {
+        int n = 200000;
+
+        String unterminatedCid = "<img src=" + Strings.repeat("cid:", n);
+        assertThat(rewrite(unterminatedCid), equalTo(unterminatedCid));
+
+        String unterminatedQuote = "<img src=\"" + Strings.repeat("cid:x ", n);
+        assertThat(rewrite(unterminatedQuote), equalTo(unterminatedQuote));
+
+        String unterminatedTags = Strings.repeat("<meta charset", n);
+        assertThat(rewrite(unterminatedTags), equalTo(unterminatedTags));
+
+        String unterminatedUrls = "<p style=\"" + Strings.repeat("url(cid:", n);
+        assertThat(rewrite(unterminatedUrls), equalTo(unterminatedUrls));
+
+        String unterminatedComments = Strings.repeat("<!-- <", n);
+        assertThat(rewrite(unterminatedComments), equalTo(unterminatedComments));
+
+        String manyReferences = Strings.repeat("<img src=\"cid:image1\">", n);
+        assertThat(rewrite(manyReferences), equalTo(Strings.repeat("<img src=\"data:image/png;base64,AAAA\">", n)));
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ * TestClass.
+ *
+ * @author Nick Russler
+ */
+public class MemoryBudgetTest {
+    private static final long MIB = 1024 * 1024;
+
+    @Test
+    public void reserve_blocksUntilReleased() throws Exception {
+        final MemoryBudget budget = new MemoryBudget(10 * MIB);
+        MemoryBudget.Reservation first = budget.reserve(8 * MIB);
+
+        final CountDownLatch reserved = new CountDownLatch(1);
+        Thread second = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try (MemoryBudget.Reservation reservation = budget.reserve(4 * MIB)) {
+                    reserved.countDown();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        second.start();
+
+        assertFalse(reserved.await(200, TimeUnit.MILLISECONDS));
+
+        first.close();
+        first.close();
+
+        assertTrue(reserved.await(10, TimeUnit.SECONDS));
+        second.join();
+        assertThat(budget.getAvailable(), equalTo(10 * MIB));
+    }
+
+    @Test
+    public void reserve_moreThanCapacityRunsAlone() throws Exception {
+        MemoryBudget budget = new MemoryBudget(10 * MIB);
+
+        try (MemoryBudget.Reservation reservation = budget.reserve(100 * MIB)) {
+            assertThat(budget.getAvailable(), equalTo(0L));
+        }
+
+        assertThat(budget.getAvailable(), equalTo(budget.getCapacity()));
+    }
+
+    @Test
+    public void getDefaultCapacity() {
+        long capacity = MemoryBudget.getDefaultCapacity();
+
+        assertTrue(capacity > 0);
+        assertTrue(capacity <= Runtime.getRuntime().maxMemory());
+    }
+}
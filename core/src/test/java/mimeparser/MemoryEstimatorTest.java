@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+/**
+ * TestClass.
+ *
+ * @author Nick Russler
+ */
+public class MemoryEstimatorTest {
+    private static final String TEXT = "Hello\r\n";
+    private static final String IMAGE = "iVBORw0KGgo=\r\n";
+    private static final String ATTACHMENT = "JVBERi0xLjQ=\r\n";
+
+    private static final String EML = "Content-Type: multipart/mixed; boundary=b\r\n"
+            + "\r\n"
+            + "--b\r\n"
+            + "Content-Type: text/plain\r\n"
+            + "\r\n"
+            + TEXT
+            + "--b\r\n"
+            + "Content-Type: image/png\r\n"
+            + "Content-ID: <image1>\r\n"
+            + "\r\n"
+            + IMAGE
+            + "--b\r\n"
+            + "Content-Type: application/pdf\r\n"
+            + "Content-Disposition: attachment; filename=a.pdf\r\n"
+            + "\r\n"
+            + ATTACHMENT
+            + "--b--\r\n";
+
+    private static MemoryEstimator.Structure scan(String eml) throws IOException {
+        return MemoryEstimator.scan(new ByteArrayInputStream(eml.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    @Test
+    public void scan_sortsPartsByKind() throws IOException {
+        MemoryEstimator.Structure structure = scan(EML);
+
+        assertThat(structure.size, equalTo((long) EML.length()));
+        assertThat(structure.textBytes, equalTo((long) TEXT.length()));
+        assertThat(structure.inlineBytes, equalTo((long) IMAGE.length()));
+        assertThat(structure.attachmentBytes, equalTo((long) ATTACHMENT.length()));
+    }
+
+    @Test
+    public void scan_singlePartWithoutTrailingNewline() throws IOException {
+        MemoryEstimator.Structure structure = scan("Subject: test\n\nline1\nline2");
+
+        assertThat(structure.textBytes, equalTo(11L));
+    }
+
+    @Test
+    public void estimate_attachmentsOnlyCountWhenUsed() throws IOException {
+        MemoryEstimator.Structure structure = scan(EML);
+
+        long withoutAttachments = MemoryEstimator.estimate(structure, ConversionOptions.builder().build());
+        long withAttachments = MemoryEstimator.estimate(structure, ConversionOptions.builder().extractAttachments(true).build());
+
+        assertThat(withAttachments - withoutAttachments, equalTo(2L * ATTACHMENT.length()));
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import org.junit.Test;
+
+/**
+ * TestClass.
+ *
+ * @author Nick Russler
+ */
+public class MessageFormatsTest {
+    @Test
+    public void withoutPlugins_onlyEmlIsSupported() {
+        assertThat(MessageFormats.getFileExtensions(), contains("eml"));
+
+        assertThat(MessageFormats.isSupported("mail.eml"), equalTo(true));
+        assertThat(MessageFormats.isSupported("MAIL.EML"), equalTo(true));
+        assertThat(MessageFormats.isSupported("mail.msg"), equalTo(false));
+        assertThat(MessageFormats.isSupported("notes.txt"), equalTo(false));
+
+        assertThat(MessageFormats.forFileName("mail.msg"), nullValue());
+        assertThat(MessageFormats.forFileName(null), nullValue());
+    }
+}
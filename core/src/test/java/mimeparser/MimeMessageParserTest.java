@@ -0,0 +1,195 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+
+import com.google.common.io.BaseEncoding;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * TestClass.
+ *
+ * @author Nick Russler
+ */
+public class MimeMessageParserTest {
+    private static MimeMessage messagePlain;
+    private static MimeMessage messageComplex;
+
+    @BeforeClass
+    public static void setup() throws FileNotFoundException, MessagingException, URISyntaxException {
+        ClassLoader cl = MimeMessageParserTest.class.getClassLoader();
+
+        messagePlain = new MimeMessage(
+                null, new FileInputStream(new File(cl.getResource("eml/testPlain.eml").toURI())));
+        messageComplex = new MimeMessage(
+                null, new FileInputStream(new File(cl.getResource("eml/testHtml.eml").toURI())));
+    }
+
+    @Test
+    public void printStructure_foundAllPartsPlain() throws Exception {
+        assertThat(MimeMessageParser.printStructure(messagePlain), containsString("text/plain"));
+    }
+
+    @Test
+    public void printStructure_foundAllPartsComplex() throws Exception {
+        String structure = MimeMessageParser.printStructure(messageComplex);
+
+        assertThat(structure, containsString("multipart/mixed"));
+        assertThat(structure, containsString("multipart/related"));
+        assertThat(structure, containsString("multipart/alternative"));
+
+        assertThat(structure, containsString("text/plain"));
+        assertThat(structure, containsString("text/html"));
+
+        assertThat(structure, containsString("image/gif"));
+    }
+
+    @Test
+    public void findBodyPart_foundMainBodyInPlain() throws Exception {
+        assertThat(
+                "Hallo, Guten Tag!", equalTo(MimeMessageParser.findBodyPart(messagePlain).getEntry()));
+    }
+
+    @Test
+    public void findBodyPart_foundMainBodyInComplex() throws Exception {
+        assertThat(
+                "text/html", equalTo(MimeMessageParser.findBodyPart(messageComplex).getContentType().getBaseType()));
+    }
+
+    @Test
+    public void findBodyPart_prefersLargerPartAndSkipsBlankParts() throws Exception {
+        String eml = "Content-Type: multipart/alternative; boundary=\"b\"\r\n"
+                + "\r\n"
+                + "--b\r\n"
+                + "Content-Type: text/html; charset=utf-8\r\n"
+                + "\r\n"
+                + "<p>short</p>\r\n"
+                + "--b\r\n"
+                + "Content-Type: text/html; charset=utf-8\r\n"
+                + "Content-Transfer-Encoding: base64\r\n"
+                + "\r\n"
+                + BaseEncoding.base64().encode("<p>the longer html body</p>".getBytes(StandardCharsets.UTF_8)) + "\r\n"
+                + "--b\r\n"
+                + "Content-Type: text/html; charset=utf-8\r\n"
+                + "\r\n"
+                + "                                                                  \r\n"
+                + "--b--\r\n";
+
+        MimeMessage message = new MimeMessage(null, new ByteArrayInputStream(eml.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(MimeMessageParser.findBodyPart(message).getEntry(), equalTo("<p>the longer html body</p>"));
+    }
+
+    @Test
+    public void findBodyPartWithoutDecoding_noBody() throws Exception {
+        String eml = "Content-Type: text/plain; charset=utf-8\r\n"
+                + "\r\n"
+                + "  \r\n";
+
+        MimeMessage message = new MimeMessage(null, new ByteArrayInputStream(eml.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(MimeMessageParser.findBodyPartWithoutDecoding(message), is(nullValue()));
+        assertThat(MimeMessageParser.findBodyPart(message).getEntry(), equalTo(""));
+    }
+
+    @Test
+    public void getInlineImageMap_foundImagesInComplex() throws Exception {
+        HashMap<String, MimeObjectEntry<String>> inlineImageMap = MimeMessageParser.getInlineImageMap(messageComplex);
+
+        assertThat(inlineImageMap.get("<ae0357e57f04b8347f7621662cb63855.gif>"), is(not(nullValue())));
+        assertThat(inlineImageMap.get("<4c837ed463ad29c820668e835a270e8a.gif>"), is(not(nullValue())));
+    }
+
+    @Test
+    public void getInlineImageMap_encodesImagesOfAllTransferEncodings() throws Exception {
+        byte[] image = "GIF89a\u0001\u0000\u0001\u0000 image bytes that span more than one line of base64 ===".getBytes(StandardCharsets.ISO_8859_1);
+        String base64 = BaseEncoding.base64().encode(image);
+
+        String eml = "Content-Type: multipart/related; boundary=\"b\"\r\n"
+                + "\r\n"
+                + "--b\r\n"
+                + "Content-Type: image/gif\r\n"
+                + "Content-Id: <base64>\r\n"
+                + "Content-Transfer-Encoding: base64\r\n"
+                + "\r\n"
+                + BaseEncoding.base64().withSeparator("\r\n", 76).encode(image) + "\r\n"
+                + "--b\r\n"
+                + "Content-Type: image/gif\r\n"
+                + "Content-Id: <quoted-printable>\r\n"
+                + "Content-Transfer-Encoding: quoted-printable\r\n"
+                + "\r\n"
+                + "GIF89a=01=00=01=00 image bytes that span more than one line of base64 =3D=3D=3D\r\n"
+                + "--b\r\n"
+                + "Content-Type: image/gif\r\n"
+                + "Content-Id: <truncated>\r\n"
+                + "Content-Transfer-Encoding: base64\r\n"
+                + "\r\n"
+                + base64 + "QQ\r\n"
+                + "--b--\r\n";
+
+        MimeMessage message = new MimeMessage(null, new ByteArrayInputStream(eml.getBytes(StandardCharsets.ISO_8859_1)));
+        HashMap<String, MimeObjectEntry<String>> inlineImageMap = MimeMessageParser.getInlineImageMap(message);
+
+        assertThat(inlineImageMap.get("<base64>").getEntry(), equalTo(base64));
+        assertThat(inlineImageMap.get("<quoted-printable>").getEntry(), equalTo(base64));
+        // the incomplete last group is left to the decoder, the result is valid base64 again
+        byte[] truncated = BaseEncoding.base64().decode(inlineImageMap.get("<truncated>").getEntry());
+        assertThat(Arrays.copyOf(truncated, image.length), equalTo(image));
+    }
+
+    @Test
+    public void getBase64Content_decodesPaddingFollowedByData() throws Exception {
+        MimeBodyPart part = new MimeBodyPart() {
+            @Override
+            public String getEncoding() {
+                return "base64";
+            }
+
+            @Override
+            public InputStream getRawInputStream() {
+                return new ByteArrayInputStream("R0lGODlhQQ=Q\r\n".getBytes(StandardCharsets.US_ASCII));
+            }
+
+            @Override
+            public InputStream getInputStream() {
+                // what the lenient decoder makes of it
+                return new ByteArrayInputStream("GIF89aA".getBytes(StandardCharsets.US_ASCII));
+            }
+        };
+
+        assertThat(MimeMessageParser.getBase64Content(part), equalTo("R0lGODlhQQ=="));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mimeparser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import com.google.common.base.Strings;
+import jakarta.mail.internet.ContentType;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+/**
+ * TestClass.
+ *
+ * @author Nick Russler
+ */
+public class PlainTextHtmlEncoderTest {
+    private static String encode(String text, Map<String, MimeObjectEntry<String>> inlineImageMap) throws IOException {
+        StringWriter out = new StringWriter();
+        PlainTextHtmlEncoder.encode(new StringReader(text), out, new CidIndex(inlineImageMap));
+        return out.toString();
+    }
+
+    private static String encode(String text) throws IOException {
+        return encode(text, Collections.<String, MimeObjectEntry<String>>emptyMap());
+    }
+
+    @Test
+    public void encode_escapesHtml() throws IOException {
+        assertThat(encode("a < b && c > \"d\" 'e'"), equalTo("a &lt; b &amp;&amp; c &gt; &quot;d&quot; &#39;e&#39;"));
+    }
+
+    @Test
+    public void encode_lineBreaks() throws IOException {
+        assertThat(encode("line1\r\nline2\nline3\r"), equalTo("line1<br>line2<br>line3"));
+    }
+
+    @Test
+    public void encode_replacesCidReference() throws Exception {
+        Map<String, MimeObjectEntry<String>> inlineImageMap = new HashMap<>();
+        inlineImageMap.put("<image1>", new MimeObjectEntry<>("AAAA", new ContentType("image/png")));
+
+        assertThat(encode("before [cid:image1] after", inlineImageMap), equalTo("before <img src=\"data:image/png;base64,AAAA\" /> after"));
+    }
+
+    @Test
+    public void encode_replacesCidReferenceByLocalPart() throws Exception {
+        Map<String, MimeObjectEntry<String>> inlineImageMap = new HashMap<>();
+        inlineImageMap.put("<image1@host>", new MimeObjectEntry<>("AAAA", new ContentType("image/png")));
+
+        assertThat(encode("[cid:image1]", inlineImageMap), equalTo("<img src=\"data:image/png;base64,AAAA\" />"));
+    }
+
+    @Test
+    public void encode_keepsUnknownCidReference() throws Exception {
+        Map<String, MimeObjectEntry<String>> inlineImageMap = new HashMap<>();
+        inlineImageMap.put("<image1>", new MimeObjectEntry<>("AAAA", new ContentType("image/png")));
+
+        assertThat(encode("[[cid:<unknown>] [ci", inlineImageMap), equalTo("[[cid:&lt;unknown&gt;] [ci"));
+    }
+
+    @Test
+    public void encode_unterminatedCidReference() throws IOException {
+        String text = "[cid:" + Strings.repeat("x<", PlainTextHtmlEncoder.MAX_CID_LENGTH) + "\n";
+
+        assertThat(encode(text), equalTo("[cid:" + Strings.repeat("x&lt;", PlainTextHtmlEncoder.MAX_CID_LENGTH) + "<br>"));
+    }
+
+    @Test
+    public void encode_largeText() throws IOException {
+        String line = "0123456789 <tag> & [cid:none]\n";
+        String text = Strings.repeat(line, 10000);
+        String expectedLine = "0123456789 &lt;tag&gt; &amp; [cid:none]<br>";
+
+        assertThat(encode(text), equalTo(Strings.repeat(expectedLine, 10000)));
+    }
+}
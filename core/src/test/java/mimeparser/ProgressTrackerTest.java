@@ -0,0 +1,161 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package mimeparser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import com.google.common.base.Ticker;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+/**
+ * TestClass.
+ *
+ * @author Nick Russler
+ */
+public class ProgressTrackerTest {
+    private static final class FakeTicker extends Ticker {
+        private final AtomicLong nanos = new AtomicLong();
+
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+
+        void advance(long seconds) {
+            nanos.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+        }
+    }
+
+    private static ConversionRequest request() {
+        return new ConversionRequest(new ByteArrayInputStream(new byte[0]), "test.eml", new ByteArrayOutputStream());
+    }
+
+    @Test
+    public void progress_throughputAndEta() {
+        final List<ConversionProgress> events = new ArrayList<>();
+        FakeTicker ticker = new FakeTicker();
+
+        ProgressTracker tracker = new ProgressTracker(Collections.<ConversionListener>singletonList(new ConversionListener() {
+            @Override
+            public void progress(ConversionProgress progress) {
+                events.add(progress);
+            }
+        }), ticker);
+
+        tracker.start(4, 6000);
+
+        ConversionRequest first = request();
+        tracker.bytesProcessed(first, 1000);
+        ticker.advance(10);
+        tracker.itemFinished(first, null, 0);
+
+        ConversionProgress progress = events.get(0);
+        assertThat(progress.getFinishedItems(), equalTo(1));
+        assertThat(progress.getProcessedBytes(), equalTo(1000L));
+        assertThat(progress.getBytesPerSecond(), equalTo(100.0));
+        assertThat(progress.getEtaNanos(), equalTo(TimeUnit.SECONDS.toNanos(50)));
+
+        ConversionRequest second = request();
+        tracker.bytesProcessed(second, 2000);
+        ticker.advance(10);
+        tracker.itemFinished(second, new IOException("broken"), 0);
+
+        progress = events.get(1);
+        assertThat(progress.getCompletedItems(), equalTo(1));
+        assertThat(progress.getFailedItems(), equalTo(1));
+        assertThat(progress.getItemsPerSecond(), equalTo(0.1));
+        assertThat(progress.getEtaNanos(), equalTo(TimeUnit.SECONDS.toNanos(20)));
+        assertThat(progress.isFinished(), equalTo(false));
+    }
+
+    @Test
+    public void progress_rollingWindow() {
+        final List<ConversionProgress> events = new ArrayList<>();
+        FakeTicker ticker = new FakeTicker();
+
+        ProgressTracker tracker = new ProgressTracker(Collections.<ConversionListener>singletonList(new ConversionListener() {
+            @Override
+            public void progress(ConversionProgress progress) {
+                events.add(progress);
+            }
+        }), ticker);
+
+        // without sizes the estimate is based on the number of emails
+        tracker.start(3, 0);
+
+        ticker.advance(1);
+        tracker.itemFinished(request(), null, 0);
+
+        // the fast first email drops out of the window, only the slow second one counts
+        ticker.advance(TimeUnit.NANOSECONDS.toSeconds(ProgressTracker.WINDOW_NANOS) + 29);
+        tracker.itemFinished(request(), null, 0);
+
+        ConversionProgress progress = events.get(1);
+        assertThat(progress.getItemsPerSecond() * TimeUnit.NANOSECONDS.toSeconds(ProgressTracker.WINDOW_NANOS), equalTo(1.0));
+        assertThat(progress.getEtaNanos(), equalTo(ProgressTracker.WINDOW_NANOS));
+
+        tracker.itemFinished(request(), null, 0);
+        assertThat(events.get(2).isFinished(), equalTo(true));
+        assertThat(events.get(2).getEtaNanos(), equalTo(0L));
+    }
+
+    @Test
+    public void progress_deliveredInOrderByParallelConversions() throws Exception {
+        final List<Integer> finished = Collections.synchronizedList(new ArrayList<Integer>());
+
+        final ProgressTracker tracker = new ProgressTracker(Collections.<ConversionListener>singletonList(new ConversionListener() {
+            @Override
+            public void progress(ConversionProgress progress) {
+                finished.add(progress.getFinishedItems());
+            }
+        }));
+        tracker.start(4000, 0);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 1000; j++) {
+                        tracker.itemFinished(request(), null, 0);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(finished.size(), equalTo(4000));
+        for (int i = 0; i < finished.size(); i++) {
+            assertThat(finished.get(i), equalTo(i + 1));
+        }
+    }
+}
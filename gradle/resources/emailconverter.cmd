@@ -0,0 +1,13 @@
+@echo off
+rem Starts emailconverter.jar with the class-data sharing archive created by "gradlew cdsArchive".
+rem If the archive is missing or does not match the jar (or the JDK), the JVM silently starts without it.
+setlocal
+set DIR=%~dp0
+
+if exist "%DIR%emailconverter.jsa" (
+    java -XX:SharedArchiveFile="%DIR%emailconverter.jsa" -Xshare:auto -jar "%DIR%emailconverter.jar" %*
+) else (
+    java -jar "%DIR%emailconverter.jar" %*
+)
+
+exit /b %ERRORLEVEL%
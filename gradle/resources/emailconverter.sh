@@ -0,0 +1,10 @@
+#!/bin/sh
+# Starts emailconverter.jar with the class-data sharing archive created by "gradlew cdsArchive".
+# If the archive is missing or does not match the jar (or the JDK), the JVM silently starts without it.
+DIR="$(cd "$(dirname "$0")" && pwd)"
+
+if [ -f "$DIR/emailconverter.jsa" ]; then
+    exec java -XX:SharedArchiveFile="$DIR/emailconverter.jsa" -Xshare:auto -jar "$DIR/emailconverter.jar" "$@"
+fi
+
+exec java -jar "$DIR/emailconverter.jar" "$@"
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gui;
+
+import com.google.common.base.Throwables;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import mimeparser.ConversionRequest;
+import mimeparser.Converter;
+import util.Logger;
+
+/**
+ * Converts the emails of the {@link MainWindow} on a pool of worker threads. The conversion can be paused, which lets
+ * the running conversions finish but starts no new ones, and cancelled, which also interrupts the running
+ * conversions.
+ *
+ * @author Nick Russler
+ */
+class ConversionQueue {
+    /**
+     * Receives the status changes, called by the worker threads.
+     */
+    interface Callback {
+        void statusChanged(String emailFilePath, ConversionStatus status);
+
+        /**
+         * All emails are finished or cancelled.
+         */
+        void finished();
+    }
+
+    private final Converter converter;
+    private final List<String> emailFilePaths;
+    private final Callback callback;
+    private final ExecutorService pool;
+    private final int workers;
+
+    private final AtomicInteger nextIndex = new AtomicInteger();
+    private final AtomicInteger runningWorkers = new AtomicInteger();
+    private final Object pauseLock = new Object();
+
+    private volatile boolean paused;
+    private volatile boolean cancelled;
+
+    /**
+     * @param converter      converter that is shared by the workers
+     * @param emailFilePaths emails that are converted, each into a pdf alongside the email
+     * @param workers        number of emails that are converted in parallel
+     * @param callback       receives the status of the emails
+     */
+    ConversionQueue(Converter converter, List<String> emailFilePaths, int workers, Callback callback) {
+        this.converter = converter;
+        this.emailFilePaths = new ArrayList<>(emailFilePaths);
+        this.callback = callback;
+        this.workers = Math.max(1, Math.min(workers, this.emailFilePaths.size()));
+        this.pool = Executors.newFixedThreadPool(this.workers);
+    }
+
+    /**
+     * Start the workers, this method does not block.
+     */
+    void start() {
+        for (String emailFilePath : emailFilePaths) {
+            callback.statusChanged(emailFilePath, ConversionStatus.QUEUED);
+        }
+
+        runningWorkers.set(workers);
+
+        for (int i = 0; i < workers; i++) {
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        work();
+                    } finally {
+                        if (runningWorkers.decrementAndGet() == 0) {
+                            complete();
+                        }
+                    }
+                }
+            });
+        }
+
+        pool.shutdown();
+    }
+
+    void pause() {
+        paused = true;
+    }
+
+    void resume() {
+        synchronized (pauseLock) {
+            paused = false;
+            pauseLock.notifyAll();
+        }
+    }
+
+    boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Start no further conversions and interrupt the running ones, interrupted renderer processes are killed.
+     */
+    void cancel() {
+        synchronized (pauseLock) {
+            cancelled = true;
+            pauseLock.notifyAll();
+        }
+
+        pool.shutdownNow();
+    }
+
+    private void work() {
+        while (awaitResumed()) {
+            int index = nextIndex.getAndIncrement();
+            if (index >= emailFilePaths.size()) {
+                return;
+            }
+
+            String emailFilePath = emailFilePaths.get(index);
+            callback.statusChanged(emailFilePath, ConversionStatus.CONVERTING);
+
+            try {
+                converter.convert(new ConversionRequest(emailFilePath));
+                callback.statusChanged(emailFilePath, ConversionStatus.DONE);
+            } catch (Exception e) {
+                if (cancelled) {
+                    callback.statusChanged(emailFilePath, ConversionStatus.CANCELLED);
+                    return;
+                }
+
+                Logger.error("The email %s could not be converted. Error: %s", emailFilePath, Throwables.getStackTraceAsString(e));
+                callback.statusChanged(emailFilePath, ConversionStatus.FAILED);
+            }
+        }
+    }
+
+    /**
+     * Block while the queue is paused.
+     *
+     * @return false if the queue was cancelled
+     */
+    private boolean awaitResumed() {
+        synchronized (pauseLock) {
+            while (paused && !cancelled) {
+                try {
+                    pauseLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+
+        return !cancelled;
+    }
+
+    private void complete() {
+        // emails that were not started yet
+        int index;
+        while ((index = nextIndex.getAndIncrement()) < emailFilePaths.size()) {
+            callback.statusChanged(emailFilePaths.get(index), ConversionStatus.CANCELLED);
+        }
+
+        callback.finished();
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gui;
+
+import java.awt.Color;
+
+/**
+ * Status of an email in the list of the {@link MainWindow}.
+ *
+ * @author Nick Russler
+ */
+enum ConversionStatus {
+    QUEUED("queued", Color.GRAY),
+    CONVERTING("converting", new Color(0, 90, 200)),
+    DONE("done", new Color(0, 140, 0)),
+    FAILED("failed", Color.RED),
+    CANCELLED("cancelled", Color.ORANGE.darker());
+
+    private final String label;
+    private final Color color;
+
+    ConversionStatus(String label, Color color) {
+        this.label = label;
+        this.color = color;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public Color getColor() {
+        return color;
+    }
+}
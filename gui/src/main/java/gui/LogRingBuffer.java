@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gui;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.swing.text.AttributeSet;
+
+/**
+ * Bounded buffer of the latest console lines. Writers only copy a reference into the ring, so they never wait for the
+ * event dispatch thread, which reads the lines it has not displayed yet at its own pace.
+ *
+ * @author Nick Russler
+ */
+final class LogRingBuffer {
+    private String[] texts;
+    private AttributeSet[] attributes;
+
+    // sequence number of the next line, the line with sequence number n is stored at n % capacity
+    private long nextSeq;
+
+    // number of buffered lines, these are the lines before nextSeq
+    private int size;
+
+    LogRingBuffer(int capacity) {
+        setCapacity(capacity);
+    }
+
+    /**
+     * Change the number of lines that are kept, the latest lines are preserved.
+     */
+    synchronized void setCapacity(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Maximum lines must be greater than 0");
+        }
+
+        String[] newTexts = new String[capacity];
+        AttributeSet[] newAttributes = new AttributeSet[capacity];
+
+        size = Math.min(size, capacity);
+
+        for (long seq = nextSeq - size; seq < nextSeq; seq++) {
+            int from = (int) (seq % texts.length);
+            int to = (int) (seq % capacity);
+            newTexts[to] = texts[from];
+            newAttributes[to] = attributes[from];
+        }
+
+        this.texts = newTexts;
+        this.attributes = newAttributes;
+    }
+
+    synchronized int getCapacity() {
+        return texts.length;
+    }
+
+    /**
+     * Add a line, the oldest line is dropped if the buffer is full.
+     *
+     * @param text       line without line separator
+     * @param attributes attributes of the line, may be null
+     */
+    synchronized void add(String text, AttributeSet attributes) {
+        int index = (int) (nextSeq % texts.length);
+        this.texts[index] = text;
+        this.attributes[index] = attributes;
+        nextSeq++;
+        size = Math.min(size + 1, texts.length);
+    }
+
+    /**
+     * @return the sequence number the next added line gets
+     */
+    synchronized long getNextSeq() {
+        return nextSeq;
+    }
+
+    /**
+     * Get the lines that were added since the given sequence number, as far as they are still buffered.
+     *
+     * @param seq sequence number of the first line that is requested
+     * @return the lines
+     */
+    synchronized Chunk linesSince(long seq) {
+        long first = Math.max(seq, nextSeq - size);
+
+        List<String> chunkTexts = new ArrayList<>((int) Math.max(0, nextSeq - first));
+        List<AttributeSet> chunkAttributes = new ArrayList<>(chunkTexts.size());
+
+        for (long i = first; i < nextSeq; i++) {
+            int index = (int) (i % texts.length);
+            chunkTexts.add(texts[index]);
+            chunkAttributes.add(attributes[index]);
+        }
+
+        return new Chunk(chunkTexts, chunkAttributes, first > seq, nextSeq);
+    }
+
+    /**
+     * Lines read from the buffer.
+     */
+    static final class Chunk {
+        private final List<String> texts;
+        private final List<AttributeSet> attributes;
+        private final boolean linesDropped;
+        private final long nextSeq;
+
+        Chunk(List<String> texts, List<AttributeSet> attributes, boolean linesDropped, long nextSeq) {
+            this.texts = Collections.unmodifiableList(texts);
+            this.attributes = Collections.unmodifiableList(attributes);
+            this.linesDropped = linesDropped;
+            this.nextSeq = nextSeq;
+        }
+
+        List<String> getTexts() {
+            return texts;
+        }
+
+        List<AttributeSet> getAttributes() {
+            return attributes;
+        }
+
+        /**
+         * @return true if lines were overwritten before they were read, the reader has to start over
+         */
+        boolean isLinesDropped() {
+            return linesDropped;
+        }
+
+        /**
+         * @return sequence number to pass to the next call of {@link LogRingBuffer#linesSince(long)}
+         */
+        long getNextSeq() {
+            return nextSeq;
+        }
+    }
+}
@@ -16,17 +16,20 @@
 
 package gui;
 
-import cli.Main;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
 import com.google.common.io.Files;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
 import javax.swing.event.ChangeEvent;
@@ -34,6 +37,16 @@ import javax.swing.event.ChangeListener;
 import javax.swing.event.ListDataEvent;
 import javax.swing.event.ListDataListener;
 import javax.swing.filechooser.FileNameExtensionFilter;
+import mimeparser.ConversionListener;
+import mimeparser.ConversionOptions;
+import mimeparser.ConversionProgress;
+import mimeparser.ConversionSession;
+import mimeparser.Converter;
+import mimeparser.MemoryBudget;
+import mimeparser.MessageFormats;
+import mimeparser.ProgressTracker;
+import util.HttpUtils;
+import util.Logger;
 
 /**
  * Main Window GUI Class.
@@ -47,6 +60,18 @@ public class MainWindow {
     private JLabel lblConvertingEmail;
     private JProgressBar progressBar;
     private JButton btnStartConversion;
+    private JButton btnPause;
+    private JButton btnCancel;
+    private JList<String> list;
+
+    // status of every email of the current or last conversion, written by the workers
+    private final Map<String, ConversionStatus> statuses = new ConcurrentHashMap<>();
+
+    // accessed on the event dispatch thread only
+    private ConversionQueue queue;
+
+    // created by the warm up thread or the first run, see getSession()
+    private ConversionSession session;
 
     /**
      * Launch the application.
@@ -99,7 +124,23 @@ public class MainWindow {
         scrollPane.setBorder(new TitledBorder(null, "Email Files", TitledBorder.LEADING, TitledBorder.TOP, null, null));
         scrollPane.setBackground(Color.WHITE);
 
-        final JList<String> list = new JList<String>();
+        list = new JList<String>();
+        list.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+                ConversionStatus status = statuses.get(String.valueOf(value));
+                if (status == null) {
+                    return super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+                }
+
+                Component c = super.getListCellRendererComponent(list, "[" + status.getLabel() + "] " + value, index, isSelected, cellHasFocus);
+                if (!isSelected) {
+                    c.setForeground(status.getColor());
+                }
+
+                return c;
+            }
+        });
         scrollPane.setViewportView(list);
         final DefaultListModel<String> listModel = new DefaultListModel<String>();
         list.setModel(listModel);
@@ -141,7 +182,7 @@ public class MainWindow {
                         @Override
                         public void run() {
                             for (File f : Files.fileTraverser().depthFirstPreOrder(dirChooser.getSelectedFile())) {
-                                if (f.getName().endsWith(".eml") || f.getName().endsWith(".msg")) {
+                                if (MessageFormats.isSupported(f.getName())) {
                                     listModel.addElement(f.getAbsolutePath());
                                 }
                             }
@@ -159,7 +200,7 @@ public class MainWindow {
 
         final JFileChooser fileChooser = new JFileChooser();
         fileChooser.setMultiSelectionEnabled(true);
-        fileChooser.setFileFilter(new FileNameExtensionFilter("Message files", "eml", "msg"));
+        fileChooser.setFileFilter(new FileNameExtensionFilter("Message files", MessageFormats.getFileExtensions().toArray(new String[0])));
 
         JButton btnAddFile = new JButton("Add File(s)");
         btnAddFile.setIcon(new ImageIcon(MainWindow.class.getResource("/icons/email_add.png")));
@@ -281,19 +322,61 @@ public class MainWindow {
                 }
 
                 final String proxy = proxyTmp;
+                final List<String> emailFilePaths = Collections.list(listModel.elements());
+                final boolean showHeaders = chckbxAddEmailHeaders.isSelected();
+                final boolean addAttachmentNames = chckbxAddAttachmentNames.isSelected();
+                final boolean extractAttachments = chckbxExtractAttachments.isSelected();
+
+                // resolving the proxy can take a while, so the queue is created off the event dispatch thread
                 new Thread(new Runnable() {
                     @Override
                     public void run() {
-                        startConversion(
-                                Collections.list(listModel.elements()), chckbxAddEmailHeaders.isSelected(), proxy, chckbxAddAttachmentNames.isSelected(), chckbxExtractAttachments.isSelected());
+                        startConversion(emailFilePaths, showHeaders, proxy, addAttachmentNames, extractAttachments);
                     }
                 }).start();
             }
         });
         btnStartConversion.setFont(new Font("Tahoma", Font.BOLD, 14));
-        btnStartConversion.setBounds(117, 75, 425, 41);
+        btnStartConversion.setBounds(10, 75, 330, 41);
         panelProgress.add(btnStartConversion);
 
+        btnPause = new JButton("Pause");
+        btnPause.setEnabled(false);
+        btnPause.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (queue == null) {
+                    return;
+                }
+
+                if (queue.isPaused()) {
+                    queue.resume();
+                    btnPause.setText("Pause");
+                } else {
+                    queue.pause();
+                    btnPause.setText("Resume");
+                }
+            }
+        });
+        btnPause.setBounds(350, 75, 147, 41);
+        panelProgress.add(btnPause);
+
+        btnCancel = new JButton("Cancel");
+        btnCancel.setIcon(new ImageIcon(MainWindow.class.getResource("/icons/cross.png")));
+        btnCancel.setEnabled(false);
+        btnCancel.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (queue != null) {
+                    btnPause.setEnabled(false);
+                    btnCancel.setEnabled(false);
+                    queue.cancel();
+                }
+            }
+        });
+        btnCancel.setBounds(507, 75, 147, 41);
+        panelProgress.add(btnCancel);
+
         progressBar = new JProgressBar();
         progressBar.setBounds(10, 32, 644, 32);
         panelProgress.add(progressBar);
@@ -337,54 +420,151 @@ public class MainWindow {
 
         mc.setContainer(scrollPaneLog);
         mc.setMessageLines(1000);
+
+        // load the templates and registries while the user picks the emails
+        Thread warmUp = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    getSession().warmUp();
+                } catch (IOException e) {
+                    Logger.debug("Could not prepare the conversion session: %s", e);
+                }
+            }
+        }, "session-warm-up");
+        warmUp.setDaemon(true);
+        warmUp.start();
     }
 
     /**
-     * Start converting the email files.
+     * The session outlives the runs, so the proxy is resolved at most once per ttl.
+     */
+    private synchronized ConversionSession getSession() throws IOException {
+        if (session == null) {
+            session = ConversionSession.create(HttpUtils.getDefaultProxyUrlLookup());
+        }
+
+        return session;
+    }
+
+    /**
+     * Start converting the email files on a worker per processor.
      */
     private void startConversion(List<String> l, boolean showHeaders, String proxy, boolean addAttachmentNames, boolean extractAttachments) {
-        try {
-            ArrayList<String> argsOptions = new ArrayList<String>();
+        final ConversionQueue newQueue;
 
-            if (!showHeaders) {
-                argsOptions.add("--hide-headers");
+        try {
+            ConversionSession session;
+            try {
+                session = getSession();
+            } catch (IOException e) {
+                Logger.error("The converter could not be initialized. Error: %s", Throwables.getStackTraceAsString(e));
+                conversionFinished();
+                return;
             }
 
-            if (!Strings.isNullOrEmpty(proxy)) {
-                argsOptions.add("--proxy");
-                argsOptions.add(proxy);
-            }
+            if ("auto".equalsIgnoreCase(proxy)) {
+                proxy = session.getDefaultProxyUrl();
 
-            if (addAttachmentNames) {
-                argsOptions.add("--add-attachment-names");
+                if (proxy == null) {
+                    Logger.error("Default proxy could not be determined, please specify it manually");
+                    conversionFinished();
+                    return;
+                }
             }
 
-            if (extractAttachments) {
-                argsOptions.add("--extract-attachments");
+            final int total = l.size();
+            ProgressTracker tracker = new ProgressTracker(Collections.<ConversionListener>singletonList(new ConversionListener() {
+                @Override
+                public void progress(final ConversionProgress progress) {
+                    SwingUtilities.invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            lblConvertingEmail.setText(formatProgress(progress));
+                            progressBar.setValue((int) Math.ceil(progress.getFinishedItems() * 100d / total));
+                        }
+                    });
+                }
+            }));
+
+            ConversionOptions options = ConversionOptions.builder()
+                    .hideHeaders(!showHeaders)
+                    .addAttachmentNames(addAttachmentNames)
+                    .extractAttachments(extractAttachments)
+                    .proxy(Strings.emptyToNull(proxy))
+                    .memoryBudget(MemoryBudget.createDefault())
+                    .listener(tracker)
+                    .build();
+
+            Converter converter = new Converter(options, session);
+
+            long totalBytes = 0;
+            for (String emailFilePath : l) {
+                totalBytes += new File(emailFilePath).length();
             }
+            tracker.start(total, totalBytes);
+
+            statuses.clear();
+            newQueue = new ConversionQueue(converter, l, Runtime.getRuntime().availableProcessors(), new ConversionQueue.Callback() {
+                @Override
+                public void statusChanged(String emailFilePath, ConversionStatus status) {
+                    statuses.put(emailFilePath, status);
+                    list.repaint();
+                }
 
-            int listSize = l.size();
-            for (int i = 0; i < listSize; i++) {
-                String[] args = new String[argsOptions.size() + 1];
-                argsOptions.toArray(args);
-                args[args.length - 1] = l.get(i);
+                @Override
+                public void finished() {
+                    conversionFinished();
+                }
+            });
+        } catch (RuntimeException e) {
+            conversionFinished();
+            throw e;
+        }
 
-                Main.main(args);
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                queue = newQueue;
+                btnPause.setText("Pause");
+                btnPause.setEnabled(true);
+                btnCancel.setEnabled(true);
+                frmEmailToPdf.setCursor(Cursor.getDefaultCursor());
 
-                final String text = "Email " + (i + 1) + " of " + listSize;
-                final int percent = (int) Math.ceil(((i + 1d) * 100d) / listSize);
+                newQueue.start();
+            }
+        });
+    }
 
-                SwingUtilities.invokeLater(new Runnable() {
-                    @Override
-                    public void run() {
-                        lblConvertingEmail.setText(text);
-                        progressBar.setValue(percent);
-                    }
-                });
+    /**
+     * Reset the controls after the conversion finished or could not be started, may be called from any thread.
+     */
+    private void conversionFinished() {
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                queue = null;
+                btnPause.setText("Pause");
+                btnPause.setEnabled(false);
+                btnCancel.setEnabled(false);
+                btnStartConversion.setEnabled(true);
+                frmEmailToPdf.setCursor(Cursor.getDefaultCursor());
             }
-        } finally {
-            btnStartConversion.setEnabled(true);
-            frmEmailToPdf.setCursor(Cursor.getDefaultCursor());
+        });
+    }
+
+    private static String formatProgress(ConversionProgress progress) {
+        StringBuilder sb = new StringBuilder("Email " + progress.getFinishedItems() + " of " + progress.getTotalItems());
+
+        if (progress.getFailedItems() > 0) {
+            sb.append(" (").append(progress.getFailedItems()).append(" failed)");
+        }
+
+        if (!progress.isFinished() && progress.getEtaNanos() >= 0) {
+            long seconds = TimeUnit.NANOSECONDS.toSeconds(progress.getEtaNanos());
+            sb.append(String.format(", %.1f emails/s, %d:%02d:%02d remaining", progress.getItemsPerSecond(), seconds / 3600, (seconds / 60) % 60, seconds % 60));
         }
+
+        return sb.toString();
     }
 }
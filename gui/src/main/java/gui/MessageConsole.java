@@ -0,0 +1,303 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gui;
+
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import javax.swing.*;
+import javax.swing.text.*;
+
+/**
+ * Create a simple console to display text messages.
+ *
+ * Messages can be directed here from different sources. Each source can have
+ * its messages displayed in a different color.
+ *
+ * Messages can either be appended to the console or inserted as the first line
+ * of the console
+ *
+ * The lines are collected in a bounded ring buffer and moved into the Document
+ * at a fixed frame rate, so heavy output neither floods the event dispatch
+ * thread nor blocks the threads that write it.
+ */
+public class MessageConsole {
+    private static final int DEFAULT_MESSAGE_LINES = 1000;
+    private static final int FRAME_MILLIS = 40;
+
+    private JTextComponent textComponent;
+    private Document document;
+    private boolean isAppend;
+    private JScrollPane container;
+
+    private final LogRingBuffer buffer = new LogRingBuffer(DEFAULT_MESSAGE_LINES);
+    private final Timer repaintTimer;
+
+    // accessed on the event dispatch thread only
+    private long displayedSeq;
+    private int maximumLines = DEFAULT_MESSAGE_LINES;
+
+    public MessageConsole(JTextComponent textComponent) {
+        this(textComponent, true);
+    }
+
+    /*
+     * Use the text component specified as a simply console to display text
+     * messages.
+     *
+     * The messages can either be appended to the end of the console or inserted
+     * as the first line of the console.
+     */
+    public MessageConsole(JTextComponent textComponent, boolean isAppend) {
+        this.textComponent = textComponent;
+        this.document = textComponent.getDocument();
+        this.isAppend = isAppend;
+        textComponent.setEditable(false);
+
+        repaintTimer = new Timer(FRAME_MILLIS, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                displayNewLines();
+            }
+        });
+        repaintTimer.start();
+    }
+
+    /*
+     * Redirect the output from the standard output to the console using the
+     * default text color and null PrintStream
+     */
+    public void redirectOut() throws UnsupportedEncodingException {
+        redirectOut(null, null);
+    }
+
+    /*
+     * Redirect the output from the standard output to the console using the
+     * specified color and PrintStream. When a PrintStream is specified the
+     * message will be added to the Document before it is also written to the
+     * PrintStream.
+     */
+    public void redirectOut(Color textColor, PrintStream printStream) throws UnsupportedEncodingException {
+        ConsoleOutputStream cos = new ConsoleOutputStream(textColor, printStream);
+        System.setOut(new PrintStream(cos, true, "utf8"));
+    }
+
+    /*
+     * Redirect the output from the standard error to the console using the
+     * default text color and null PrintStream
+     */
+    public void redirectErr() throws UnsupportedEncodingException {
+        redirectErr(null, null);
+    }
+
+    /*
+     * Redirect the output from the standard error to the console using the
+     * specified color and PrintStream. When a PrintStream is specified the
+     * message will be added to the Document before it is also written to the
+     * PrintStream.
+     */
+    public void redirectErr(Color textColor, PrintStream printStream) throws UnsupportedEncodingException {
+        ConsoleOutputStream cos = new ConsoleOutputStream(textColor, printStream);
+        System.setErr(new PrintStream(cos, true, "utf8"));
+    }
+
+    /*
+     * To prevent memory from being used up you can control the number of lines
+     * to display in the console
+     *
+     * This number can be dynamically changed, but the console will only be
+     * updated with the next frame that has new lines.
+     */
+    public void setMessageLines(int lines) {
+        buffer.setCapacity(lines);
+        maximumLines = lines;
+    }
+
+    public JScrollPane getContainer() {
+        return container;
+    }
+
+    public void setContainer(JScrollPane container) {
+        this.container = container;
+    }
+
+    /*
+     * Move the lines written since the last frame into the Document. Runs
+     * of lines with the same color are inserted with a single call.
+     */
+    private void displayNewLines() {
+        LogRingBuffer.Chunk chunk = buffer.linesSince(displayedSeq);
+        List<String> texts = chunk.getTexts();
+
+        if (texts.isEmpty()) {
+            return;
+        }
+
+        displayedSeq = chunk.getNextSeq();
+
+        try {
+            // more lines were written than the console holds, the old lines would be trimmed anyway
+            if (chunk.isLinesDropped()) {
+                document.remove(0, document.getLength());
+            }
+
+            List<AttributeSet> attributes = chunk.getAttributes();
+            StringBuilder run = new StringBuilder();
+            AttributeSet runAttributes = null;
+
+            if (isAppend) {
+                boolean first = document.getLength() == 0;
+
+                for (int i = 0; i < texts.size(); i++) {
+                    if (run.length() > 0 && attributes.get(i) != runAttributes) {
+                        document.insertString(document.getLength(), run.toString(), runAttributes);
+                        run.setLength(0);
+                    }
+
+                    runAttributes = attributes.get(i);
+                    if (!first) {
+                        run.append('\n');
+                    }
+                    run.append(texts.get(i));
+                    first = false;
+                }
+
+                document.insertString(document.getLength(), run.toString(), runAttributes);
+            } else {
+                // the newest line is the first line of the Document
+                int offset = 0;
+                for (int i = texts.size() - 1; i >= 0; i--) {
+                    if (run.length() > 0 && attributes.get(i) != runAttributes) {
+                        document.insertString(offset, run.toString(), runAttributes);
+                        offset += run.length();
+                        run.setLength(0);
+                    }
+
+                    runAttributes = attributes.get(i);
+                    run.append(texts.get(i)).append('\n');
+                }
+
+                document.insertString(offset, run.toString(), runAttributes);
+            }
+
+            removeExcessLines();
+        } catch (BadLocationException ble) {
+            ble.printStackTrace();
+        }
+
+        if (isAppend) {
+            if (container != null) {
+                container.getVerticalScrollBar().setValue(container.getVerticalScrollBar().getMaximum());
+            }
+        } else {
+            textComponent.setCaretPosition(0);
+        }
+    }
+
+    /*
+     * Remove the lines that exceed the limit with a single call, from the
+     * start of the Document when appending and from the end otherwise.
+     */
+    private void removeExcessLines() throws BadLocationException {
+        Element root = document.getDefaultRootElement();
+        int excess = root.getElementCount() - maximumLines;
+
+        if (excess <= 0) {
+            return;
+        }
+
+        if (isAppend) {
+            document.remove(0, root.getElement(excess - 1).getEndOffset());
+        } else {
+            // the last line of the Document is empty, because every inserted line ends with a newline
+            int start = root.getElement(maximumLines - 1).getEndOffset();
+            document.remove(start, document.getLength() - start);
+        }
+    }
+
+    /*
+     * Class to intercept output from a PrintStream and add it line by line to
+     * the ring buffer. The output can optionally be redirected to a different
+     * PrintStream. The text displayed in the Document can be color coded to
+     * indicate the output source.
+     */
+    class ConsoleOutputStream extends OutputStream {
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        private SimpleAttributeSet attributes;
+        private PrintStream printStream;
+
+        /*
+         * Specify the option text color and PrintStream
+         */
+        public ConsoleOutputStream(Color textColor, PrintStream printStream) {
+            if (textColor != null) {
+                attributes = new SimpleAttributeSet();
+                StyleConstants.setForeground(attributes, textColor);
+            }
+
+            this.printStream = printStream;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            if (b == '\n') {
+                endLine();
+            } else {
+                line.write(b);
+            }
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            int start = off;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    line.write(b, start, i - start);
+                    endLine();
+                    start = i + 1;
+                }
+            }
+
+            line.write(b, start, off + len - start);
+        }
+
+        /*
+         * A complete line was written, add it to the buffer and send it to
+         * the optional PrintStream.
+         */
+        private void endLine() {
+            String text = new String(line.toByteArray(), StandardCharsets.UTF_8);
+            line.reset();
+
+            if (text.endsWith("\r")) {
+                text = text.substring(0, text.length() - 1);
+            }
+
+            buffer.add(text, attributes);
+
+            if (printStream != null) {
+                printStream.println(text);
+            }
+        }
+    }
+}
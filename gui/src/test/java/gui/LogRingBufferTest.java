@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gui;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+
+import org.junit.Test;
+
+/**
+ * TestClass.
+ *
+ * @author Nick Russler
+ */
+public class LogRingBufferTest {
+    @Test
+    public void linesSince() {
+        LogRingBuffer buffer = new LogRingBuffer(3);
+        buffer.add("a", null);
+        buffer.add("b", null);
+
+        LogRingBuffer.Chunk chunk = buffer.linesSince(0);
+        assertThat(chunk.getTexts(), contains("a", "b"));
+        assertThat(chunk.isLinesDropped(), equalTo(false));
+
+        buffer.add("c", null);
+        chunk = buffer.linesSince(chunk.getNextSeq());
+        assertThat(chunk.getTexts(), contains("c"));
+
+        assertThat(buffer.linesSince(chunk.getNextSeq()).getTexts(), empty());
+    }
+
+    @Test
+    public void linesSince_overwrittenLines() {
+        LogRingBuffer buffer = new LogRingBuffer(3);
+        for (int i = 0; i < 10; i++) {
+            buffer.add(String.valueOf(i), null);
+        }
+
+        LogRingBuffer.Chunk chunk = buffer.linesSince(2);
+        assertThat(chunk.getTexts(), contains("7", "8", "9"));
+        assertThat(chunk.isLinesDropped(), equalTo(true));
+        assertThat(chunk.getNextSeq(), equalTo(10L));
+    }
+
+    @Test
+    public void setCapacity_keepsLatestLines() {
+        LogRingBuffer buffer = new LogRingBuffer(4);
+        for (int i = 0; i < 6; i++) {
+            buffer.add(String.valueOf(i), null);
+        }
+
+        buffer.setCapacity(2);
+        assertThat(buffer.linesSince(0).getTexts(), contains("4", "5"));
+
+        buffer.setCapacity(5);
+        buffer.add("6", null);
+        assertThat(buffer.linesSince(0).getTexts(), contains("4", "5", "6"));
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package msg;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import mimeparser.MessageFormat;
+import org.simplejavamail.converter.EmailConverter;
+
+/**
+ * Reads outlook msg files with the outlook module of simple-java-mail.
+ *
+ * @author Nick Russler
+ */
+public class OutlookMessageFormat implements MessageFormat {
+    @Override
+    public String getFileExtension() {
+        return "msg";
+    }
+
+    @Override
+    public InputStream toEml(InputStream in) throws Exception {
+        String emlString = EmailConverter.outlookMsgToEML(in);
+        return new ByteArrayInputStream(emlString.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016 Nick Russler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package msg;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+import com.google.common.io.Resources;
+import jakarta.mail.internet.MimeMessage;
+import java.io.InputStream;
+import mimeparser.MessageFormats;
+import org.junit.Test;
+
+/**
+ * TestClass.
+ *
+ * @author Nick Russler
+ */
+public class OutlookMessageFormatTest {
+    @Test
+    public void plugin_isRegistered() {
+        assertThat(MessageFormats.getFileExtensions(), contains("eml", "msg"));
+        assertThat(MessageFormats.isSupported("Mail.MSG"), equalTo(true));
+    }
+
+    @Test
+    public void toEml_htmlMessage() throws Exception {
+        try (InputStream in = Resources.getResource("msg/testHtml.msg").openStream(); InputStream eml = new OutlookMessageFormat().toEml(in)) {
+            MimeMessage message = new MimeMessage(null, eml);
+            assertThat(message.getContentType(), containsString("multipart/"));
+        }
+    }
+}